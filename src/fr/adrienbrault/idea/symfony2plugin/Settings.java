@@ -32,12 +32,14 @@ public class Settings implements PersistentStateComponent<Settings> {
 
     public static String DEFAULT_WEB_DIRECTORY = "web";
     public static String DEFAULT_APP_DIRECTORY = "app";
+    public static String DEFAULT_ASSET_EXCLUDE_PATTERNS = "**/node_modules/**;**/bower_components/**";
 
     public String pathToUrlGenerator = DEFAULT_URL_GENERATOR_PATH;
     public String pathToTranslation = DEFAULT_TRANSLATION_PATH;
     public String directoryToWeb = DEFAULT_WEB_DIRECTORY;
     public String directoryToApp = DEFAULT_APP_DIRECTORY;
     public String serviceJsNameStrategy = null;
+    public String assetExcludePatterns = DEFAULT_ASSET_EXCLUDE_PATTERNS;
 
     public boolean pluginEnabled = false;
 
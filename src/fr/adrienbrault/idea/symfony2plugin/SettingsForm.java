@@ -11,6 +11,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.stubs.util.IndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.IdeHelper;
 import org.jetbrains.annotations.Nls;
@@ -50,6 +51,7 @@ public class SettingsForm implements Configurable {
     private JButton directoryToWebReset;
     private JLabel directoryToWebLabel;
     private TextFieldWithBrowseButton directoryToWeb;
+    private JTextField assetExcludePatterns;
 
     private JButton directoryToAppReset;
     private JLabel directoryToAppLabel;
@@ -154,6 +156,7 @@ public class SettingsForm implements Configurable {
 
             || !directoryToApp.getText().equals(getSettings().directoryToApp)
             || !directoryToWeb.getText().equals(getSettings().directoryToWeb)
+            || !assetExcludePatterns.getText().equals(getSettings().assetExcludePatterns)
         ;
     }
 
@@ -194,6 +197,10 @@ public class SettingsForm implements Configurable {
 
         getSettings().directoryToApp = directoryToApp.getText();
         getSettings().directoryToWeb = directoryToWeb.getText();
+        getSettings().assetExcludePatterns = assetExcludePatterns.getText();
+
+        // paths are part of our caches
+        SymfonyModificationTrackers.getInstance(project).incModificationAll();
     }
 
     @Override
@@ -245,6 +252,7 @@ public class SettingsForm implements Configurable {
 
         directoryToApp.setText(getSettings().directoryToApp);
         directoryToWeb.setText(getSettings().directoryToWeb);
+        assetExcludePatterns.setText(getSettings().assetExcludePatterns);
     }
 
     private MouseListener createPathButtonMouseListener(final JTextField textField) {
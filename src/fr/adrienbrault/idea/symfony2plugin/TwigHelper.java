@@ -17,7 +17,6 @@ import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.util.*;
 import com.intellij.util.Processor;
 import com.intellij.util.indexing.FileBasedIndexImpl;
-import com.jetbrains.php.PhpIndex;
 import com.jetbrains.twig.TwigFile;
 import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.TwigLanguage;
@@ -28,6 +27,8 @@ import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetFile;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtensionParameter;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigMacroFunctionStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.templating.TemplateLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.templating.assets.TwigNamedAssetsServiceParser;
@@ -396,7 +397,6 @@ public class TwigHelper {
 
     public static List<TwigPath> getTwigNamespaces(@NotNull Project project, boolean includeSettings) {
         List<TwigPath> twigPaths = new ArrayList<TwigPath>();
-        PhpIndex phpIndex = PhpIndex.getInstance(project);
 
         TwigPathServiceParser twigPathServiceParser = ServiceXmlParserFactory.getInstance(project, TwigPathServiceParser.class);
         twigPaths.addAll(twigPathServiceParser.getTwigPathIndex().getTwigPaths());
@@ -407,7 +407,7 @@ public class TwigHelper {
             twigPaths.add(new TwigPath(globalDirectory.getPath(), TwigPathIndex.MAIN, TwigPathIndex.NamespaceType.BUNDLE));
         }
 
-        Collection<SymfonyBundle> symfonyBundles = new SymfonyBundleUtil(phpIndex).getBundles();
+        Collection<SymfonyBundle> symfonyBundles = new SymfonyBundleUtil(project).getBundles();
         for (SymfonyBundle bundle : symfonyBundles) {
             PsiDirectory views = bundle.getSubDirectory("Resources", "views");
             if(views != null) {
@@ -1417,10 +1417,8 @@ public class TwigHelper {
                 }
             }
 
-            for (final AssetFile assetFile : new AssetDirectoryReader().setFilterExtension(fileTypes).setIncludeBundleDir(true).setProject(project).getAssetFiles()) {
-                if(assetFile.toString().equals(templateName)) {
-                    virtualFiles.add(assetFile.getFile());
-                }
+            for (final AssetFile assetFile : new AssetDirectoryReader().setFilterExtension(fileTypes).setIncludeBundleDir(true).setProject(project).findAssetFiles(templateName)) {
+                virtualFiles.add(assetFile.getFile());
             }
 
             return virtualFiles;
@@ -1429,7 +1427,7 @@ public class TwigHelper {
         String pathName = matcher.group(1);
         String fileExtension = matcher.group(2).length() > 0 ? matcher.group(2) : null;
 
-        for (final AssetFile assetFile : new AssetDirectoryReader().setFilterExtension(fileTypes).setIncludeBundleDir(true).setProject(project).getAssetFiles()) {
+        for (final AssetFile assetFile : new AssetDirectoryReader().setFilterExtension(fileTypes).setIncludeBundleDir(true).setPrefix(pathName).setProject(project).getAssetFiles()) {
             if(fileExtension == null && assetFile.toString().matches(Pattern.quote(pathName) + "(?!.*[/\\\\]).*\\.\\w+")) {
                 virtualFiles.add(assetFile.getFile());
             } else if(fileExtension != null && assetFile.toString().matches(Pattern.quote(pathName) + "(?!.*[/\\\\]).*" + Pattern.quote(fileExtension))) {
@@ -1747,7 +1745,7 @@ public class TwigHelper {
         @Nullable
         @Override
         public Result<TemplateFileMap> compute() {
-            return Result.create(getTemplateMapProxy(project, true, false), PsiModificationTracker.MODIFICATION_COUNT);
+            return Result.create(getTemplateMapProxy(project, true, false), SymfonyModificationTrackers.getTemplateTracker(project), ContainerFileModificationTracker.getInstance(project));
         }
     }
 
@@ -1762,7 +1760,7 @@ public class TwigHelper {
         @Nullable
         @Override
         public Result<TemplateFileMap> compute() {
-            return Result.create(getTemplateMapProxy(project, true, true), PsiModificationTracker.MODIFICATION_COUNT);
+            return Result.create(getTemplateMapProxy(project, true, true), SymfonyModificationTrackers.getTemplateTracker(project), ContainerFileModificationTracker.getInstance(project));
         }
     }
 }
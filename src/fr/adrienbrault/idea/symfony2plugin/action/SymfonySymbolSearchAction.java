@@ -168,8 +168,8 @@ public class SymfonySymbolSearchAction extends GotoActionBase {
                 processor.process(name);
             }
 
-            for(SymfonyCommand command: SymfonyCommandUtil.getCommands(project)) {
-                processor.process(command.getName());
+            for(String command: SymfonyCommandUtil.getCommandNames(project)) {
+                processor.process(command);
             }
 
             // Twig Extensions
@@ -249,22 +249,17 @@ public class SymfonySymbolSearchAction extends GotoActionBase {
                 }
             }
 
-            for (SymfonyCommand symfonyCommand : SymfonyCommandUtil.getCommands(project)) {
-                if(symfonyCommand.getName().equals(name)) {
-                    processor.process(new NavigationItemEx(symfonyCommand.getPsiElement(), name, Symfony2Icons.SYMFONY, "Command"));
-                }
+            for (SymfonyCommand symfonyCommand : SymfonyCommandUtil.getCommands(project, name)) {
+                processor.process(new NavigationItemEx(symfonyCommand.getPsiElement(), name, Symfony2Icons.SYMFONY, "Command"));
             }
 
             // Twig Extensions
-            TwigExtensionParser twigExtensionParser = new TwigExtensionParser(project);
-            for (Map<String, TwigExtension> extensionMap : Arrays.asList(twigExtensionParser.getFilters(), twigExtensionParser.getFunctions())) {
-                for(Map.Entry<String, TwigExtension> twigFunc: extensionMap.entrySet()) {
-                    if(twigFunc.getKey().equals(name)) {
-                        TwigExtension twigExtension = twigFunc.getValue();
-                        PsiElement extensionTarget = TwigExtensionParser.getExtensionTarget(project, twigExtension);
-                        if(extensionTarget != null) {
-                            processor.process(new NavigationItemEx(extensionTarget, name, TwigExtensionParser.getIcon(twigExtension.getTwigExtensionType()), twigExtension.getTwigExtensionType().toString()));
-                        }
+            for (TwigExtensionParser.TwigElementType type : new TwigExtensionParser.TwigElementType[] {TwigExtensionParser.TwigElementType.FILTER, TwigExtensionParser.TwigElementType.METHOD}) {
+                TwigExtension twigExtension = TwigExtensionParser.getExtension(project, type, name);
+                if(twigExtension != null) {
+                    PsiElement extensionTarget = TwigExtensionParser.getExtensionTarget(project, twigExtension);
+                    if(extensionTarget != null) {
+                        processor.process(new NavigationItemEx(extensionTarget, name, TwigExtensionParser.getIcon(twigExtension.getTwigExtensionType()), twigExtension.getTwigExtensionType().toString()));
                     }
                 }
             }
@@ -1,27 +1,34 @@
 package fr.adrienbrault.idea.symfony2plugin.asset.dic;
 
 
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileVisitor;
 import com.intellij.psi.PsiDirectory;
-import com.jetbrains.php.PhpIndex;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.regex.Pattern;
 
 public class AssetDirectoryReader {
 
     protected Project project;
     protected boolean includeBundleDir = false;
     protected String[] filterExtension;
+    protected String prefix;
 
     public AssetDirectoryReader setProject(Project project) {
         this.project = project;
@@ -38,6 +45,14 @@ public class AssetDirectoryReader {
         return this;
     }
 
+    /**
+     * Typed path, eg "assets/js/fo" or "@FooBundle/Resources/public/"; its directory limits the lookup
+     */
+    public AssetDirectoryReader setPrefix(@Nullable String prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
     @Nullable
     public static VirtualFile getProjectAssetRoot(@NotNull Project project) {
         VirtualFile projectDirectory = project.getBaseDir();
@@ -53,21 +68,17 @@ public class AssetDirectoryReader {
             return files;
         }
 
-        VfsUtil.visitChildrenRecursively(webDirectory, new VirtualFileVisitor() {
-            @Override
-            public boolean visitFile(@NotNull VirtualFile virtualFile) {
-                if(isValidFile(virtualFile)) {
-                    files.add(new AssetFile(virtualFile, AssetEnum.Position.Web, webDirectory));
-                }
-                return super.visitFile(virtualFile);
-            }
-        });
+        List<Pattern> excludes = getExcludePatterns(project);
+
+        String path = getPrefixDirectory();
+        VirtualFile searchDirectory = path != null ? webDirectory.findFileByRelativePath(path) : null;
+        collectFiles(files, searchDirectory != null && searchDirectory.isDirectory() ? searchDirectory : webDirectory, AssetEnum.Position.Web, webDirectory, "", excludes);
 
         if(!this.includeBundleDir) {
             return files;
         }
 
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(PhpIndex.getInstance(this.project));
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(this.project);
         for(final SymfonyBundle bundle : symfonyBundleUtil.getBundles()) {
 
             PsiDirectory bundleDirectory = bundle.getDirectory();
@@ -80,16 +91,16 @@ public class AssetDirectoryReader {
 
             if (null != resourceDirectory) {
 
-                VfsUtil.visitChildrenRecursively(resourceDirectory, new VirtualFileVisitor() {
-                    @Override
-                    public boolean visitFile(@NotNull VirtualFile virtualFile) {
-                        if(isValidFile(virtualFile)) {
-                            files.add(new AssetFile(virtualFile, AssetEnum.Position.Bundle, bundleDirectoryVirtual, '@' + bundle.getName() + "/"));
-                        }
-                        return super.visitFile(virtualFile);
-                    }
-                });
+                searchDirectory = null;
+                if(path != null && path.startsWith(bundle.getName() + "/")) {
+                    searchDirectory = bundleDirectoryVirtual.findFileByRelativePath(path.substring(bundle.getName().length() + 1));
+                }
 
+                if(searchDirectory == null || !searchDirectory.isDirectory() || !VfsUtil.isAncestor(resourceDirectory, searchDirectory, false)) {
+                    searchDirectory = resourceDirectory;
+                }
+
+                collectFiles(files, searchDirectory, AssetEnum.Position.Bundle, bundleDirectoryVirtual, '@' + bundle.getName() + "/", excludes);
             }
 
         }
@@ -97,6 +108,177 @@ public class AssetDirectoryReader {
         return files;
     }
 
+    /**
+     * Resolves a single asset name like "assets/foo.js" or "@FooBundle/Resources/public/foo.js" without any directory visiting
+     */
+    @NotNull
+    public List<AssetFile> findAssetFiles(@NotNull String assetName) {
+        List<AssetFile> files = new ArrayList<AssetFile>();
+
+        VirtualFile webDirectory = getProjectAssetRoot(project);
+        if (null == webDirectory) {
+            return files;
+        }
+
+        List<Pattern> excludes = getExcludePatterns(project);
+
+        VirtualFile virtualFile = webDirectory.findFileByRelativePath(assetName);
+        if(virtualFile != null && isValidFile(virtualFile) && VfsUtil.isAncestor(webDirectory, virtualFile, true) && !isExcluded(VfsUtil.getRelativePath(virtualFile, webDirectory, '/'), excludes)) {
+            files.add(new AssetFile(virtualFile, AssetEnum.Position.Web, webDirectory));
+        }
+
+        if(!this.includeBundleDir || !assetName.startsWith("@")) {
+            return files;
+        }
+
+        int bundleNameEnd = assetName.indexOf("/");
+        if(bundleNameEnd == -1) {
+            return files;
+        }
+
+        SymfonyBundle bundle = new SymfonyBundleUtil(this.project).getBundle(assetName.substring(1, bundleNameEnd));
+        if(bundle == null || bundle.getDirectory() == null) {
+            return files;
+        }
+
+        VirtualFile bundleDirectoryVirtual = bundle.getDirectory().getVirtualFile();
+        VirtualFile resourceDirectory = VfsUtil.findRelativeFile(bundleDirectoryVirtual, "Resources");
+
+        virtualFile = bundleDirectoryVirtual.findFileByRelativePath(assetName.substring(bundleNameEnd + 1));
+        if(resourceDirectory != null && virtualFile != null && isValidFile(virtualFile) && VfsUtil.isAncestor(resourceDirectory, virtualFile, true)
+            && !isExcluded(VfsUtil.getRelativePath(virtualFile, bundleDirectoryVirtual, '/'), excludes)) {
+
+            files.add(new AssetFile(virtualFile, AssetEnum.Position.Bundle, bundleDirectoryVirtual, '@' + bundle.getName() + "/"));
+        }
+
+        return files;
+    }
+
+    /**
+     * Exclude patterns are ant like globs, eg "&#42;&#42;/node_modules/&#42;&#42;", separated by ";" and matched against the path
+     * relative to the web or bundle directory
+     */
+    @NotNull
+    public static List<Pattern> getExcludePatterns(@NotNull Project project) {
+
+        String excludes = Settings.getInstance(project).assetExcludePatterns;
+        if(StringUtil.isEmptyOrSpaces(excludes)) {
+            return Collections.emptyList();
+        }
+
+        List<Pattern> patterns = new ArrayList<Pattern>();
+        for (String exclude : StringUtil.split(excludes, ";")) {
+            exclude = exclude.trim();
+            if(exclude.length() > 0) {
+                patterns.add(Pattern.compile(FileUtil.convertAntToRegexp(exclude)));
+            }
+        }
+
+        return patterns;
+    }
+
+    private void collectFiles(@NotNull final List<AssetFile> files, @NotNull VirtualFile searchDirectory, @NotNull final AssetEnum.Position position, @NotNull final VirtualFile relativeFolder, @NotNull final String prefix, @NotNull final List<Pattern> excludes) {
+
+        // index is not available or dont know the files, so we need to visit them; without extension filter we need all files anyway
+        if(this.filterExtension == null || DumbService.isDumb(this.project) || !isIndexed(searchDirectory)) {
+            VfsUtil.visitChildrenRecursively(searchDirectory, new VirtualFileVisitor() {
+                @Override
+                public boolean visitFile(@NotNull VirtualFile virtualFile) {
+
+                    // "**/node_modules/**" also matches "node_modules/", so skip whole directory
+                    if(virtualFile.isDirectory() && !virtualFile.equals(relativeFolder) && isExcluded(VfsUtil.getRelativePath(virtualFile, relativeFolder, '/') + "/", excludes)) {
+                        return false;
+                    }
+
+                    if(isValidFile(virtualFile)) {
+                        addFile(files, virtualFile, position, relativeFolder, prefix, excludes);
+                    }
+                    return super.visitFile(virtualFile);
+                }
+            });
+
+            return;
+        }
+
+        GlobalSearchScope scope = GlobalSearchScopesCore.directoryScope(this.project, searchDirectory, true);
+        for (String extension : getExtensions()) {
+            for (VirtualFile virtualFile : FilenameIndex.getAllFilesByExt(this.project, extension, scope)) {
+                addFile(files, virtualFile, position, relativeFolder, prefix, excludes);
+            }
+        }
+    }
+
+    /**
+     * Only project content and libraries are part of file indexes
+     */
+    private boolean isIndexed(@NotNull VirtualFile virtualFile) {
+        ProjectFileIndex fileIndex = ProjectRootManager.getInstance(this.project).getFileIndex();
+        return fileIndex.isInContent(virtualFile) || fileIndex.isInLibraryClasses(virtualFile) || fileIndex.isInLibrarySource(virtualFile);
+    }
+
+    private static void addFile(@NotNull List<AssetFile> files, @NotNull VirtualFile virtualFile, @NotNull AssetEnum.Position position, @NotNull VirtualFile relativeFolder, @NotNull String prefix, @NotNull List<Pattern> excludes) {
+
+        String relativePath = VfsUtil.getRelativePath(virtualFile, relativeFolder, '/');
+        if(relativePath == null || isExcluded(relativePath, excludes)) {
+            return;
+        }
+
+        files.add(new AssetFile(virtualFile, position, relativeFolder, prefix));
+    }
+
+    private static boolean isExcluded(@Nullable String relativePath, @NotNull List<Pattern> excludes) {
+
+        if(relativePath == null) {
+            return false;
+        }
+
+        for (Pattern exclude : excludes) {
+            if(exclude.matcher(relativePath).matches()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Lowercase extensions of filter
+     */
+    @NotNull
+    private Collection<String> getExtensions() {
+
+        if(this.filterExtension == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> extensions = new HashSet<String>();
+        for (String extension : this.filterExtension) {
+            extensions.add(extension.toLowerCase());
+        }
+
+        return extensions;
+    }
+
+    /**
+     * "@FooBundle/Resources/public/fo" => "FooBundle/Resources/public"
+     */
+    @Nullable
+    private String getPrefixDirectory() {
+
+        if(this.prefix == null) {
+            return null;
+        }
+
+        String path = StringUtil.trimStart(this.prefix.replace("\\", "/"), "@");
+
+        int lastSlash = path.lastIndexOf("/");
+        if(lastSlash <= 0) {
+            return null;
+        }
+
+        return path.substring(0, lastSlash);
+    }
+
     private boolean isValidFile(VirtualFile virtualFile) {
 
         if (virtualFile.isDirectory()) {
@@ -107,7 +289,7 @@ public class AssetDirectoryReader {
             String extension = virtualFile.getExtension();
 
             // file need extension and it must be in list
-            return null != extension && Arrays.asList(this.filterExtension).contains(extension);
+            return null != extension && getExtensions().contains(extension.toLowerCase());
 
         }
 
@@ -18,7 +18,8 @@ import org.jetbrains.annotations.NotNull;
 
 public class AssetCompletionProvider extends CompletionProvider<CompletionParameters> {
 
-    protected AssetDirectoryReader assetParser;
+    protected String[] filterExtension;
+    protected boolean includeBundleDir = false;
     protected boolean includeCustom = false;
 
     public void addCompletions(@NotNull CompletionParameters parameters,
@@ -30,8 +31,14 @@ public class AssetCompletionProvider extends CompletionProvider<CompletionParame
             return;
         }
 
-        this.assetParser.setProject(project);
-        for (final AssetFile assetFile : this.assetParser.getAssetFiles()) {
+        // reader holds the typed prefix, so never share it between completions
+        AssetDirectoryReader assetParser = new AssetDirectoryReader()
+            .setProject(project)
+            .setFilterExtension(this.filterExtension)
+            .setIncludeBundleDir(this.includeBundleDir)
+            .setPrefix(resultSet.getPrefixMatcher().getPrefix());
+
+        for (final AssetFile assetFile : assetParser.getAssetFiles()) {
             resultSet.addElement(new AssetLookupElement(assetFile, project));
         }
 
@@ -44,9 +51,14 @@ public class AssetCompletionProvider extends CompletionProvider<CompletionParame
 
     }
 
-    public AssetCompletionProvider setAssetParser(AssetDirectoryReader assetParser) {
-       this.assetParser = assetParser;
-       return this;
+    public AssetCompletionProvider setFilterExtension(String... filterExtension) {
+        this.filterExtension = filterExtension;
+        return this;
+    }
+
+    public AssetCompletionProvider setIncludeBundleDir(boolean includeBundleDir) {
+        this.includeBundleDir = includeBundleDir;
+        return this;
     }
 
     public AssetCompletionProvider setIncludeCustom(boolean includeCustom) {
@@ -13,6 +13,7 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.extension.MethodSignatureTypeProviderExtension;
 import fr.adrienbrault.idea.symfony2plugin.extension.MethodSignatureTypeProviderParameter;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpTypeProviderUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.PhpTypeCache;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
@@ -117,7 +118,18 @@ public class MethodSignatureTypeProvider implements PhpTypeProvider2 {
     }
 
     @Override
-    public Collection<? extends PhpNamedElement> getBySignature(String expression, Project project) {
+    public Collection<? extends PhpNamedElement> getBySignature(final String expression, final Project project) {
+        return PhpTypeCache.getInstance(project).getBySignature(getKey(), expression, new PhpTypeCache.SignatureResolver() {
+            @Nullable
+            @Override
+            public Collection<? extends PhpNamedElement> resolve() {
+                return resolveBySignature(expression, project);
+            }
+        });
+    }
+
+    @Nullable
+    private Collection<? extends PhpNamedElement> resolveBySignature(String expression, Project project) {
 
         // get back our original call
         int endIndex = expression.lastIndexOf(TRIM_KEY);
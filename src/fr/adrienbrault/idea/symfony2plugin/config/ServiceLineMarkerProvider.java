@@ -146,14 +146,14 @@ public class ServiceLineMarkerProvider implements LineMarkerProvider {
             return;
         }
 
+        String className = ((PhpClass) phpClassContext).getPresentableFQN();
+        if(className == null) {
+            return;
+        }
+
         Collection<PsiFile> psiFiles = new ArrayList<PsiFile>();
-        // @TODO: use DoctrineMetadataUtil, for single resolve; we have collecting overhead here
-        for(DoctrineModel doctrineModel: EntityHelper.getModelClasses(psiElement.getProject())) {
+        for(DoctrineModel doctrineModel: EntityHelper.getModelClassesByClassName(psiElement.getProject(), className)) {
             PhpClass phpClass = doctrineModel.getPhpClass();
-            if(!PhpElementsUtil.isEqualClassName(phpClass, (PhpClass) phpClassContext)) {
-                continue;
-            }
-
             PsiFile psiFile = EntityHelper.getModelConfigFile(phpClass);
 
             // prevent self navigation for line marker
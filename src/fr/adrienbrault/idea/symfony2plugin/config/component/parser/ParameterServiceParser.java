@@ -1,14 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.config.component.parser;
 
-import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceStreamParser;
+import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class ParameterServiceParser extends AbstractServiceParser {
+public class ParameterServiceParser extends AbstractServiceStreamParser {
 
     protected  Map<String, String> parameterMap = new ConcurrentHashMap<String, String>();
 
@@ -17,19 +15,9 @@ public class ParameterServiceParser extends AbstractServiceParser {
         return "/container/parameters/parameter[@key]";
     }
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
-            return;
-        }
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String parameterValue = node.hasAttribute("type") && node.getAttribute("type").equals("collection") ?  "collection" : node.getTextContent();
-            this.parameterMap.put(node.getAttribute("key"), parameterValue);
-        }
-
+    @Override
+    public void visitParameter(@NotNull String key, @NotNull String value) {
+        this.parameterMap.put(key, value);
     }
 
     public Map<String, String> getParameterMap() {
@@ -1,17 +1,19 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerStreamArgument;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerStreamReader;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerStreamVisitorInterface;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,21 +21,21 @@ import java.util.Map;
  */
 public class ServiceMapParser {
 
-    private DocumentBuilder documentBuilder;
-
-    public ServiceMapParser() throws ParserConfigurationException {
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        documentBuilder = dbFactory.newDocumentBuilder();
-    }
-
-    public ServiceMap parse(InputStream stream) throws IOException, SAXException {
-        return parse(documentBuilder.parse(stream));
+    public ServiceMap parse(InputStream stream) throws XMLStreamException {
+        ServiceMapVisitor visitor = new ServiceMapVisitor();
+        ContainerStreamReader.read(stream, visitor);
+        return visitor.getServiceMap();
     }
 
-    public ServiceMap parse(File file) throws IOException, SAXException {
-        return parse(documentBuilder.parse(file));
+    public ServiceMap parse(File file) throws IOException, XMLStreamException {
+        ServiceMapVisitor visitor = new ServiceMapVisitor();
+        ContainerStreamReader.read(file, visitor);
+        return visitor.getServiceMap();
     }
 
+    /**
+     * DOM based parsing; prefer the streaming methods for compiled container files
+     */
     public ServiceMap parse(Document document) {
         Map<String, String> map = new HashMap<String, String>();
         Map<String, String> publicMap = new HashMap<String, String>();
@@ -60,11 +62,67 @@ public class ServiceMapParser {
         return new ServiceMap(map, publicMap);
     }
 
-    private void populateMapWithDefaultServices(Map<String, String> map) {
+    /**
+     * Same rules as the DOM parser, but for a single streamed "service" element
+     */
+    static void visitService(@NotNull Map<String, String> map, @NotNull Map<String, String> publicMap, @NotNull Map<String, String> attributes) {
+        String id = attributes.containsKey("id") ? attributes.get("id") : "";
+        String className = attributes.containsKey("class") ? attributes.get("class") : "";
+
+        if (attributes.containsKey("class") && attributes.containsKey("id")) {
+            map.put(id, "\\" + className);
+        }
+        if (!"false".equals(attributes.get("public"))) {
+            publicMap.put(id, "\\" + className);
+        }
+
+        String alias = attributes.get("alias");
+        if (alias != null && publicMap.get(alias) != null) {
+            map.put(id, map.get(alias));
+            publicMap.put(id, map.get(alias));
+        }
+    }
+
+    static void populateMapWithDefaultServices(Map<String, String> map) {
         map.put("request", "\\Symfony\\Component\\HttpFoundation\\Request");
         map.put("service_container", "\\Symfony\\Component\\DependencyInjection\\ContainerInterface");
         map.put("kernel", "\\Symfony\\Component\\HttpKernel\\KernelInterface");
         map.put("controller_resolver", "\\Symfony\\Component\\HttpKernel\\Controller\\ControllerResolverInterface");
    }
 
+    private static class ServiceMapVisitor implements ContainerStreamVisitorInterface {
+
+        private final Map<String, String> map = new HashMap<String, String>();
+        private final Map<String, String> publicMap = new HashMap<String, String>();
+
+        @Override
+        public void visitService(@NotNull Map<String, String> serviceAttributes) {
+            ServiceMapParser.visitService(map, publicMap, serviceAttributes);
+        }
+
+        @Override
+        public void visitServiceTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+        }
+
+        @Override
+        public void visitServiceMethodCall(@NotNull Map<String, String> serviceAttributes, @NotNull String method, @NotNull List<ContainerStreamArgument> arguments) {
+        }
+
+        @Override
+        public void visitParameter(@NotNull String key, @NotNull String value) {
+        }
+
+        @Override
+        public void visitEnd() {
+            // Support services whose class isn't specified
+            populateMapWithDefaultServices(map);
+            populateMapWithDefaultServices(publicMap);
+        }
+
+        @NotNull
+        public ServiceMap getServiceMap() {
+            return new ServiceMap(map, publicMap);
+        }
+    }
+
 }
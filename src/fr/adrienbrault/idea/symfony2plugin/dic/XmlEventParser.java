@@ -1,17 +1,15 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.config.dic.EventDispatcherSubscribedEvent;
-import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceStreamParser;
+import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class XmlEventParser extends AbstractServiceParser {
+public class XmlEventParser extends AbstractServiceStreamParser {
 
     protected Map<String, String> list = new ConcurrentHashMap<String, String>();
     protected List<EventDispatcherSubscribedEvent> events = new ArrayList<EventDispatcherSubscribedEvent>();
@@ -21,22 +19,18 @@ public class XmlEventParser extends AbstractServiceParser {
         return "/container/services/service[@id]/tag[@event]";
     }
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
+    @Override
+    public void visitServiceTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+        String event = tagAttributes.get("event");
+        if(event == null || !serviceAttributes.containsKey("id")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            this.list.put(node.getAttribute("event"), node.getAttribute("name"));
-            if(((Element) node.getParentNode()).hasAttribute("class")) {
-                this.events.add(new EventDispatcherSubscribedEvent(node.getAttribute("event"), ((Element) node.getParentNode()).getAttribute("class"), null).setType(node.getAttribute("name")));
-            }
-
+        String tagName = tagAttributes.containsKey("name") ? tagAttributes.get("name") : "";
+        this.list.put(event, tagName);
+        if(serviceAttributes.containsKey("class")) {
+            this.events.add(new EventDispatcherSubscribedEvent(event, serviceAttributes.get("class"), null).setType(tagName));
         }
-
     }
 
     public Map<String, String> get() {
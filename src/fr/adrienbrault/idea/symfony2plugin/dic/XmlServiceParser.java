@@ -1,35 +1,28 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
-import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.xml.sax.SAXException;
+import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceStreamParser;
+import org.jetbrains.annotations.NotNull;
 
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
-import java.io.IOException;
+import java.util.Map;
 
-public class XmlServiceParser extends AbstractServiceParser {
+public class XmlServiceParser extends AbstractServiceStreamParser {
 
     protected ServiceMap serviceMap = new ServiceMap();
 
     @Override
-    public String getXPathFilter() {
-        return "";
+    public void visitService(@NotNull Map<String, String> serviceAttributes) {
+        ServiceMapParser.visitService(this.serviceMap.getMap(), this.serviceMap.getPublicMap(), serviceAttributes);
     }
 
-    public void parser(File file) {
-        try {
-            // @TODO: make this one beautiful
-            ServiceMap serviceMap1 = new ServiceMapParser().parse(file);
-            this.serviceMap.getMap().putAll(serviceMap1.getMap());
-            this.serviceMap.getPublicMap().putAll(serviceMap1.getPublicMap());
-        } catch (SAXException ignored) {
-        } catch (IOException ignored) {
-        } catch (ParserConfigurationException ignored) {
-        }
+    @Override
+    public void visitEnd() {
+        // Support services whose class isn't specified
+        ServiceMapParser.populateMapWithDefaultServices(this.serviceMap.getMap());
+        ServiceMapParser.populateMapWithDefaultServices(this.serviceMap.getPublicMap());
     }
 
     public ServiceMap getServiceMap() {
         return serviceMap;
     }
 
-}
\ No newline at end of file
+}
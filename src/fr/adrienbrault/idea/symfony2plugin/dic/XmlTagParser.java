@@ -1,18 +1,16 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
-import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceStreamParser;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class XmlTagParser extends AbstractServiceParser {
+public class XmlTagParser extends AbstractServiceStreamParser {
 
     protected Set<String> list = new HashSet<String>();
     protected Map<String, ArrayList<String>> taggedClasses = new ConcurrentHashMap<String, ArrayList<String>>();
@@ -22,26 +20,19 @@ public class XmlTagParser extends AbstractServiceParser {
         return "/container/services/service[@id]/tag[@name]";
     }
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
+    @Override
+    public void visitServiceTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+        String tagName = tagAttributes.get("name");
+        if(tagName == null || !serviceAttributes.containsKey("id")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String tagName = node.getAttribute("name");
-            this.list.add(tagName);
-            Element parentNode = (Element) node.getParentNode();
-            if(parentNode.hasAttribute("class")) {
-                this.addTaggedClass(tagName, parentNode.getAttribute("class"));
-            }
+        this.list.add(tagName);
+        if(serviceAttributes.containsKey("class")) {
+            this.addTaggedClass(tagName, serviceAttributes.get("class"));
         }
-
     }
 
-
     public Map<String, ArrayList<String>> getTaggedClasses() {
         return taggedClasses;
     }
@@ -67,4 +58,4 @@ public class XmlTagParser extends AbstractServiceParser {
         return list;
     }
 
-}
\ No newline at end of file
+}
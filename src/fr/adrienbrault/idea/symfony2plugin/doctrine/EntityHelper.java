@@ -2,6 +2,7 @@ package fr.adrienbrault.idea.symfony2plugin.doctrine;
 
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -23,6 +24,8 @@ import fr.adrienbrault.idea.symfony2plugin.doctrine.metadata.dict.DoctrineMetada
 import fr.adrienbrault.idea.symfony2plugin.doctrine.metadata.util.DoctrineMetadataUtil;
 import fr.adrienbrault.idea.symfony2plugin.extension.DoctrineModelProvider;
 import fr.adrienbrault.idea.symfony2plugin.extension.DoctrineModelProviderParameter;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.*;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.DoctrineModel;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
@@ -44,6 +47,9 @@ import java.util.regex.Pattern;
  */
 public class EntityHelper {
 
+    private static final Key<ModelCatalogue> MODEL_CATALOGUE = new Key<ModelCatalogue>("SYMFONY_DOCTRINE_MODEL_CATALOGUE");
+    private static final Key<ShortcutNamespaces> SHORTCUT_NAMESPACES = new Key<ShortcutNamespaces>("SYMFONY_DOCTRINE_SHORTCUT_NAMESPACES");
+
     public static final ExtensionPointName<DoctrineModelProvider> MODEL_POINT_NAME = new ExtensionPointName<DoctrineModelProvider>("fr.adrienbrault.idea.symfony2plugin.extension.DoctrineModelProvider");
 
     final public static String[] ANNOTATION_FIELDS = new String[] {
@@ -120,7 +126,7 @@ public class EntityHelper {
             }
         }
 
-        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(PhpIndex.getInstance(project)).getContainingBundle(phpClass);
+        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(project).getContainingBundle(phpClass);
         if(symfonyBundle != null) {
             PhpClass repositoryClass = getEntityRepositoryClass(project, symfonyBundle, presentableFQN);
             if(repositoryClass != null) {
@@ -595,28 +601,23 @@ public class EntityHelper {
 
         List<DoctrineTypes.Manager> managerList = Arrays.asList(managers);
 
-        // collect entitymanager namespaces on bundle or container file
-        Map<String, String> em = new HashMap<String, String>();
+        // split bundle and model name
+        int firstDirectorySeparatorIndex = shortcutName.indexOf(":");
+        String bundlename = shortcutName.substring(0, firstDirectorySeparatorIndex);
+        String entityName = shortcutName.substring(firstDirectorySeparatorIndex + 1);
+
+        // cached entitymanager namespaces on bundle or container file
+        Collection<Map<String, String>> namespaceMaps = new ArrayList<Map<String, String>>();
         if(managerList.contains(DoctrineTypes.Manager.ORM)) {
-            Map<String, String> entityNameMap = ServiceXmlParserFactory.getInstance(project, EntityNamesServiceParser.class).getEntityNameMap();
-            em.putAll(entityNameMap);
-            em.putAll(EntityHelper.getWeakBundleNamespaces(project, entityNameMap, "Entity"));
+            namespaceMaps.add(getShortcutNamespaces(project, DoctrineTypes.Manager.ORM));
         }
 
-        Map<String, String> odm = new HashMap<String, String>();
         if(managerList.contains(DoctrineTypes.Manager.MONGO_DB) || managerList.contains(DoctrineTypes.Manager.COUCH_DB)) {
-            Map<String, String> documentMap = ServiceXmlParserFactory.getInstance(project, DocumentNamespacesParser.class).getNamespaceMap();
-            odm.putAll(documentMap);
-            odm.putAll(EntityHelper.getWeakBundleNamespaces(project, documentMap, "Document"));
+            namespaceMaps.add(getShortcutNamespaces(project, DoctrineTypes.Manager.MONGO_DB));
         }
 
-        // split bundle and model name
-        int firstDirectorySeparatorIndex = shortcutName.indexOf(":");
-        String bundlename = shortcutName.substring(0, firstDirectorySeparatorIndex);
-        String entityName = shortcutName.substring(firstDirectorySeparatorIndex + 1);
-
         // conditional find namespace on manager paths
-        for(Map<String, String> map: Arrays.asList(em, odm)) {
+        for(Map<String, String> map: namespaceMaps) {
             String namespace = map.get(bundlename);
             if(namespace == null) {
                 continue;
@@ -736,30 +737,55 @@ public class EntityHelper {
      */
     public static Collection<DoctrineModel> getModelClasses(final Project project) {
 
-        HashMap<String, String> shortcutNames = new HashMap<String, String>() {{
-            putAll(ServiceXmlParserFactory.getInstance(project, EntityNamesServiceParser.class).getEntityNameMap());
-            putAll(ServiceXmlParserFactory.getInstance(project, DocumentNamespacesParser.class).getNamespaceMap());
-        }};
+        Collection<DoctrineModel> doctrineModels = new ArrayList<DoctrineModel>(getModelCatalogue(project).getModels());
+        doctrineModels.addAll(getExtensionModels(project));
 
-        for (SymfonyBundle symfonyBundle : new SymfonyBundleUtil(project).getBundles()) {
-            for(String s : new String[] {"Entity", "Document", "CouchDocument"}) {
-                String namespace = symfonyBundle.getNamespaceName() + s;
-                if(symfonyBundle.getRelative(s) != null || PhpIndex.getInstance(project).getNamespacesByName(namespace).size() > 0) {
-                    shortcutNames.put(symfonyBundle.getName(), namespace);
-                }
-            }
+        return doctrineModels;
+    }
+
+    /**
+     * Models with the given class name; a lookup on the cached catalogue, only extension models are filtered
+     */
+    @NotNull
+    public static Collection<DoctrineModel> getModelClassesByClassName(@NotNull Project project, @NotNull String className) {
+
+        Collection<DoctrineModel> catalogueModels = getModelCatalogue(project).getModels(className);
+
+        // psi can be invalid without a php structure change, eg dropped psi caches on roots change
+        if(!isValid(catalogueModels)) {
+            project.putUserData(MODEL_CATALOGUE, null);
+            catalogueModels = getModelCatalogue(project).getModels(className);
         }
 
-        // class fqn fallback
-        Collection<DoctrineModel> doctrineModels = getModelClasses(project, shortcutNames);
-        for (PhpClass phpClass : DoctrineMetadataUtil.getModels(project)) {
-            if(containsDoctrineModelClass(doctrineModels, phpClass)) {
-                continue;
+        Collection<DoctrineModel> doctrineModels = new ArrayList<DoctrineModel>(catalogueModels);
+
+        for (DoctrineModel doctrineModel : getExtensionModels(project)) {
+            if(PhpElementsUtil.isEqualClassName(doctrineModel.getPhpClass(), className)) {
+                doctrineModels.add(doctrineModel);
             }
+        }
+
+        return doctrineModels;
+    }
 
-            doctrineModels.add(new DoctrineModel(phpClass));
+    private static boolean isValid(@NotNull Collection<DoctrineModel> doctrineModels) {
+        for (DoctrineModel doctrineModel : doctrineModels) {
+            if(!doctrineModel.getPhpClass().isValid()) {
+                return false;
+            }
         }
 
+        return true;
+    }
+
+    /**
+     * Extensions are not part of our stamp, so they are never cached
+     */
+    @NotNull
+    private static Collection<DoctrineModel> getExtensionModels(@NotNull Project project) {
+
+        Collection<DoctrineModel> doctrineModels = new ArrayList<DoctrineModel>();
+
         DoctrineModelProviderParameter containerLoaderExtensionParameter = new DoctrineModelProviderParameter(project, new ArrayList<DoctrineModelProviderParameter.DoctrineModel>());
         for(DoctrineModelProvider provider : EntityHelper.MODEL_POINT_NAME.getExtensions()) {
             for(DoctrineModelProviderParameter.DoctrineModel doctrineModel: provider.collectModels(containerLoaderExtensionParameter)) {
@@ -770,14 +796,46 @@ public class EntityHelper {
         return doctrineModels;
     }
 
-    private static boolean containsDoctrineModelClass(@NotNull Collection<DoctrineModel> models, @NotNull PhpClass phpClass) {
-        for (DoctrineModel doctrineModel : models) {
-            if(PhpElementsUtil.isEqualClassName(doctrineModel.getPhpClass(), phpClass)) {
-                return true;
+    /**
+     * Shared per project; only rebuild if compiled container, container files which includes metadata or php structure changed.
+     * Building is not locked, two threads at worst build equal catalogues and the last one wins
+     */
+    @NotNull
+    private static ModelCatalogue getModelCatalogue(@NotNull Project project) {
+
+        EntityNamesServiceParser entityNamesServiceParser = ServiceXmlParserFactory.getInstance(project, EntityNamesServiceParser.class);
+        DocumentNamespacesParser documentNamespacesParser = ServiceXmlParserFactory.getInstance(project, DocumentNamespacesParser.class);
+
+        // stamp before collecting, so a change while building is visible on next call
+        long phpModificationCount = SymfonyModificationTrackers.getPhpStructureTracker(project).getModificationCount();
+        long containerModificationCount = ContainerFileModificationTracker.getInstance(project).getModificationCount();
+
+        ModelCatalogue cached = project.getUserData(MODEL_CATALOGUE);
+        if(cached != null && cached.isUpToDate(entityNamesServiceParser, documentNamespacesParser, phpModificationCount, containerModificationCount)) {
+            return cached;
+        }
+
+        Map<String, String> shortcutNames = new HashMap<String, String>();
+        shortcutNames.putAll(entityNamesServiceParser.getEntityNameMap());
+        shortcutNames.putAll(documentNamespacesParser.getNamespaceMap());
+
+        for (SymfonyBundle symfonyBundle : new SymfonyBundleUtil(project).getBundles()) {
+            for(String s : new String[] {"Entity", "Document", "CouchDocument"}) {
+                String namespace = symfonyBundle.getNamespaceName() + s;
+                if(symfonyBundle.getRelative(s) != null || PhpIndex.getInstance(project).getNamespacesByName(namespace).size() > 0) {
+                    shortcutNames.put(symfonyBundle.getName(), namespace);
+                }
             }
         }
 
-        return false;
+        ModelCatalogue catalogue = new ModelCatalogue(
+            entityNamesServiceParser, documentNamespacesParser, phpModificationCount, containerModificationCount,
+            getModelClasses(project, shortcutNames), DoctrineMetadataUtil.getModels(project)
+        );
+
+        project.putUserData(MODEL_CATALOGUE, catalogue);
+
+        return catalogue;
     }
 
     public static Collection<DoctrineModel> getModelClasses(Project project, Map<String, String> shortcutNames) {
@@ -834,4 +892,219 @@ public class EntityHelper {
         return missingMap;
     }
 
+    /**
+     * Bundle alias => namespace of the given manager; compiled container and weak bundle namespaces merged,
+     * container wins
+     */
+    @NotNull
+    public static Map<String, String> getShortcutNamespaces(@NotNull Project project, @NotNull DoctrineTypes.Manager manager) {
+        return getShortcutNamespaces(project).getNamespaces(manager);
+    }
+
+    /**
+     * Bundle alias => namespace of the given manager; only the ones which are not part of the compiled container
+     */
+    @NotNull
+    public static Map<String, String> getWeakShortcutNamespaces(@NotNull Project project, @NotNull DoctrineTypes.Manager manager) {
+        return getShortcutNamespaces(project).getWeakNamespaces(manager);
+    }
+
+    /**
+     * Shared per project; only rebuild if compiled container or php structure, which includes bundles and their directories, changed.
+     * Building is not locked, two threads at worst build equal maps and the last one wins
+     */
+    @NotNull
+    private static ShortcutNamespaces getShortcutNamespaces(@NotNull Project project) {
+
+        EntityNamesServiceParser entityNamesServiceParser = ServiceXmlParserFactory.getInstance(project, EntityNamesServiceParser.class);
+        DocumentNamespacesParser documentNamespacesParser = ServiceXmlParserFactory.getInstance(project, DocumentNamespacesParser.class);
+
+        // stamp before collecting, so a change while building is visible on next call
+        long modificationCount = SymfonyModificationTrackers.getPhpStructureTracker(project).getModificationCount();
+
+        ShortcutNamespaces cached = project.getUserData(SHORTCUT_NAMESPACES);
+        if(cached != null && cached.isUpToDate(entityNamesServiceParser, documentNamespacesParser, modificationCount)) {
+            return cached;
+        }
+
+        Map<String, String> entityNameMap = entityNamesServiceParser.getEntityNameMap();
+        Map<String, String> documentMap = documentNamespacesParser.getNamespaceMap();
+
+        ShortcutNamespaces shortcutNamespaces = new ShortcutNamespaces(
+            entityNamesServiceParser, documentNamespacesParser, modificationCount,
+            entityNameMap, getWeakBundleNamespaces(project, entityNameMap, "Entity"),
+            documentMap, getWeakBundleNamespaces(project, documentMap, "Document")
+        );
+
+        project.putUserData(SHORTCUT_NAMESPACES, shortcutNamespaces);
+
+        return shortcutNamespaces;
+    }
+
+    /**
+     * Immutable models keyed by class name with the state they were build on; one class can have multiple shortcut names,
+     * metadata models are only a class fallback
+     */
+    private static class ModelCatalogue {
+
+        @Nullable
+        private final EntityNamesServiceParser entityNamesServiceParser;
+
+        @Nullable
+        private final DocumentNamespacesParser documentNamespacesParser;
+
+        private final long phpModificationCount;
+        private final long containerModificationCount;
+
+        @NotNull
+        private final List<DoctrineModel> models;
+
+        @NotNull
+        private final Map<String, List<DoctrineModel>> classNames = new HashMap<String, List<DoctrineModel>>();
+
+        private ModelCatalogue(@Nullable EntityNamesServiceParser entityNamesServiceParser, @Nullable DocumentNamespacesParser documentNamespacesParser,
+                               long phpModificationCount, long containerModificationCount,
+                               @NotNull Collection<DoctrineModel> namespaceModels, @NotNull Collection<PhpClass> metadataModels) {
+
+            this.entityNamesServiceParser = entityNamesServiceParser;
+            this.documentNamespacesParser = documentNamespacesParser;
+            this.phpModificationCount = phpModificationCount;
+            this.containerModificationCount = containerModificationCount;
+
+            List<DoctrineModel> models = new ArrayList<DoctrineModel>();
+
+            for (DoctrineModel doctrineModel : namespaceModels) {
+                add(models, doctrineModel);
+            }
+
+            // class fqn fallback
+            for (PhpClass phpClass : metadataModels) {
+                if(!this.classNames.containsKey(getClassName(phpClass))) {
+                    add(models, new DoctrineModel(phpClass));
+                }
+            }
+
+            this.models = Collections.unmodifiableList(models);
+        }
+
+        private void add(@NotNull List<DoctrineModel> models, @NotNull DoctrineModel doctrineModel) {
+            models.add(doctrineModel);
+
+            String className = getClassName(doctrineModel.getPhpClass());
+            List<DoctrineModel> classModels = this.classNames.get(className);
+            if(classModels == null) {
+                classModels = new ArrayList<DoctrineModel>();
+                this.classNames.put(className, classModels);
+            }
+
+            classModels.add(doctrineModel);
+        }
+
+        /**
+         * Same as PhpElementsUtil.isEqualClassName: without leading "\"
+         */
+        @NotNull
+        private static String getClassName(@NotNull PhpClass phpClass) {
+            return normalizeClassName(phpClass.getPresentableFQN());
+        }
+
+        @NotNull
+        private static String normalizeClassName(@Nullable String className) {
+            if(className == null) {
+                return "";
+            }
+
+            return className.startsWith("\\") ? className.substring(1) : className;
+        }
+
+        /**
+         * Fast path only; reparse of a whole php file or its removal is also a php structure change,
+         * other invalid psi is checked on the models of a lookup
+         */
+        private boolean isUpToDate(@Nullable EntityNamesServiceParser entityNamesServiceParser, @Nullable DocumentNamespacesParser documentNamespacesParser, long phpModificationCount, long containerModificationCount) {
+            return this.entityNamesServiceParser == entityNamesServiceParser
+                && this.documentNamespacesParser == documentNamespacesParser
+                && this.phpModificationCount == phpModificationCount
+                && this.containerModificationCount == containerModificationCount;
+        }
+
+        @NotNull
+        private List<DoctrineModel> getModels() {
+            return models;
+        }
+
+        @NotNull
+        private Collection<DoctrineModel> getModels(@NotNull String className) {
+            List<DoctrineModel> models = this.classNames.get(normalizeClassName(className));
+            return models != null ? Collections.unmodifiableList(models) : Collections.<DoctrineModel>emptyList();
+        }
+    }
+
+    /**
+     * Immutable bundle alias namespaces of all managers with the state they were build on;
+     * compiled parsers are replaced on container change, so their identity is our stamp
+     */
+    private static class ShortcutNamespaces {
+
+        @Nullable
+        private final EntityNamesServiceParser entityNamesServiceParser;
+
+        @Nullable
+        private final DocumentNamespacesParser documentNamespacesParser;
+
+        private final long modificationCount;
+
+        @NotNull
+        private final Map<String, String> entities;
+
+        @NotNull
+        private final Map<String, String> weakEntities;
+
+        @NotNull
+        private final Map<String, String> documents;
+
+        @NotNull
+        private final Map<String, String> weakDocuments;
+
+        private ShortcutNamespaces(@Nullable EntityNamesServiceParser entityNamesServiceParser, @Nullable DocumentNamespacesParser documentNamespacesParser, long modificationCount,
+                                   @NotNull Map<String, String> entities, @NotNull Map<String, String> weakEntities,
+                                   @NotNull Map<String, String> documents, @NotNull Map<String, String> weakDocuments) {
+
+            this.entityNamesServiceParser = entityNamesServiceParser;
+            this.documentNamespacesParser = documentNamespacesParser;
+            this.modificationCount = modificationCount;
+
+            this.entities = merge(entities, weakEntities);
+            this.weakEntities = Collections.unmodifiableMap(new HashMap<String, String>(weakEntities));
+            this.documents = merge(documents, weakDocuments);
+            this.weakDocuments = Collections.unmodifiableMap(new HashMap<String, String>(weakDocuments));
+        }
+
+        @NotNull
+        private static Map<String, String> merge(@NotNull Map<String, String> namespaces, @NotNull Map<String, String> weakNamespaces) {
+            Map<String, String> map = new HashMap<String, String>(weakNamespaces);
+            map.putAll(namespaces);
+            return Collections.unmodifiableMap(map);
+        }
+
+        private boolean isUpToDate(@Nullable EntityNamesServiceParser entityNamesServiceParser, @Nullable DocumentNamespacesParser documentNamespacesParser, long modificationCount) {
+            return this.entityNamesServiceParser == entityNamesServiceParser
+                && this.documentNamespacesParser == documentNamespacesParser
+                && this.modificationCount == modificationCount;
+        }
+
+        /**
+         * mongodb and couchdb share the document namespaces
+         */
+        @NotNull
+        private Map<String, String> getNamespaces(@NotNull DoctrineTypes.Manager manager) {
+            return manager == DoctrineTypes.Manager.ORM ? entities : documents;
+        }
+
+        @NotNull
+        private Map<String, String> getWeakNamespaces(@NotNull DoctrineTypes.Manager manager) {
+            return manager == DoctrineTypes.Manager.ORM ? weakEntities : weakDocuments;
+        }
+    }
+
 }
@@ -92,7 +92,7 @@ public class EntityReference extends PsiPolyVariantReferenceBase<PsiElement> {
             attachRepositoryNames(project, results, entityNameMap, DoctrineTypes.Manager.ORM, useClassNameAsLookupString, false);
 
             // add bundle entity namespace
-            attachRepositoryNames(project, results, EntityHelper.getWeakBundleNamespaces(project, entityNameMap, "Entity"), DoctrineTypes.Manager.ORM, useClassNameAsLookupString, true);
+            attachRepositoryNames(project, results, EntityHelper.getWeakShortcutNamespaces(project, DoctrineTypes.Manager.ORM), DoctrineTypes.Manager.ORM, useClassNameAsLookupString, true);
         }
 
         if(managerList.contains(DoctrineTypes.Manager.MONGO_DB) || managerList.contains(DoctrineTypes.Manager.COUCH_DB)) {
@@ -104,7 +104,7 @@ public class EntityReference extends PsiPolyVariantReferenceBase<PsiElement> {
             attachRepositoryNames(project, results, documentNameMap, DoctrineTypes.Manager.MONGO_DB, useClassNameAsLookupString, false);
 
             // add bundle document namespace
-            attachRepositoryNames(project, results, EntityHelper.getWeakBundleNamespaces(project, documentNameMap, "Document"), DoctrineTypes.Manager.MONGO_DB, useClassNameAsLookupString, true);
+            attachRepositoryNames(project, results, EntityHelper.getWeakShortcutNamespaces(project, DoctrineTypes.Manager.MONGO_DB), DoctrineTypes.Manager.MONGO_DB, useClassNameAsLookupString, true);
         }
 
         // add custom doctrine classes
@@ -15,6 +15,7 @@ import com.jetbrains.php.lang.psi.resolve.types.PhpTypeProvider2;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpTypeProviderUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.PhpTypeCache;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
@@ -95,7 +96,28 @@ public class ObjectRepositoryResultTypeProvider implements PhpTypeProvider2 {
     }
 
     @Override
-    public Collection<? extends PhpNamedElement> getBySignature(String expression, Project project) {
+    public Collection<? extends PhpNamedElement> getBySignature(final String expression, final Project project) {
+
+        // "findAll" and "findBy" attach the entity type to the method itself, this must happen on every call
+        int endIndex = expression.lastIndexOf(TRIM_KEY);
+        if(endIndex != -1) {
+            String originalSignature = expression.substring(0, endIndex);
+            if(originalSignature.endsWith(".findAll") || originalSignature.endsWith(".findBy")) {
+                return resolveBySignature(expression, project);
+            }
+        }
+
+        return PhpTypeCache.getInstance(project).getBySignature(getKey(), expression, new PhpTypeCache.SignatureResolver() {
+            @Nullable
+            @Override
+            public Collection<? extends PhpNamedElement> resolve() {
+                return resolveBySignature(expression, project);
+            }
+        });
+    }
+
+    @Nullable
+    private Collection<? extends PhpNamedElement> resolveBySignature(String expression, Project project) {
 
         // get back our original call
         int endIndex = expression.lastIndexOf(TRIM_KEY);
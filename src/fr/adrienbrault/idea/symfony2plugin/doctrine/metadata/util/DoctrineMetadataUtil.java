@@ -24,6 +24,7 @@ import fr.adrienbrault.idea.symfony2plugin.doctrine.metadata.driver.*;
 import fr.adrienbrault.idea.symfony2plugin.doctrine.metadata.lookup.DoctrineRepositoryLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.DoctrineMetadataFileStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.DoctrineTableStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import org.apache.commons.lang.StringUtils;
@@ -44,6 +45,7 @@ import java.util.regex.Pattern;
 public class DoctrineMetadataUtil {
 
     private static final Key<CachedValue<Set<String>>> CLASS_KEYS = new Key<CachedValue<Set<String>>>("CLASS_KEYS");
+    private static final Key<CachedValue<Set<String>>> TABLE_KEYS = new Key<CachedValue<Set<String>>>("TABLE_KEYS");
 
     private static DoctrineMappingDriverInterface[] MAPPING_DRIVERS = new DoctrineMappingDriverInterface[] {
         new DoctrineXmlMappingDriver(),
@@ -166,51 +168,48 @@ public class DoctrineMetadataUtil {
         return virtualFiles;
     }
 
+    /**
+     * All database table names of metadata; direct index lookup, no mapping driver is called
+     */
+    @NotNull
+    public static Set<String> getTableNames(@NotNull Project project) {
+        return FileIndexCaches.getIndexKeysCache(project, TABLE_KEYS, DoctrineTableStubIndex.KEY);
+    }
+
     @NotNull
     public static Collection<Pair<String, PsiElement>> getTables(@NotNull Project project) {
 
         Collection<Pair<String, PsiElement>> pair = new ArrayList<Pair<String, PsiElement>>();
 
-        for (String key : FileIndexCaches.getIndexKeysCache(project, CLASS_KEYS, DoctrineMetadataFileStubIndex.KEY)) {
-            for (VirtualFile virtualFile : FileBasedIndex.getInstance().getContainingFiles(DoctrineMetadataFileStubIndex.KEY, key, GlobalSearchScope.allScope(project))) {
+        for (String table : getTableNames(project)) {
+            for (VirtualFile virtualFile : FileBasedIndex.getInstance().getContainingFiles(DoctrineTableStubIndex.KEY, table, GlobalSearchScope.allScope(project))) {
                 PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
                 if(psiFile == null) {
                     continue;
                 }
 
-                DoctrineMappingDriverArguments arguments = new DoctrineMappingDriverArguments(project, psiFile, key);
-
-                for (DoctrineMappingDriverInterface mappingDriver : MAPPING_DRIVERS) {
-                    DoctrineMetadataModel metadata = mappingDriver.getMetadata(arguments);
-                    if(metadata == null) {
-                        continue;
-                    }
-
-                    String table = metadata.getTable();
-                    if(table == null) {
-                        continue;
-                    }
-
-                    // @TODO: add target
-                    pair.add(new Pair<String, PsiElement>(table, psiFile));
-                }
+                // @TODO: add target
+                pair.add(new Pair<String, PsiElement>(table, psiFile));
             }
         }
 
         return pair;
     }
 
+    /**
+     * Mapping drivers are only called for files which define the table inside index
+     */
     @Nullable
     public static DoctrineMetadataModel getMetadataByTable(@NotNull Project project, @NotNull String tableName) {
 
-        for (String key : FileIndexCaches.getIndexKeysCache(project, CLASS_KEYS, DoctrineMetadataFileStubIndex.KEY)) {
-            for (VirtualFile virtualFile : FileBasedIndex.getInstance().getContainingFiles(DoctrineMetadataFileStubIndex.KEY, key, GlobalSearchScope.allScope(project))) {
-                PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
-                if(psiFile == null) {
-                    continue;
-                }
+        for (VirtualFile virtualFile : FileBasedIndex.getInstance().getContainingFiles(DoctrineTableStubIndex.KEY, tableName, GlobalSearchScope.allScope(project))) {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
+            if(psiFile == null) {
+                continue;
+            }
 
-                DoctrineMappingDriverArguments arguments = new DoctrineMappingDriverArguments(project, psiFile, key);
+            for (String className : FileBasedIndex.getInstance().getValues(DoctrineTableStubIndex.KEY, tableName, GlobalSearchScope.fileScope(psiFile))) {
+                DoctrineMappingDriverArguments arguments = new DoctrineMappingDriverArguments(project, psiFile, className);
 
                 for (DoctrineMappingDriverInterface mappingDriver : MAPPING_DRIVERS) {
                     DoctrineMetadataModel metadata = mappingDriver.getMetadata(arguments);
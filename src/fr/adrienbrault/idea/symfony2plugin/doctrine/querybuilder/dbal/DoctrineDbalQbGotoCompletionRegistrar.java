@@ -223,8 +223,8 @@ public class DoctrineDbalQbGotoCompletionRegistrar implements GotoCompletionRegi
         public Collection<LookupElement> getLookupElements() {
             Collection<LookupElement> elements = new ArrayList<LookupElement>();
 
-            for (Pair<String, PsiElement> pair : DoctrineMetadataUtil.getTables(getProject())) {
-                elements.add(LookupElementBuilder.create(pair.getFirst()).withIcon(Symfony2Icons.DOCTRINE));
+            for (String table : DoctrineMetadataUtil.getTableNames(getProject())) {
+                elements.add(LookupElementBuilder.create(table).withIcon(Symfony2Icons.DOCTRINE));
             }
 
             return elements;
@@ -1,41 +1,94 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler;
 
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerPayload;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequest;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
 
+/**
+ * Reader for the profiler "index.csv".
+ *
+ * The file is only appended by Symfony, so we only scan the bytes after the last known offset.
+ * Per line we keep its offset and the hash; ProfilerRequests are only decoded for the rows someone asks for.
+ * Files are only open during a read, so Symfony can still delete the file on "cache:clear".
+ */
 public class ProfilerIndex {
 
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final int BLOCK_SIZE = 65536;
+
+    private static final int PAYLOAD_CACHE_SIZE = 50;
+
     private File file;
 
+    /**
+     * first byte after the last complete line we know
+     */
+    private long offset = 0;
+
+    private int size = 0;
+    private long[] rowOffsets = new long[128];
+    private int[] rowLengths = new int[128];
+
+    /**
+     * hash => row, filled for the first "hashSize" rows
+     */
+    private final Map<String, Integer> hashRows = new HashMap<String, Integer>();
+    private int hashSize = 0;
+
+    /**
+     * to find a replaced file with at least our size
+     */
+    @Nullable
+    private String firstRow;
+
+    /**
+     * hash => payload; profiles are never changed after written, so only the size is limited
+     */
+    private final Map<String, ProfilerPayload> payloads = new LinkedHashMap<String, ProfilerPayload>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProfilerPayload> eldest) {
+            return size() > PAYLOAD_CACHE_SIZE;
+        }
+    };
+
     public ProfilerIndex(File file) {
         this.file = file;
     }
 
-    public ArrayList<ProfilerRequest> getRequests() {
-        ArrayList<ProfilerRequest> list = new ArrayList<ProfilerRequest>();
+    /**
+     * All requests in file order; a file deleted after our scan, eg on "cache:clear", gives less or no requests
+     */
+    @NotNull
+    public synchronized List<ProfilerRequest> getRequests() {
+        this.update();
+        return this.readRows(this.rowOffsets, this.rowLengths, 0, this.size);
+    }
 
-        String trennzeichen = ",";
+    /**
+     * Last requests in reverse order, so newest first
+     */
+    @NotNull
+    public synchronized List<ProfilerRequest> getLatestRequests(int limit) {
+        this.update();
 
-        try {
-            BufferedReader in = new BufferedReader(new FileReader(this.file));
-            String readString;
-            while ((readString = in.readLine()) != null) {
-                list.add(new ProfilerRequest(readString.split(trennzeichen), this));
-            }
+        int start = Math.max(0, this.size - limit);
 
-            in.close();
-        } catch (IOException ignored) {
+        List<ProfilerRequest> latest = this.readRows(this.rowOffsets, this.rowLengths, start, this.size);
+        Collections.reverse(latest);
 
-        }
-
-
-        return list;
+        return latest;
     }
 
     public String getPath(ProfilerRequest profilerRequest) {
@@ -59,14 +112,47 @@ public class ProfilerIndex {
     }
 
     @Nullable
-    public ProfilerRequest getRequestOnHash(String hash) {
-        for(ProfilerRequest profilerRequest :this.getRequests()) {
-            if(profilerRequest.getHash().equals(hash)) {
-                return profilerRequest;
+    public synchronized ProfilerRequest getRequestOnHash(String hash) {
+        this.update();
+        this.updateHashes();
+
+        Integer row = this.hashRows.get(hash);
+        if(row == null) {
+            return null;
+        }
+
+        List<ProfilerRequest> requests = this.readRows(new long[] {this.rowOffsets[row]}, new int[] {this.rowLengths[row]}, 0, 1);
+        return requests.size() > 0 ? requests.get(0) : null;
+    }
+
+    /**
+     * Collector values of a request, scanned once and cached
+     */
+    @NotNull
+    public ProfilerPayload getPayload(@NotNull ProfilerRequest profilerRequest) {
+
+        String hash = profilerRequest.getHash();
+
+        synchronized (this.payloads) {
+            ProfilerPayload payload = this.payloads.get(hash);
+            if(payload != null) {
+                return payload;
             }
         }
 
-        return null;
+        // dont block other requests while scanning
+        File file = this.getFile(profilerRequest);
+        if(file == null) {
+            return ProfilerPayload.EMPTY;
+        }
+
+        ProfilerPayload payload = ProfilerPayloadScanner.scan(file);
+
+        synchronized (this.payloads) {
+            this.payloads.put(hash, payload);
+        }
+
+        return payload;
     }
 
     @Nullable
@@ -92,4 +178,230 @@ public class ProfilerIndex {
         return content.toString();
     }
 
+    /**
+     * Scan bytes appended since last call; a file which is smaller or was replaced is read again from start
+     */
+    private void update() {
+
+        if(!this.file.exists()) {
+            this.reset();
+            return;
+        }
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+
+                long fileSize = channel.size();
+                if(fileSize < this.offset || !this.isSameFile(channel)) {
+                    this.reset();
+                }
+
+                if(fileSize == this.offset) {
+                    return;
+                }
+
+                // scan in blocks into a heap buffer; no mapping is left behind which would lock the file on windows
+                ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+                byte[] bytes = block.array();
+
+                long position = this.offset;
+                long lineStart = this.offset;
+                byte previous = 0;
+
+                while (position < fileSize) {
+                    block.clear();
+                    int blockLength = channel.read(block, position);
+                    if(blockLength <= 0) {
+                        break;
+                    }
+
+                    for (int j = 0; j < blockLength; j++) {
+                        byte b = bytes[j];
+                        long i = position + j;
+                        if(b == '\n') {
+                            long lineEnd = i > lineStart && previous == '\r' ? i - 1 : i;
+                            if(lineEnd > lineStart) {
+                                this.addRow(lineStart, (int) (lineEnd - lineStart));
+                            }
+
+                            lineStart = i + 1;
+                        }
+
+                        previous = b;
+                    }
+
+                    position += blockLength;
+                }
+
+                // incomplete last line is visited on next run
+                this.offset = lineStart;
+
+                if(this.firstRow == null && this.size > 0) {
+                    List<String> lines = this.readLines(this.rowOffsets, this.rowLengths, 0, 1);
+                    if(lines.size() > 0) {
+                        this.firstRow = lines.get(0);
+                    }
+                }
+
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void reset() {
+        this.offset = 0;
+        this.size = 0;
+        this.hashSize = 0;
+        this.hashRows.clear();
+        this.firstRow = null;
+    }
+
+    private void addRow(long rowOffset, int rowLength) {
+
+        if(this.size == this.rowOffsets.length) {
+            this.rowOffsets = Arrays.copyOf(this.rowOffsets, this.size * 2);
+            this.rowLengths = Arrays.copyOf(this.rowLengths, this.size * 2);
+        }
+
+        this.rowOffsets[this.size] = rowOffset;
+        this.rowLengths[this.size] = rowLength;
+
+        this.size++;
+    }
+
+    /**
+     * Hash lookup is only needed for navigation, so rows are added here and not on scan
+     */
+    private void updateHashes() {
+
+        if(this.hashSize >= this.size) {
+            return;
+        }
+
+        ByteBuffer buffer = this.readBytes(this.rowOffsets, this.rowLengths, this.hashSize, this.size);
+        if(buffer == null) {
+            return;
+        }
+
+        byte[] bytes = buffer.array();
+        long firstOffset = this.rowOffsets[this.hashSize];
+
+        // hash is the first column; decode only this one
+        while (this.hashSize < this.size) {
+            int rowStart = (int) (this.rowOffsets[this.hashSize] - firstOffset);
+            int rowEnd = rowStart + this.rowLengths[this.hashSize];
+
+            int hashEnd = rowStart;
+            while (hashEnd < rowEnd && bytes[hashEnd] != ',') {
+                hashEnd++;
+            }
+
+            this.hashRows.put(new String(bytes, rowStart, hashEnd - rowStart, CHARSET), this.hashSize++);
+        }
+    }
+
+    /**
+     * Decode given rows; they are next to each other, so we need only one read
+     */
+    @NotNull
+    private List<ProfilerRequest> readRows(@NotNull long[] offsets, @NotNull int[] lengths, int start, int end) {
+
+        List<ProfilerRequest> requests = new ArrayList<ProfilerRequest>();
+        for (String line : this.readLines(offsets, lengths, start, end)) {
+            requests.add(new ProfilerRequest(line.split(","), this));
+        }
+
+        return requests;
+    }
+
+    @NotNull
+    private List<String> readLines(@NotNull long[] offsets, @NotNull int[] lengths, int start, int end) {
+
+        List<String> lines = new ArrayList<String>();
+
+        ByteBuffer buffer = this.readBytes(offsets, lengths, start, end);
+        if(buffer == null) {
+            return lines;
+        }
+
+        for (int i = start; i < end; i++) {
+            lines.add(decode(buffer, (int) (offsets[i] - offsets[start]), lengths[i]));
+        }
+
+        return lines;
+    }
+
+    /**
+     * Bytes of the given neighbouring rows with one read
+     */
+    @Nullable
+    private ByteBuffer readBytes(@NotNull long[] offsets, @NotNull int[] lengths, int start, int end) {
+
+        if(start >= end) {
+            return null;
+        }
+
+        long firstOffset = offsets[start];
+        int length = (int) (offsets[end - 1] + lengths[end - 1] - firstOffset);
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                while (buffer.hasRemaining()) {
+                    if(channel.read(buffer, firstOffset + buffer.position()) < 0) {
+                        return null;
+                    }
+                }
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException ignored) {
+            return null;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Replaced file with at least our size; last line end and first row must be still there
+     */
+    private boolean isSameFile(@NotNull FileChannel channel) throws IOException {
+
+        if(this.size == 0 || this.firstRow == null) {
+            return true;
+        }
+
+        ByteBuffer lineEnd = ByteBuffer.allocate(1);
+        if(channel.read(lineEnd, this.offset - 1) != 1 || lineEnd.get(0) != '\n') {
+            return false;
+        }
+
+        ByteBuffer firstRow = ByteBuffer.allocate(this.rowLengths[0]);
+        while (firstRow.hasRemaining()) {
+            if(channel.read(firstRow, this.rowOffsets[0] + firstRow.position()) < 0) {
+                return false;
+            }
+        }
+
+        return this.firstRow.equals(decode(firstRow, 0, this.rowLengths[0]));
+    }
+
+    @NotNull
+    private static String decode(@NotNull ByteBuffer buffer, int start, int length) {
+        byte[] bytes = new byte[length];
+
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start);
+        duplicate.get(bytes);
+
+        return new String(bytes, CHARSET);
+    }
+
 }
@@ -0,0 +1,282 @@
+package fr.adrienbrault.idea.symfony2plugin.profiler;
+
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.MailMessage;
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerPayload;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Single pass over a php serialized profile, collecting all values our collectors need.
+ *
+ * Collectors are serialized again inside the profile, so we dont unserialize the structure;
+ * we watch the stream for known markers and read the serialized value behind them.
+ * Content is read as "ISO-8859-1", so one char is one byte as php counts string lengths in bytes.
+ */
+public class ProfilerPayloadScanner {
+
+    private static final Charset BYTES = Charset.forName("ISO-8859-1");
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * "template.twig (foo.html.twig)" of the timeline
+     */
+    private static final Pattern TEMPLATE_NAME = Pattern.compile("[^\"]*\\.html\\.\\w{2,4}");
+
+    private static final int MAX_TEMPLATE_LENGTH = 1024;
+
+    @Nullable
+    private String controller;
+
+    @Nullable
+    private String route;
+
+    @Nullable
+    private String statusCode;
+
+    @Nullable
+    private String template;
+
+    @NotNull
+    private final List<MailMessage> messages = new ArrayList<MailMessage>();
+
+    private boolean hasMailboxHeader = false;
+
+    private final Marker controllerMarker = new Marker("_controller\";s:");
+    private final Marker routeMarker = new Marker("_route\";s:");
+    private final Marker statusCodeMarker = new Marker("status_code\";i:");
+    private final Marker templateMarker = new Marker("\"template.twig (");
+    private final Marker messageCollectorMarker = new Marker("MessageDataCollector\":");
+    private final Marker mailBodyMarker = new Marker("\"\u0000Swift_Mime_SimpleMimeEntity\u0000_body\";s:");
+    private final Marker mailboxHeaderMarker = new Marker("Swift_Mime_Headers_MailboxHeader");
+
+    private ProfilerPayloadScanner() {
+    }
+
+    @NotNull
+    public static ProfilerPayload scan(@NotNull File file) {
+        try {
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                return scan(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            return ProfilerPayload.EMPTY;
+        }
+    }
+
+    @NotNull
+    public static ProfilerPayload scan(@NotNull InputStream inputStream) throws IOException {
+        ProfilerPayloadScanner scanner = new ProfilerPayloadScanner();
+        scanner.visit(new Input(new BufferedReader(new InputStreamReader(inputStream, BYTES))));
+        return new ProfilerPayload(scanner.controller, scanner.route, scanner.statusCode, scanner.template, scanner.messages, scanner.hasMailboxHeader);
+    }
+
+    private void visit(@NotNull Input input) throws IOException {
+
+        // end of the serialized message collector; mail bodies are only valid inside
+        long messageCollectorEnd = -1;
+
+        int c;
+        while ((c = input.read()) >= 0) {
+            char ch = (char) c;
+
+            if(this.controller == null && this.controllerMarker.feed(ch)) {
+                this.controller = readString(input);
+            }
+
+            if(this.route == null && this.routeMarker.feed(ch)) {
+                this.route = readString(input);
+            }
+
+            if(this.statusCode == null && this.statusCodeMarker.feed(ch)) {
+                long code = readNumber(input, ';');
+                if(code >= 0) {
+                    this.statusCode = Long.toString(code);
+                }
+            }
+
+            if(this.template == null && this.templateMarker.feed(ch)) {
+                this.template = readTemplate(input);
+            }
+
+            if(!this.hasMailboxHeader && this.mailboxHeaderMarker.feed(ch)) {
+                this.hasMailboxHeader = true;
+            }
+
+            if(messageCollectorEnd < 0 && this.messageCollectorMarker.feed(ch)) {
+                long length = readNumber(input, ':');
+                if(length >= 0) {
+                    messageCollectorEnd = input.getPosition() + length;
+                }
+            }
+
+            if(this.mailBodyMarker.feed(ch) && input.getPosition() <= messageCollectorEnd) {
+                String body = readString(input);
+                if(body != null) {
+                    this.messages.add(new MailMessage(body, "aa", "aa"));
+                }
+            }
+        }
+    }
+
+    /**
+     * "12:"foo"" after "s:"; null on invalid content
+     */
+    @Nullable
+    private static String readString(@NotNull Input input) throws IOException {
+
+        long length = readNumber(input, ':');
+        if(length < 0 || length > Integer.MAX_VALUE || input.read() != '"') {
+            return null;
+        }
+
+        StringBuilder value = new StringBuilder((int) Math.min(length, 8192));
+        for (long i = 0; i < length; i++) {
+            int c = input.read();
+            if(c < 0) {
+                return null;
+            }
+
+            value.append((char) c);
+        }
+
+        // bytes back to the real encoding
+        return new String(value.toString().getBytes(BYTES), UTF8);
+    }
+
+    /**
+     * Digits until terminator, -1 on any other char
+     */
+    private static long readNumber(@NotNull Input input, char terminator) throws IOException {
+
+        long number = 0;
+        int digits = 0;
+
+        int c;
+        while ((c = input.read()) >= 0) {
+            if(c == terminator) {
+                return digits > 0 ? number : -1;
+            }
+
+            if(c < '0' || c > '9' || digits > 18) {
+                return -1;
+            }
+
+            number = number * 10 + (c - '0');
+            digits++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * "foo.html.twig)"" after "template.twig ("
+     */
+    @Nullable
+    private static String readTemplate(@NotNull Input input) throws IOException {
+
+        StringBuilder value = new StringBuilder();
+
+        int c;
+        while ((c = input.read()) >= 0 && value.length() < MAX_TEMPLATE_LENGTH) {
+            if(c == '"') {
+                if(value.length() < 2 || value.charAt(value.length() - 1) != ')') {
+                    return null;
+                }
+
+                String name = value.substring(0, value.length() - 1);
+                return TEMPLATE_NAME.matcher(name).matches() ? new String(name.getBytes(BYTES), UTF8) : null;
+            }
+
+            value.append((char) c);
+        }
+
+        return null;
+    }
+
+    private static class Input {
+
+        @NotNull
+        private final Reader reader;
+
+        private long position = 0;
+
+        private Input(@NotNull Reader reader) {
+            this.reader = reader;
+        }
+
+        private int read() throws IOException {
+            int c = this.reader.read();
+            if(c >= 0) {
+                this.position++;
+            }
+
+            return c;
+        }
+
+        private long getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * Streaming match of a fixed string; knuth-morris-pratt so overlapping prefixes are found
+     */
+    private static class Marker {
+
+        @NotNull
+        private final char[] chars;
+
+        @NotNull
+        private final int[] failure;
+
+        private int state = 0;
+
+        private Marker(@NotNull String marker) {
+            this.chars = marker.toCharArray();
+            this.failure = new int[this.chars.length];
+
+            for (int i = 1, k = 0; i < this.chars.length; i++) {
+                while (k > 0 && this.chars[i] != this.chars[k]) {
+                    k = this.failure[k - 1];
+                }
+
+                if(this.chars[i] == this.chars[k]) {
+                    k++;
+                }
+
+                this.failure[i] = k;
+            }
+        }
+
+        /**
+         * @return true if given char completes the marker
+         */
+        private boolean feed(char c) {
+
+            while (this.state > 0 && this.chars[this.state] != c) {
+                this.state = this.failure[this.state - 1];
+            }
+
+            if(this.chars[this.state] == c) {
+                this.state++;
+            }
+
+            if(this.state == this.chars.length) {
+                this.state = 0;
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+}
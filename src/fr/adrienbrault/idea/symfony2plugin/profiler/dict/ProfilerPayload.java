@@ -0,0 +1,76 @@
+package fr.adrienbrault.idea.symfony2plugin.profiler.dict;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Values of a serialized profile collected by ProfilerPayloadScanner; collectors only read from here
+ */
+public class ProfilerPayload {
+
+    public static final ProfilerPayload EMPTY = new ProfilerPayload(null, null, null, null, Collections.<MailMessage>emptyList(), false);
+
+    @Nullable
+    private final String controller;
+
+    @Nullable
+    private final String route;
+
+    @Nullable
+    private final String statusCode;
+
+    @Nullable
+    private final String template;
+
+    @NotNull
+    private final List<MailMessage> messages;
+
+    private final boolean hasMailboxHeader;
+
+    public ProfilerPayload(@Nullable String controller, @Nullable String route, @Nullable String statusCode, @Nullable String template, @NotNull Collection<MailMessage> messages, boolean hasMailboxHeader) {
+        this.controller = controller;
+        this.route = route;
+        this.statusCode = statusCode;
+        this.template = template;
+        this.messages = Collections.unmodifiableList(new ArrayList<MailMessage>(messages));
+        this.hasMailboxHeader = hasMailboxHeader;
+    }
+
+    @Nullable
+    public String getController() {
+        return controller;
+    }
+
+    @Nullable
+    public String getRoute() {
+        return route;
+    }
+
+    @Nullable
+    public String getStatusCode() {
+        return statusCode;
+    }
+
+    @Nullable
+    public String getTemplate() {
+        return template;
+    }
+
+    @NotNull
+    public List<MailMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Request has send mails; also true for multiple mailers where we cant extract the messages
+     */
+    public boolean hasMailboxHeader() {
+        return hasMailboxHeader;
+    }
+
+}
@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler.dict;
 
 import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerIndex;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
@@ -41,6 +42,11 @@ public class ProfilerRequest {
         return this.profilerIndex.getContent(this);
     }
 
+    @NotNull
+    public ProfilerPayload getPayload() {
+        return this.profilerIndex.getPayload(this);
+    }
+
     public <T extends CollectorInterface> T getCollector(Class<T> classFactory) {
         T factory = null;
         try {
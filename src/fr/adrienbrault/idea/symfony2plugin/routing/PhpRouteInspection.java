@@ -3,26 +3,16 @@ package fr.adrienbrault.idea.symfony2plugin.routing;
 import com.intellij.codeInspection.LocalInspectionTool;
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.util.indexing.FileBasedIndex;
-import com.jetbrains.php.lang.PhpFileType;
 import com.jetbrains.php.lang.psi.elements.StringLiteralExpression;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.AnnotationRoutesStubIndex;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.MethodMatcher;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.yaml.YAMLFileType;
-
-import java.util.Collection;
-import java.util.Map;
 
 public class PhpRouteInspection extends LocalInspectionTool {
 
@@ -69,25 +59,16 @@ public class PhpRouteInspection extends LocalInspectionTool {
 
     public static void annotateRouteName(PsiElement target, @NotNull ProblemsHolder holder, final String routeName) {
 
-        Map<String, Route> routes = RouteHelper.getCompiledRoutes(target.getProject());
-        if(routes.containsKey(routeName))  {
+        RouteRegistry routeRegistry = RouteHelper.getRouteRegistry(target.getProject());
+        if(!routeRegistry.hasRoute(routeName)) {
+            holder.registerProblem(target, "Missing Route", ProblemHighlightType.GENERIC_ERROR_OR_WARNING);
             return;
         }
 
-        Collection fileCollection = FileBasedIndex.getInstance().getContainingFiles(RoutesStubIndex.KEY, routeName,  GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(target.getProject()), YAMLFileType.YML, XmlFileType.INSTANCE));
-        if(fileCollection.size() > 0) {
+        if(routeRegistry.isWeakRoute(routeName)) {
             holder.registerProblem(target, "Weak Route", ProblemHighlightType.WEAK_WARNING);
-            return;
         }
 
-        fileCollection = FileBasedIndex.getInstance().getContainingFiles(AnnotationRoutesStubIndex.KEY, routeName, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(target.getProject()), PhpFileType.INSTANCE));
-        if(fileCollection.size() > 0) {
-            holder.registerProblem(target, "Weak Route", ProblemHighlightType.WEAK_WARNING);
-            return;
-        }
-
-        holder.registerProblem(target, "Missing Route", ProblemHighlightType.GENERIC_ERROR_OR_WARNING);
-
     }
 
 }
@@ -5,6 +5,7 @@ import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -19,8 +20,6 @@ import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.Processor;
-import com.intellij.util.containers.ContainerUtil;
-import com.intellij.util.indexing.FileBasedIndex;
 import com.intellij.util.indexing.FileBasedIndexImpl;
 import com.jetbrains.php.lang.PhpFileType;
 import com.jetbrains.php.lang.documentation.phpdoc.parser.PhpDocElementTypes;
@@ -33,9 +32,9 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ControllerClassOnShortcutReturn;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ServiceRouteContainer;
-import fr.adrienbrault.idea.symfony2plugin.routing.dict.RouteInterface;
 import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutesContainer;
-import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.AnnotationRoutesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
@@ -59,7 +58,7 @@ import java.util.*;
 
 public class RouteHelper {
 
-    private static final Key<CachedValue<Map<String, Route>>> ROUTE_CACHE = new Key<CachedValue<Map<String, Route>>>("SYMFONY:ROUTE_CACHE");
+    private static final Key<CachedValue<RouteRegistry>> ROUTE_CACHE = new Key<CachedValue<RouteRegistry>>("SYMFONY:ROUTE_CACHE");
 
     public static Map<Project, Map<String, RoutesContainer>> COMPILED_CACHE = new HashMap<Project, Map<String, RoutesContainer>>();
 
@@ -80,21 +79,9 @@ public class RouteHelper {
 
     @Nullable
     public static Route getRoute(Project project, String routeName) {
-
-        Map<String, Route> compiledRoutes = RouteHelper.getCompiledRoutes(project);
-        if(!compiledRoutes.containsKey(routeName)) {
-
-            // @TODO: provide multiple ones
-            Collection<VirtualFile> foo = FileBasedIndex.getInstance().getContainingFiles(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project));
-            for(String[] str: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.filesScope(project, foo))) {
-                return new Route(routeName, str);
-            }
-
-            return null;
-        }
-
-        return compiledRoutes.get(routeName);
+        return getRouteRegistry(project).getRoute(routeName);
     }
+
     public static PsiElement[] getRouteParameterPsiElements(Project project, String routeName, String parameterName) {
 
         List<PsiElement> results = new ArrayList<PsiElement>();
@@ -848,46 +835,12 @@ public class RouteHelper {
         return url.length() == 0 ? null : url;
     }
 
+    /**
+     * Shared lookup elements of all routes; see RouteRegistry
+     */
+    @NotNull
     public static List<LookupElement> getRoutesLookupElements(final @NotNull Project project) {
-
-        Map<String, Route> routes = RouteHelper.getCompiledRoutes(project);
-
-        final List<LookupElement> lookupElements = new ArrayList<LookupElement>();
-
-        final Set<String> uniqueSet = new HashSet<String>();
-        for (Route route : routes.values()) {
-            lookupElements.add(new RouteLookupElement(route));
-            uniqueSet.add(route.getName());
-        }
-
-        SymfonyProcessors.CollectProjectUniqueKeysStrong ymlProjectProcessor = new SymfonyProcessors.CollectProjectUniqueKeysStrong(project, RoutesStubIndex.KEY, uniqueSet);
-        FileBasedIndex.getInstance().processAllKeys(RoutesStubIndex.KEY, ymlProjectProcessor, project);
-        for(String routeName: ymlProjectProcessor.getResult()) {
-            if(uniqueSet.contains(routeName)) {
-                continue;
-            }
-            for(String[] splits: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
-                lookupElements.add(new RouteLookupElement(new Route(routeName, splits), true));
-                uniqueSet.add(routeName);
-            }
-        }
-
-        SymfonyProcessors.CollectProjectUniqueKeysStrong annotationProjectProcessor = new SymfonyProcessors.CollectProjectUniqueKeysStrong(project, AnnotationRoutesStubIndex.KEY, uniqueSet);
-        FileBasedIndex.getInstance().processAllKeys(AnnotationRoutesStubIndex.KEY, annotationProjectProcessor, project);
-        for(String routeName: annotationProjectProcessor.getResult()) {
-            if(uniqueSet.contains(routeName)) {
-                continue;
-            }
-
-            RouteInterface firstItem = ContainerUtil.getFirstItem(FileBasedIndexImpl.getInstance().getValues(AnnotationRoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project)));
-            if(firstItem != null) {
-                lookupElements.add(new RouteLookupElement(new Route(firstItem), true));
-                uniqueSet.add(routeName);
-            }
-        }
-
-        return lookupElements;
-
+        return getRouteRegistry(project).getLookupElements();
     }
 
     @NotNull
@@ -905,60 +858,66 @@ public class RouteHelper {
     }
 
     @NotNull
-    synchronized public static Map<String, Route> getAllRoutes(final @NotNull Project project) {
-
-        CachedValue<Map<String, Route>> cache = project.getUserData(ROUTE_CACHE);
-        if (cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, Route>>() {
-                @Nullable
-                @Override
-                public Result<Map<String, Route>> compute() {
-                    return Result.create(getAllRoutesProxy(project), PsiModificationTracker.MODIFICATION_COUNT);
-                }
-            }, false);
-            project.putUserData(ROUTE_CACHE, cache);
-        }
-
-        return cache.getValue();
+    public static Map<String, Route> getAllRoutes(final @NotNull Project project) {
+        return getRouteRegistry(project).getRoutes();
     }
 
+    /**
+     * Single cached instance of all routes for completion, inspections and navigation
+     */
     @NotNull
-    private static Map<String, Route> getAllRoutesProxy(@NotNull Project project) {
+    public static RouteRegistry getRouteRegistry(final @NotNull Project project) {
+
+        CachedValue<RouteRegistry> cache = project.getUserData(ROUTE_CACHE);
+        if(cache != null && cache.hasUpToDateValue()) {
+            return cache.getValue();
+        }
+
+        synchronized (ROUTE_CACHE) {
+
+            cache = project.getUserData(ROUTE_CACHE);
+            if (cache == null) {
+                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<RouteRegistry>() {
+                    @Nullable
+                    @Override
+                    public Result<RouteRegistry> compute() {
+                        return Result.create(
+                            RouteRegistry.create(project),
+                            ContainerFileModificationTracker.getInstance(project),
+                            SymfonyModificationTrackers.getRouteTracker(project),
+                            new UrlGeneratorModificationTracker(project)
+                        );
+                    }
+                }, false);
 
-        Map<String, Route> routes = new HashMap<String, Route>();
-        routes.putAll(RouteHelper.getCompiledRoutes(project));
+                project.putUserData(ROUTE_CACHE, cache);
+            }
 
-        Set<String> uniqueKeySet = new HashSet<String>(routes.keySet());
+            return cache.getValue();
+        }
+    }
 
-        SymfonyProcessors.CollectProjectUniqueKeysStrong ymlProjectProcessor = new SymfonyProcessors.CollectProjectUniqueKeysStrong(project, RoutesStubIndex.KEY, uniqueKeySet);
-        FileBasedIndex.getInstance().processAllKeys(RoutesStubIndex.KEY, ymlProjectProcessor, project);
-        for(String routeName: ymlProjectProcessor.getResult()) {
+    /**
+     * Compiled url generator is outside of our psi, so track its file stamp on our own
+     */
+    private static class UrlGeneratorModificationTracker implements ModificationTracker {
 
-            if(uniqueKeySet.contains(routeName)) {
-                continue;
-            }
+        @NotNull
+        private final Project project;
 
-            for(String[] splits: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
-                uniqueKeySet.add(routeName);
-                routes.put(routeName, new Route(routeName, splits));
-            }
+        private UrlGeneratorModificationTracker(@NotNull Project project) {
+            this.project = project;
         }
 
-        SymfonyProcessors.CollectProjectUniqueKeysStrong annotationProjectProcessor = new SymfonyProcessors.CollectProjectUniqueKeysStrong(project, AnnotationRoutesStubIndex.KEY, uniqueKeySet);
-        FileBasedIndex.getInstance().processAllKeys(AnnotationRoutesStubIndex.KEY, annotationProjectProcessor, project);
-        for(String routeName: annotationProjectProcessor.getResult()) {
-
-            if(uniqueKeySet.contains(routeName)) {
-                continue;
+        @Override
+        public long getModificationCount() {
+            String pathToUrlGenerator = Settings.getInstance(project).pathToUrlGenerator;
+            if(pathToUrlGenerator == null) {
+                return 0;
             }
 
-            RouteInterface firstItem = ContainerUtil.getFirstItem(FileBasedIndexImpl.getInstance().getValues(AnnotationRoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project)));
-            if(firstItem != null) {
-                routes.put(routeName, new Route(firstItem));
-            }
+            return 31 * new File(getPath(project, pathToUrlGenerator)).lastModified() + pathToUrlGenerator.hashCode();
         }
-
-        return routes;
     }
 
 }
@@ -64,4 +64,8 @@ public class RouteLookupElement extends LookupElement {
         return route;
     }
 
+    public boolean isWeak() {
+        return isWeak;
+    }
+
 }
@@ -0,0 +1,124 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexImpl;
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RouteInterface;
+import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.AnnotationRoutesStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * All known routes of a project: compiled ones of the url generator and the weak ones of our indexes.
+ *
+ * Instances are never changed after creation, RouteHelper.getRouteRegistry publish a new one if routes change.
+ * Lookup elements are prebuild, so completion dont need to touch any index.
+ */
+public class RouteRegistry {
+
+    @NotNull
+    private final Map<String, Route> routes;
+
+    /**
+     * Route names that are only known by index and not by compiled url generator
+     */
+    @NotNull
+    private final Set<String> weakRoutes;
+
+    @NotNull
+    private final List<LookupElement> lookupElements;
+
+    private RouteRegistry(@NotNull Map<String, Route> routes, @NotNull Set<String> weakRoutes) {
+        this.routes = Collections.unmodifiableMap(routes);
+        this.weakRoutes = Collections.unmodifiableSet(weakRoutes);
+
+        List<LookupElement> lookupElements = new ArrayList<LookupElement>();
+        for (Route route : routes.values()) {
+            lookupElements.add(new RouteLookupElement(route, weakRoutes.contains(route.getName())));
+        }
+
+        this.lookupElements = Collections.unmodifiableList(lookupElements);
+    }
+
+    @NotNull
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    @Nullable
+    public Route getRoute(@NotNull String routeName) {
+        return routes.get(routeName);
+    }
+
+    public boolean hasRoute(@NotNull String routeName) {
+        return routes.containsKey(routeName);
+    }
+
+    /**
+     * Route is not part of compiled url generator, but found inside a routing file or annotation
+     */
+    public boolean isWeakRoute(@NotNull String routeName) {
+        return weakRoutes.contains(routeName);
+    }
+
+    /**
+     * Shared instances; dont modify them, wrap them for custom insert handler
+     */
+    @NotNull
+    public List<LookupElement> getLookupElements() {
+        return lookupElements;
+    }
+
+    @NotNull
+    public static RouteRegistry create(@NotNull Project project) {
+
+        // compiled routes first, so they win over our indexes
+        Map<String, Route> routes = new LinkedHashMap<String, Route>(RouteHelper.getCompiledRoutes(project));
+        Set<String> weakRoutes = new HashSet<String>();
+
+        Set<String> uniqueKeySet = new HashSet<String>(routes.keySet());
+
+        SymfonyProcessors.CollectProjectUniqueKeysStrong ymlProjectProcessor = new SymfonyProcessors.CollectProjectUniqueKeysStrong(project, RoutesStubIndex.KEY, uniqueKeySet);
+        FileBasedIndex.getInstance().processAllKeys(RoutesStubIndex.KEY, ymlProjectProcessor, project);
+        for(String routeName: ymlProjectProcessor.getResult()) {
+
+            if(uniqueKeySet.contains(routeName)) {
+                continue;
+            }
+
+            // @TODO: provide multiple ones
+            String[] splits = ContainerUtil.getFirstItem(FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project)));
+            if(splits != null) {
+                uniqueKeySet.add(routeName);
+                weakRoutes.add(routeName);
+                routes.put(routeName, new Route(routeName, splits));
+            }
+        }
+
+        SymfonyProcessors.CollectProjectUniqueKeysStrong annotationProjectProcessor = new SymfonyProcessors.CollectProjectUniqueKeysStrong(project, AnnotationRoutesStubIndex.KEY, uniqueKeySet);
+        FileBasedIndex.getInstance().processAllKeys(AnnotationRoutesStubIndex.KEY, annotationProjectProcessor, project);
+        for(String routeName: annotationProjectProcessor.getResult()) {
+
+            if(uniqueKeySet.contains(routeName)) {
+                continue;
+            }
+
+            RouteInterface firstItem = ContainerUtil.getFirstItem(FileBasedIndexImpl.getInstance().getValues(AnnotationRoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project)));
+            if(firstItem != null) {
+                uniqueKeySet.add(routeName);
+                weakRoutes.add(routeName);
+                routes.put(routeName, new Route(firstItem));
+            }
+        }
+
+        return new RouteRegistry(routes, weakRoutes);
+    }
+
+}
@@ -9,6 +9,7 @@ import fr.adrienbrault.idea.symfony2plugin.dic.ContainerParameter;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
 import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
 import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerParameterStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
@@ -18,14 +19,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ContainerCollectionResolver {
 
     private static final Key<CachedValue<Map<String, List<ServiceInterface>>>> SERVICE_CONTAINER_INDEX = new Key<CachedValue<Map<String, List<ServiceInterface>>>>("SYMFONY_SERVICE_CONTAINER_INDEX");
     private static final Key<CachedValue<Map<String, List<String>>>> SERVICE_PARAMETER_INDEX = new Key<CachedValue<Map<String, List<String>>>>("SERVICE_PARAMETER_INDEX");
-
-    private static final Key<CachedValue<Set<String>>> SERVICE_CONTAINER_INDEX_NAMES = new Key<CachedValue<Set<String>>>("SYMFONY_SERVICE_CONTAINER_INDEX_NAMES");
-    private static final Key<CachedValue<Set<String>>> SERVICE_PARAMETER_INDEX_NAMES = new Key<CachedValue<Set<String>>>("SERVICE_PARAMETER_INDEX_NAMES");
+    private static final Key<Map<Set<Source>, ResolvedServiceSnapshot>> CONTAINER_SNAPSHOTS = new Key<Map<Set<Source>, ResolvedServiceSnapshot>>("SYMFONY_CONTAINER_SNAPSHOTS");
 
     public static enum Source {
         INDEX, COMPILER
@@ -36,14 +36,12 @@ public class ContainerCollectionResolver {
     }
 
     public static boolean hasServiceNames(Project project, String serviceName) {
-        // @TODO: we dont need a collection here; stop on first match
-        return new ServiceCollector(project, ContainerCollectionResolver.Source.COMPILER, ContainerCollectionResolver.Source.INDEX).getNames().contains(serviceName);
+        return getService(project, serviceName) != null;
     }
 
     @Nullable
     public static ContainerService getService(Project project, String serviceName) {
-        Map<String, ContainerService> services = getServices(project, Source.COMPILER, Source.INDEX);
-        return services.containsKey(serviceName) ? services.get(serviceName) : null;
+        return getSnapshot(project, Source.COMPILER, Source.INDEX).getService(serviceName);
     }
 
     public static Map<String, ContainerService> getServices(Project project) {
@@ -51,7 +49,7 @@ public class ContainerCollectionResolver {
     }
 
     public static Map<String, ContainerService> getServices(Project project, Source... collectorSources) {
-        return new ServiceCollector(project, collectorSources).getServices();
+        return getSnapshot(project, collectorSources).getServices();
     }
 
     @Nullable
@@ -61,7 +59,7 @@ public class ContainerCollectionResolver {
 
     @Nullable
     public static String resolveService(Project project, String serviceName, ContainerCollectionResolver.Source... collectorSources) {
-        return new ServiceCollector(project, collectorSources).resolve(serviceName);
+        return getSnapshot(project, collectorSources).resolve(serviceName);
     }
 
 
@@ -120,12 +118,58 @@ public class ContainerCollectionResolver {
         return new ParameterCollector(project, collectorSources).getNames();
     }
 
+    @NotNull
+    private static ResolvedServiceSnapshot getSnapshot(@NotNull Project project, @NotNull Source... sources) {
+        return getSnapshot(project, new HashSet<Source>(Arrays.asList(sources)));
+    }
+
+    /**
+     * Shared snapshot of the given sources; only rebuild if the compiled container or the container indexes changed.
+     * Building is not locked, two threads at worst build equal snapshots and the last one wins
+     */
+    @NotNull
+    private static ResolvedServiceSnapshot getSnapshot(@NotNull Project project, @NotNull Set<Source> sources) {
+
+        XmlServiceParser xmlServiceParser = null;
+        ParameterServiceParser parameterServiceParser = null;
+        if(sources.contains(Source.COMPILER)) {
+            xmlServiceParser = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class);
+            parameterServiceParser = ServiceXmlParserFactory.getInstance(project, ParameterServiceParser.class);
+        }
+
+        // stamp before collecting, so a change while building is visible on next call
+        long modificationCount = sources.contains(Source.INDEX) ? ContainerFileModificationTracker.getInstance(project).getModificationCount() : -1;
+
+        Map<Set<Source>, ResolvedServiceSnapshot> snapshots = getSnapshots(project);
+
+        ResolvedServiceSnapshot snapshot = snapshots.get(sources);
+        if(snapshot != null && snapshot.isUpToDate(xmlServiceParser, parameterServiceParser, modificationCount)) {
+            return snapshot;
+        }
+
+        snapshot = ResolvedServiceSnapshot.create(project, sources, xmlServiceParser, parameterServiceParser, modificationCount);
+        snapshots.put(snapshot.getSources(), snapshot);
+
+        return snapshot;
+    }
+
+    @NotNull
+    synchronized private static Map<Set<Source>, ResolvedServiceSnapshot> getSnapshots(@NotNull Project project) {
+
+        Map<Set<Source>, ResolvedServiceSnapshot> snapshots = project.getUserData(CONTAINER_SNAPSHOTS);
+        if(snapshots == null) {
+            snapshots = new ConcurrentHashMap<Set<Source>, ResolvedServiceSnapshot>();
+            project.putUserData(CONTAINER_SNAPSHOTS, snapshots);
+        }
+
+        return snapshots;
+    }
+
     public static class ServiceCollector {
 
         private Set<Source> sources = new HashSet<Source>();
         private Project project;
-        private ParameterCollector parameterCollector;
-        private Map<String, ContainerService> services;
+        private ResolvedServiceSnapshot snapshot;
 
         public ServiceCollector(Project project, Source... sources) {
             this(project);
@@ -138,6 +182,7 @@ public class ContainerCollectionResolver {
 
         public void addCollectorSource(Source source) {
             this.sources.add(source);
+            this.snapshot = null;
         }
 
         public Collection<ContainerService> collect() {
@@ -146,56 +191,248 @@ public class ContainerCollectionResolver {
 
         @Nullable
         public String resolve(String serviceName) {
+            return this.getSnapshot().resolve(serviceName);
+        }
+
+        public Map<String, ContainerService> getServices() {
+            return this.getSnapshot().getServices();
+        }
+
+        public Set<String> convertClassNameToServices(@NotNull String fqnClassName) {
+
+            Set<String> serviceNames = this.getSnapshot().getClassNameServices().get(normalizeClassName(fqnClassName));
+            if(serviceNames == null) {
+                return new HashSet<String>();
+            }
+
+            return new HashSet<String>(serviceNames);
+        }
+
+        /**
+         * Snapshot is fetched once, so all calls on this collector work on the same container state
+         */
+        @NotNull
+        private ResolvedServiceSnapshot getSnapshot() {
+            return (this.snapshot != null) ? this.snapshot : (this.snapshot = ContainerCollectionResolver.getSnapshot(this.project, this.sources));
+        }
+
+        private Set<String> getNames() {
+
+            Set<String> serviceNames = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+
+            if(this.sources.contains(Source.COMPILER)) {
+                serviceNames.addAll(ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap().getMap().keySet());
+            }
+
+            if(this.sources.contains(Source.INDEX)) {
+
+                serviceNames.addAll(
+                    FileIndexCaches.getSetDataCache(project, SERVICE_CONTAINER_INDEX, ServicesDefinitionStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).keySet()
+                );
+            }
+
+            return serviceNames;
+
+        }
+
+        public static ServiceCollector create(@NotNull Project project) {
+            return new ContainerCollectionResolver.ServiceCollector(
+                project,
+                ContainerCollectionResolver.Source.COMPILER,
+                ContainerCollectionResolver.Source.INDEX
+            );
+        }
 
-            if(this.getServices().containsKey(serviceName)) {
+    }
+
+    /**
+     * normalize class name; prepend "\"
+     */
+    @NotNull
+    private static String normalizeClassName(@NotNull String className) {
+        return className.startsWith("\\") ? className : "\\" + className;
+    }
+
+    /**
+     * Resolve "%parameter%" against the given parameters, unknown parameter returns null; everything else is unchanged
+     */
+    @Nullable
+    private static String resolveParameter(@NotNull Map<String, ContainerParameter> parameters, @Nullable String paramOrClassName) {
+
+        if(paramOrClassName == null) {
+            return null;
+        }
+
+        // strip "%" to get the parameter name
+        if(paramOrClassName.length() > 1 && paramOrClassName.startsWith("%") && paramOrClassName.endsWith("%")) {
+
+            paramOrClassName = paramOrClassName.substring(1, paramOrClassName.length() - 1);
+
+            // parameter is always lower see #179
+            ContainerParameter containerParameter = parameters.get(paramOrClassName.toLowerCase());
+
+            return containerParameter != null ? containerParameter.getValue() : null;
+        }
+
+        return paramOrClassName;
+    }
+
+    /**
+     * Immutable services and parameters of some sources with the state they were build on; aliases and class parameters
+     * are resolved once here, so a lookup is a single hash probe. Compiled parsers are replaced on container change,
+     * so their identity is our stamp
+     */
+    private static class ResolvedServiceSnapshot {
+
+        @NotNull
+        private final Set<Source> sources;
+
+        @Nullable
+        private final XmlServiceParser xmlServiceParser;
+
+        @Nullable
+        private final ParameterServiceParser parameterServiceParser;
+
+        private final long modificationCount;
+
+        @NotNull
+        private final Map<String, ContainerParameter> parameters;
+
+        @NotNull
+        private final Map<String, ContainerService> services;
+
+        /**
+         * lower case service id => service and its resolved class name; "services" map is case insensitive but a tree
+         */
+        @NotNull
+        private final Map<String, ContainerService> serviceLookup;
+
+        @NotNull
+        private final Map<String, String> resolvedClassNames;
+
+        @NotNull
+        private final Map<String, Set<String>> classNameServices;
+
+        private ResolvedServiceSnapshot(@NotNull Set<Source> sources, @Nullable XmlServiceParser xmlServiceParser, @Nullable ParameterServiceParser parameterServiceParser, long modificationCount, @NotNull Map<String, ContainerParameter> parameters, @NotNull Map<String, ContainerService> services) {
+            this.sources = Collections.unmodifiableSet(new HashSet<Source>(sources));
+            this.xmlServiceParser = xmlServiceParser;
+            this.parameterServiceParser = parameterServiceParser;
+            this.modificationCount = modificationCount;
+            this.parameters = Collections.unmodifiableMap(parameters);
+            this.services = Collections.unmodifiableMap(services);
+
+            Map<String, ContainerService> serviceLookup = new HashMap<String, ContainerService>();
+            Map<String, String> resolvedClassNames = new HashMap<String, String>();
+            Map<String, Set<String>> classNameServices = new HashMap<String, Set<String>>();
+
+            for(Map.Entry<String, ContainerService> entry: services.entrySet()) {
+
+                String serviceId = entry.getKey().toLowerCase();
+                serviceLookup.put(serviceId, entry.getValue());
+
+                if(entry.getValue().getClassName() == null) {
+                    continue;
+                }
 
                 // service can be a parameter, resolve if necessary
-                String className = this.getServices().get(serviceName).getClassName();
-                if(className != null && className.startsWith("%") && className.endsWith("%")) {
-                    return getParameterCollector().resolve(className);
-                } else {
-                    return className;
+                String className = resolveParameter(parameters, entry.getValue().getClassName());
+                if(className == null) {
+                    continue;
+                }
+
+                resolvedClassNames.put(serviceId, className);
+
+                // also normalize user input string inside container
+                className = normalizeClassName(className);
+
+                Set<String> serviceNames = classNameServices.get(className);
+                if(serviceNames == null) {
+                    serviceNames = new HashSet<String>();
+                    classNameServices.put(className, serviceNames);
                 }
+
+                serviceNames.add(entry.getKey());
             }
 
-            return null;
+            this.serviceLookup = serviceLookup;
+            this.resolvedClassNames = resolvedClassNames;
+            this.classNameServices = classNameServices;
         }
 
-        public Map<String, ContainerService> getServices() {
+        @NotNull
+        private static ResolvedServiceSnapshot create(@NotNull Project project, @NotNull Set<Source> sources, @Nullable XmlServiceParser xmlServiceParser, @Nullable ParameterServiceParser parameterServiceParser, long modificationCount) {
+            Map<String, ContainerParameter> parameters = collectParameters(project, sources, parameterServiceParser);
+            return new ResolvedServiceSnapshot(sources, xmlServiceParser, parameterServiceParser, modificationCount, parameters, collectServices(project, sources, xmlServiceParser, parameters));
+        }
+
+        @NotNull
+        private static Map<String, ContainerParameter> collectParameters(@NotNull Project project, @NotNull Set<Source> sources, @Nullable ParameterServiceParser parameterServiceParser) {
+
+            Map<String, ContainerParameter> containerParameterMap = new TreeMap<String, ContainerParameter>(String.CASE_INSENSITIVE_ORDER);
+
+            if(parameterServiceParser != null) {
+                for(Map.Entry<String, String> Entry: parameterServiceParser.getParameterMap().entrySet()) {
 
-            if(this.services != null) {
-                return this.services;
+                    // user input here; secure nullable values
+                    String key = Entry.getKey();
+                    if(key != null) {
+                        containerParameterMap.put(key, new ContainerParameter(key, Entry.getValue()));
+                    }
+
+                }
             }
 
-            this.services = new TreeMap<String, ContainerService>(String.CASE_INSENSITIVE_ORDER);
+            if(sources.contains(Source.INDEX)) {
+                for (Map.Entry<String, List<String>> entry : FileIndexCaches.getSetDataCache(project, SERVICE_PARAMETER_INDEX, ContainerParameterStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
+                    String parameterName = entry.getKey();
+                    // just for secure
+                    if(parameterName == null) {
+                        continue;
+                    }
 
-            if(this.sources.contains(Source.COMPILER)) {
-                for(Map.Entry<String, String> entry: ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap().getMap().entrySet()) {
+                    // indexes is weak stuff, dont overwrite compiled ones
+                    if(!containerParameterMap.containsKey(parameterName)) {
+                        containerParameterMap.put(parameterName, new ContainerParameter(parameterName, entry.getValue(), true));
+                    }
+                }
+
+            }
+
+            return containerParameterMap;
+        }
+
+        @NotNull
+        private static Map<String, ContainerService> collectServices(@NotNull Project project, @NotNull Set<Source> sources, @Nullable XmlServiceParser xmlServiceParser, @NotNull Map<String, ContainerParameter> parameters) {
+
+            Map<String, ContainerService> services = new TreeMap<String, ContainerService>(String.CASE_INSENSITIVE_ORDER);
+
+            if(xmlServiceParser != null) {
+                for(Map.Entry<String, String> entry: xmlServiceParser.getServiceMap().getMap().entrySet()) {
                     services.put(entry.getKey(), new ContainerService(entry.getKey(), entry.getValue()));
                 }
             }
 
-            if(this.sources.contains(Source.INDEX)) {
+            if(sources.contains(Source.INDEX)) {
 
                 Collection<ServiceInterface> aliases = new ArrayList<ServiceInterface>();
 
-                for (Map.Entry<String, List<ServiceInterface>> entry : FileIndexCaches.getSetDataCache(project, SERVICE_CONTAINER_INDEX, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
+                for (Map.Entry<String, List<ServiceInterface>> entry : FileIndexCaches.getSetDataCache(project, SERVICE_CONTAINER_INDEX, ServicesDefinitionStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
 
                     // dont work twice on service;
                     // @TODO: to need to optimize this to decorate as much service data as possible
                     String serviceName = entry.getKey();
-                    if(this.services.containsKey(serviceName)) {
+                    if(services.containsKey(serviceName)) {
                         continue;
                     }
 
                     // fake empty service, case which is not allowed by catch it
-                    List<ServiceInterface> services = entry.getValue();
-                    if(services.size() == 0) {
-                        this.services.put(serviceName, new ContainerService(serviceName, null, true));
+                    List<ServiceInterface> serviceDefinitions = entry.getValue();
+                    if(serviceDefinitions.size() == 0) {
+                        services.put(serviceName, new ContainerService(serviceName, null, true));
                         continue;
                     }
 
-                    for(ServiceInterface service: services) {
+                    for(ServiceInterface service: serviceDefinitions) {
 
                         // reuse iteration for alias mapping
                         if(service.getAlias() != null) {
@@ -205,95 +442,71 @@ public class ContainerCollectionResolver {
                         // resolve class value, it can be null or a parameter
                         String classValue = service.getClassName();
                         if(!StringUtils.isBlank(classValue)) {
-                            classValue = getParameterCollector().resolve(classValue);
+                            classValue = resolveParameter(parameters, classValue);
                         }
 
                         // @TODO: legacy bridge; replace this with ServiceInterface
-                        this.services.put(serviceName, new ContainerService(service, classValue));
+                        services.put(serviceName, new ContainerService(service, classValue));
                     }
                 }
 
                 // replace alias with main service
-                if(aliases.size() > 0) {
-                    for (ServiceInterface service : aliases) {
-
-                        // double check alias name
-                        String alias = service.getAlias();
-                        if(alias == null || StringUtils.isBlank(alias) || !this.services.containsKey(alias)) {
-                            continue;
-                        }
-
-                        this.services.put(service.getId(), this.services.get(alias));
-                    }
-                }
-            }
+                for (ServiceInterface service : aliases) {
 
-            return this.services;
-        }
-
-        public Set<String> convertClassNameToServices(@NotNull String fqnClassName) {
-
-            Set<String> serviceNames = new HashSet<String>();
-
-            // normalize class name; prepend "\"
-            if(!fqnClassName.startsWith("\\")) {
-                fqnClassName = "\\" + fqnClassName;
-            }
-
-            for(Map.Entry<String, ContainerService> entry: this.getServices().entrySet()) {
-                if(entry.getValue().getClassName() != null) {
-                    String indexedClassName = this.getParameterCollector().resolve(entry.getValue().getClassName());
-                    if(indexedClassName != null) {
-
-                        // also normalize user input string inside container
-                        if(!indexedClassName.startsWith("\\")) {
-                            indexedClassName = "\\" + indexedClassName;
-                        }
-
-                        if(indexedClassName.equals(fqnClassName)) {
-                            serviceNames.add(entry.getKey());
-                        }
+                    // double check alias name
+                    String alias = service.getAlias();
+                    if(alias == null || StringUtils.isBlank(alias) || !services.containsKey(alias)) {
+                        continue;
                     }
 
+                    services.put(service.getId(), services.get(alias));
                 }
-
             }
 
-            return serviceNames;
+            return services;
         }
 
-        private Set<String> getNames() {
-
-            Set<String> serviceNames = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
-
-            if(this.sources.contains(Source.COMPILER)) {
-                serviceNames.addAll(ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap().getMap().keySet());
-            }
-
-            if(this.sources.contains(Source.INDEX)) {
-
-                serviceNames.addAll(
-                    FileIndexCaches.getIndexKeysCache(project, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY)
-                );
-            }
+        private boolean isUpToDate(@Nullable XmlServiceParser xmlServiceParser, @Nullable ParameterServiceParser parameterServiceParser, long modificationCount) {
+            return this.xmlServiceParser == xmlServiceParser
+                && this.parameterServiceParser == parameterServiceParser
+                && this.modificationCount == modificationCount;
+        }
 
-            return serviceNames;
+        @NotNull
+        private Set<Source> getSources() {
+            return sources;
+        }
 
+        @NotNull
+        private Map<String, ContainerParameter> getParameters() {
+            return parameters;
         }
 
+        @NotNull
+        private Map<String, ContainerService> getServices() {
+            return services;
+        }
 
-        private ParameterCollector getParameterCollector() {
-            return (this.parameterCollector != null) ? this.parameterCollector : (this.parameterCollector = new ParameterCollector(this.project, this.sources.toArray(new Source[this.sources.size()])));
+        @Nullable
+        private ContainerService getService(@Nullable String serviceName) {
+            return serviceName != null ? serviceLookup.get(serviceName.toLowerCase()) : null;
         }
 
-        public static ServiceCollector create(@NotNull Project project) {
-            return new ContainerCollectionResolver.ServiceCollector(
-                project,
-                ContainerCollectionResolver.Source.COMPILER,
-                ContainerCollectionResolver.Source.INDEX
-            );
+        /**
+         * Class name of service with resolved parameter
+         */
+        @Nullable
+        private String resolve(@Nullable String serviceName) {
+            return serviceName != null ? resolvedClassNames.get(serviceName.toLowerCase()) : null;
         }
 
+        /**
+         * "\Foo\Bar => service ids" of all services
+         */
+        @NotNull
+        private Map<String, Set<String>> getClassNameServices() {
+            return classNameServices;
+        }
     }
 
     public static class ParameterCollector {
@@ -318,68 +531,11 @@ public class ContainerCollectionResolver {
          */
         @Nullable
         private String resolve(@Nullable String paramOrClassName) {
-
-            if(paramOrClassName == null) {
-                return null;
-            }
-
-            // strip "%" to get the parameter name
-            if(paramOrClassName.length() > 1 && paramOrClassName.startsWith("%") && paramOrClassName.endsWith("%")) {
-
-                paramOrClassName = paramOrClassName.substring(1, paramOrClassName.length() - 1);
-
-                // parameter is always lower see #179
-                paramOrClassName = paramOrClassName.toLowerCase();
-
-                if(this.getParameters().containsKey(paramOrClassName)) {
-                    return getParameters().get(paramOrClassName).getValue();
-                }
-
-                return null;
-            }
-
-            return paramOrClassName;
+            return resolveParameter(this.getParameters(), paramOrClassName);
         }
 
-
         private Map<String, ContainerParameter> getParameters() {
-
-            if(this.containerParameterMap != null) {
-                return this.containerParameterMap;
-            }
-
-            this.containerParameterMap = new TreeMap<String, ContainerParameter>(String.CASE_INSENSITIVE_ORDER);
-
-            if(this.sources.contains(Source.COMPILER)) {
-                for(Map.Entry<String, String> Entry: ServiceXmlParserFactory.getInstance(project, ParameterServiceParser.class).getParameterMap().entrySet()) {
-
-                    // user input here; secure nullable values
-                    String key = Entry.getKey();
-                    if(key != null) {
-                        this.containerParameterMap.put(key, new ContainerParameter(key, Entry.getValue()));
-                    }
-
-                }
-            }
-
-            if(this.sources.contains(Source.INDEX)) {
-                for (Map.Entry<String, List<String>> entry : FileIndexCaches.getStringDataCache(project, SERVICE_PARAMETER_INDEX, SERVICE_PARAMETER_INDEX_NAMES, ContainerParameterStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
-                    String parameterName = entry.getKey();
-                    // just for secure
-                    if(parameterName == null) {
-                        continue;
-                    }
-
-                    // indexes is weak stuff, dont overwrite compiled ones
-                    if(!this.containerParameterMap.containsKey(parameterName)) {
-                        this.containerParameterMap.put(parameterName, new ContainerParameter(parameterName, entry.getValue(), true));
-                    }
-                }
-
-            }
-
-            return this.containerParameterMap;
-
+            return (this.containerParameterMap != null) ? this.containerParameterMap : (this.containerParameterMap = getSnapshot(this.project, this.sources).getParameters());
         }
 
         private Set<String> getNames() {
@@ -397,7 +553,7 @@ public class ContainerCollectionResolver {
 
             if(this.sources.contains(Source.INDEX)) {
                 parameterNames.addAll(
-                    FileIndexCaches.getIndexKeysCache(project, SERVICE_PARAMETER_INDEX_NAMES, ContainerParameterStubIndex.KEY)
+                    FileIndexCaches.getSetDataCache(project, SERVICE_PARAMETER_INDEX, ContainerParameterStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).keySet()
                 );
             }
 
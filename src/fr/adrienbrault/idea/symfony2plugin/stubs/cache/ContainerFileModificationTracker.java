@@ -0,0 +1,211 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.*;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.YAMLFileType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification stamp of xml and yaml files, the input of our container indexes.
+ *
+ * PsiModificationTracker.MODIFICATION_COUNT changes on every keystroke in any file, this one only on container
+ * relevant files. It also remembers the files changed since a stamp, so caches can update per file.
+ */
+public class ContainerFileModificationTracker implements ModificationTracker {
+
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * Caches with a older stamp than this need to be rebuild completely
+     */
+    private volatile long fullModificationCount = 0;
+
+    private final Map<VirtualFile, Long> changedFiles = new ConcurrentHashMap<VirtualFile, Long>();
+
+    public ContainerFileModificationTracker(@NotNull Project project) {
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new ContainerPsiTreeChangeListener(), project);
+
+        MessageBusConnection connection = project.getMessageBus().connect(project);
+
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                // content of a deleted directory is only known before; also the old name or place of a renamed or moved file,
+                // eg "services.yml" => "services.yml.dist" is no container file afterwards
+                for (VFileEvent event : events) {
+                    if(event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || isRenameEvent(event)) {
+                        onFileEvent(event.getFile());
+                    }
+                }
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if(!(event instanceof VFileDeleteEvent)) {
+                        onFileEvent(event.getFile());
+                    }
+                }
+            }
+        });
+
+        // indexes are maybe rebuild
+        connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+            @Override
+            public void enteredDumbMode() {
+            }
+
+            @Override
+            public void exitDumbMode() {
+                incModificationAll();
+            }
+        });
+    }
+
+    public static ContainerFileModificationTracker getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, ContainerFileModificationTracker.class);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * @return null if caches older then the given stamp must be rebuild completely
+     */
+    @Nullable
+    public Collection<VirtualFile> getChangedFilesSince(long modificationCount) {
+        if(modificationCount < this.fullModificationCount) {
+            return null;
+        }
+
+        Collection<VirtualFile> files = new ArrayList<VirtualFile>();
+        for (Map.Entry<VirtualFile, Long> entry : this.changedFiles.entrySet()) {
+            if(entry.getValue() > modificationCount) {
+                files.add(entry.getKey());
+            }
+        }
+
+        return files;
+    }
+
+    public void incModification(@NotNull VirtualFile virtualFile) {
+        this.changedFiles.put(virtualFile, this.modificationCount.incrementAndGet());
+    }
+
+    public void incModificationAll() {
+        this.fullModificationCount = this.modificationCount.incrementAndGet();
+        this.changedFiles.clear();
+    }
+
+    /**
+     * Directory move, delete, ...: only container files inside are changed, other directories dont touch any cache
+     */
+    private void onFileEvent(@Nullable VirtualFile file) {
+        if(file == null || !file.isValid()) {
+            return;
+        }
+
+        if(!file.isDirectory()) {
+            if(isContainerFile(file)) {
+                incModification(file);
+            }
+            return;
+        }
+
+        // children never loaded from disk are also not indexed
+        Collection<VirtualFile> children = file instanceof NewVirtualFile
+            ? ((NewVirtualFile) file).getCachedChildren()
+            : Arrays.asList(file.getChildren());
+
+        for (VirtualFile child : children) {
+            onFileEvent(child);
+        }
+    }
+
+    private static boolean isRenameEvent(@NotNull VFileEvent event) {
+        return event instanceof VFilePropertyChangeEvent && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName());
+    }
+
+    public static boolean isContainerFile(@NotNull VirtualFile virtualFile) {
+        return virtualFile.getFileType() == XmlFileType.INSTANCE || virtualFile.getFileType() == YAMLFileType.YML;
+    }
+
+    private class ContainerPsiTreeChangeListener extends PsiTreeChangeAdapter {
+
+        @Override
+        public void childAdded(@NotNull PsiTreeChangeEvent event) {
+            onChange(event);
+        }
+
+        @Override
+        public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+            onChange(event);
+        }
+
+        @Override
+        public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+            onChange(event);
+        }
+
+        @Override
+        public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+            onChange(event);
+        }
+
+        @Override
+        public void childMoved(@NotNull PsiTreeChangeEvent event) {
+            onChange(event);
+        }
+
+        @Override
+        public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+            onChange(event);
+        }
+
+        private void onChange(@NotNull PsiTreeChangeEvent event) {
+
+            PsiFile psiFile = event.getFile();
+
+            // file itself was added or removed
+            if(psiFile == null && event.getChild() instanceof PsiFile) {
+                psiFile = (PsiFile) event.getChild();
+            }
+
+            // directories are visited on vfs events
+            if(psiFile == null) {
+                return;
+            }
+
+            VirtualFile virtualFile = psiFile.getVirtualFile();
+            if(virtualFile != null && isContainerFile(virtualFile)) {
+                incModification(virtualFile);
+            }
+        }
+    }
+
+}
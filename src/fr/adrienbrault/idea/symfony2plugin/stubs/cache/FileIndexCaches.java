@@ -13,108 +13,104 @@ import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * All FileBasedIndex are slow and cross project data, we need them every often
  * Cache values as long nothing globally change in our project.
  *
+ * Every Key has its own lock, so a slow rebuild of the service index dont block eg doctrine keys;
+ * reading a cache which is up-to-date never locks at all.
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class FileIndexCaches {
 
+    private static final ConcurrentMap<Key, Object> LOCKS = new ConcurrentHashMap<Key, Object>();
+
     /**
+     * Container index values which are only updated for changed xml and yaml files,
+     * see ContainerFileModificationTracker and FileIndexDeltaCache
+     *
      * @param dataHolderKey Main data to cache
-     * @param dataHolderNames Cache extracted name Set
      */
-    static public synchronized <T> Map<String, List<T>> getSetDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<T>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, T> ID, @NotNull final GlobalSearchScope scope) {
+    static public <T> Map<String, List<T>> getSetDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<T>>>> dataHolderKey, @NotNull final ID<String, T> ID, @NotNull final GlobalSearchScope scope) {
 
         CachedValue<Map<String, List<T>>> cache = project.getUserData(dataHolderKey);
+        if(cache != null && cache.hasUpToDateValue()) {
+            return cache.getValue();
+        }
 
-        if(cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, List<T>>>() {
-                @Nullable
-                @Override
-                public Result<Map<String, List<T>>> compute() {
+        synchronized (getLock(dataHolderKey)) {
 
-                    Map<String, List<T>> items = new HashMap<String, List<T>>();
+            cache = project.getUserData(dataHolderKey);
+            if(cache == null) {
+                final FileIndexDeltaCache<T> deltaCache = new FileIndexDeltaCache<T>(project, ID, scope);
 
-                    FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-                    for (String serviceName : getIndexKeysCache(project, dataHolderNames, ID)) {
-                        items.put(serviceName, fileBasedIndex.getValues(ID, serviceName, scope));
+                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, List<T>>>() {
+                    @Nullable
+                    @Override
+                    public Result<Map<String, List<T>>> compute() {
+                        return Result.create(deltaCache.getValues(), ContainerFileModificationTracker.getInstance(project));
                     }
+                }, false);
 
-                    return Result.create(items, PsiModificationTracker.MODIFICATION_COUNT);
-                }
-            }, false);
+                project.putUserData(dataHolderKey, cache);
+            }
 
-            project.putUserData(dataHolderKey, cache);
+            return cache.getValue();
         }
-
-        return cache.getValue();
     }
 
     /**
-     * @param dataHolderKey Main data to cache
-     * @param dataHolderNames Cache extracted name Set
+     * There several methods that just need to check for names, as they also needed for value extraction, so cache them also
      */
-    static public synchronized Map<String, List<String>> getStringDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<String>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, String> ID, @NotNull final GlobalSearchScope scope) {
-
-        CachedValue<Map<String, List<String>>> cache = project.getUserData(dataHolderKey);
-        if(cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, List<String>>>() {
-                @Nullable
-                @Override
-                public Result<Map<String, List<String>>> compute() {
-
-                    Map<String, List<String>> strings = new HashMap<String, List<String>>();
-
-                    FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-                    for(String parameterName: getIndexKeysCache(project, dataHolderNames, ID)) {
+    static public Set<String> getIndexKeysCache(@NotNull final Project project, @NotNull Key<CachedValue<Set<String>>> dataHolderKey, @NotNull final ID<String, ?> ID) {
 
-                        // just for secure
-                        if(parameterName == null) {
-                            continue;
-                        }
+        CachedValue<Set<String>> cache = project.getUserData(dataHolderKey);
+        if(cache != null && cache.hasUpToDateValue()) {
+            return cache.getValue();
+        }
 
-                        strings.put(parameterName, fileBasedIndex.getValues(ID, parameterName, scope));
+        synchronized (getLock(dataHolderKey)) {
+
+            cache = project.getUserData(dataHolderKey);
+            if(cache == null) {
+                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Set<String>>() {
+                    @Nullable
+                    @Override
+                    public Result<Set<String>> compute() {
+                        SymfonyProcessors.CollectProjectUniqueKeys projectUniqueKeys = new SymfonyProcessors.CollectProjectUniqueKeys(project, ID);
+                        FileBasedIndex.getInstance().processAllKeys(ID, projectUniqueKeys, project);
+                        return Result.create(projectUniqueKeys.getResult(), PsiModificationTracker.MODIFICATION_COUNT);
                     }
+                }, false);
 
-                    return Result.create(strings, PsiModificationTracker.MODIFICATION_COUNT);
-                }
-            }, false);
+                project.putUserData(dataHolderKey, cache);
+            }
 
-            project.putUserData(dataHolderKey, cache);
+            return cache.getValue();
         }
-
-        return cache.getValue();
     }
 
     /**
-     * There several methods that just need to check for names, as they also needed for value extraction, so cache them also
+     * One lock per cache key; caches of different keys can be computed in parallel
      */
-    static public synchronized Set<String> getIndexKeysCache(@NotNull final Project project, @NotNull Key<CachedValue<Set<String>>> dataHolderKey, @NotNull final ID<String, ?> ID) {
-
-        CachedValue<Set<String>> cache = project.getUserData(dataHolderKey);
-
-        if(cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Set<String>>() {
-                @Nullable
-                @Override
-                public Result<Set<String>> compute() {
-                    SymfonyProcessors.CollectProjectUniqueKeys projectUniqueKeys = new SymfonyProcessors.CollectProjectUniqueKeys(project, ID);
-                    FileBasedIndex.getInstance().processAllKeys(ID, projectUniqueKeys, project);
-                    return Result.create(projectUniqueKeys.getResult(), PsiModificationTracker.MODIFICATION_COUNT);
-                }
-            }, false);
-
-            project.putUserData(dataHolderKey, cache);
+    @NotNull
+    private static Object getLock(@NotNull Key key) {
+        Object lock = LOCKS.get(key);
+        if(lock != null) {
+            return lock;
         }
 
-        return cache.getValue();
+        Object newLock = new Object();
+        lock = LOCKS.putIfAbsent(key, newLock);
+
+        return lock != null ? lock : newLock;
     }
 
 }
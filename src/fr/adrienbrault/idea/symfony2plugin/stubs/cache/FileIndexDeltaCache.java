@@ -0,0 +1,259 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.openapi.extensions.Extensions;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Index values of a container index as "key => values" merged over all files, but updated per file.
+ *
+ * Only files reported as changed by ContainerFileModificationTracker are read again,
+ * the merged view is then patched only for keys of these files; "fileValues" is our reverse "file => keys" map.
+ */
+public class FileIndexDeltaCache<T> {
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final ID<String, T> id;
+
+    @NotNull
+    private final GlobalSearchScope scope;
+
+    /**
+     * file => key => values
+     */
+    private final Map<VirtualFile, Map<String, List<T>>> fileValues = new HashMap<VirtualFile, Map<String, List<T>>>();
+
+    /**
+     * key => files with this key; to patch merged values
+     */
+    private final Map<String, Set<VirtualFile>> keyFiles = new HashMap<String, Set<VirtualFile>>();
+
+    @NotNull
+    private Map<String, List<T>> values = Collections.emptyMap();
+
+    private long modificationCount = -1;
+
+    @Nullable
+    private FileBasedIndexExtension<String, T> extension;
+
+    public FileIndexDeltaCache(@NotNull Project project, @NotNull ID<String, T> id, @NotNull GlobalSearchScope scope) {
+        this.project = project;
+        this.id = id;
+        this.scope = scope;
+    }
+
+    /**
+     * Merged index values; an unmodifiable copy, so callers can iterate it while we update
+     */
+    @NotNull
+    public synchronized Map<String, List<T>> getValues() {
+
+        ContainerFileModificationTracker tracker = ContainerFileModificationTracker.getInstance(project);
+
+        // stamp before collecting changes, so a change while updating is visible on next call
+        long currentModificationCount = tracker.getModificationCount();
+        if(currentModificationCount == this.modificationCount) {
+            return this.values;
+        }
+
+        Collection<VirtualFile> changedFiles = this.modificationCount < 0 ? null : tracker.getChangedFilesSince(this.modificationCount);
+        if(changedFiles == null) {
+            rebuild();
+        } else if(changedFiles.size() > 0) {
+            patch(changedFiles);
+        }
+
+        this.modificationCount = currentModificationCount;
+
+        return this.values;
+    }
+
+    private void rebuild() {
+
+        this.fileValues.clear();
+        this.keyFiles.clear();
+
+        final Set<String> keys = new HashSet<String>();
+        FileBasedIndex.getInstance().processAllKeys(id, new Processor<String>() {
+            @Override
+            public boolean process(String key) {
+                keys.add(key);
+                return true;
+            }
+        }, project);
+
+        for (final String key : keys) {
+            if(key == null) {
+                continue;
+            }
+
+            FileBasedIndex.getInstance().processValues(id, key, null, new FileBasedIndex.ValueProcessor<T>() {
+                @Override
+                public boolean process(VirtualFile virtualFile, T value) {
+                    addValue(virtualFile, key, value);
+                    return true;
+                }
+            }, scope);
+        }
+
+        Map<String, List<T>> values = new HashMap<String, List<T>>();
+        for (String key : this.keyFiles.keySet()) {
+            values.put(key, mergeKey(key));
+        }
+
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    private void patch(@NotNull Collection<VirtualFile> changedFiles) {
+
+        Set<String> changedKeys = new HashSet<String>();
+
+        for (VirtualFile virtualFile : changedFiles) {
+
+            // drop old state of file
+            Map<String, List<T>> oldValues = this.fileValues.remove(virtualFile);
+            if(oldValues != null) {
+                for (String key : oldValues.keySet()) {
+                    changedKeys.add(key);
+
+                    Set<VirtualFile> files = this.keyFiles.get(key);
+                    if(files != null) {
+                        files.remove(virtualFile);
+                        if(files.size() == 0) {
+                            this.keyFiles.remove(key);
+                        }
+                    }
+                }
+            }
+
+            // removed files are invalid
+            if(virtualFile.isValid() && scope.contains(virtualFile)) {
+                changedKeys.addAll(readFile(virtualFile));
+            }
+        }
+
+        // copy; its only a reference copy and callers can still iterate the old one
+        Map<String, List<T>> values = new HashMap<String, List<T>>(this.values);
+        for (String key : changedKeys) {
+            if(this.keyFiles.containsKey(key)) {
+                values.put(key, mergeKey(key));
+            } else {
+                values.remove(key);
+            }
+        }
+
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Collect all values of a single file; the indexer of our index is called on the file,
+     * so we dont need to visit all keys of the index to find the ones of this file
+     *
+     * @return keys of the file
+     */
+    @NotNull
+    private Set<String> readFile(@NotNull VirtualFile virtualFile) {
+
+        FileBasedIndexExtension<String, T> extension = getIndexExtension();
+        if(extension == null || !extension.getInputFilter().acceptInput(virtualFile)) {
+            return Collections.emptySet();
+        }
+
+        PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
+        if(psiFile == null) {
+            return Collections.emptySet();
+        }
+
+        FileContentImpl fileContent;
+        try {
+            fileContent = new FileContentImpl(virtualFile, virtualFile.contentsToByteArray());
+        } catch (IOException e) {
+            return Collections.emptySet();
+        }
+
+        fileContent.putUserData(IndexingDataKeys.PROJECT, project);
+        fileContent.putUserData(IndexingDataKeys.PSI_FILE, psiFile);
+
+        Map<String, T> map = extension.getIndexer().map(fileContent);
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            if(entry.getKey() != null) {
+                addValue(virtualFile, entry.getKey(), entry.getValue());
+            }
+        }
+
+        return map.keySet();
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private FileBasedIndexExtension<String, T> getIndexExtension() {
+
+        if(this.extension == null) {
+            for (FileBasedIndexExtension extension : Extensions.getExtensions(FileBasedIndexExtension.EXTENSION_POINT_NAME)) {
+                if(this.id.equals(extension.getName())) {
+                    this.extension = (FileBasedIndexExtension<String, T>) extension;
+                    break;
+                }
+            }
+        }
+
+        return this.extension;
+    }
+
+    private void addValue(@NotNull VirtualFile virtualFile, @NotNull String key, T value) {
+
+        Map<String, List<T>> values = this.fileValues.get(virtualFile);
+        if(values == null) {
+            values = new HashMap<String, List<T>>();
+            this.fileValues.put(virtualFile, values);
+        }
+
+        List<T> keyValues = values.get(key);
+        if(keyValues == null) {
+            keyValues = new ArrayList<T>();
+            values.put(key, keyValues);
+        }
+
+        keyValues.add(value);
+
+        Set<VirtualFile> files = this.keyFiles.get(key);
+        if(files == null) {
+            files = new HashSet<VirtualFile>();
+            this.keyFiles.put(key, files);
+        }
+
+        files.add(virtualFile);
+    }
+
+    @NotNull
+    private List<T> mergeKey(@NotNull String key) {
+
+        List<T> values = new ArrayList<T>();
+
+        Set<VirtualFile> files = this.keyFiles.get(key);
+        if(files != null) {
+            for (VirtualFile virtualFile : files) {
+                Map<String, List<T>> fileValues = this.fileValues.get(virtualFile);
+                if(fileValues != null && fileValues.containsKey(key)) {
+                    values.addAll(fileValues.get(key));
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(values);
+    }
+
+}
@@ -0,0 +1,417 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.PsiTreeChangeEventImpl;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.documentation.phpdoc.psi.PhpDocComment;
+import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.*;
+import com.jetbrains.twig.TwigFile;
+import com.jetbrains.twig.elements.TwigCompositeElement;
+import com.jetbrains.twig.elements.TwigElementTypes;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification stamps for routing, template and Twig extension caches.
+ *
+ * Changes of xml and yaml files are already part of ContainerFileModificationTracker, so caches also depending on them
+ * need to add it as a second dependency. Here we only watch:
+ *
+ * routes: doc blocks of php files, annotations are the only route definitions there; and class or method declarations for "Class::method" targets
+ * templates: any file or directory structure change and "ide-twig.json" content
+ * Twig extensions: content of php classes with Twig extension methods, same as our index is looking at, and php file structure changes
+ * template usages: Twig include, embed, extends and import tags, php method calls like "render"; and any file structure change
+ * php structure: any php change outside of function bodies, like classes, methods and their modifiers
+ *
+ * Listeners are called on every keystroke, so only cheap psi checks are allowed; no index or class hierarchy.
+ */
+public class SymfonyModificationTrackers {
+
+    private static final String TWIG_JSON_FILE = "ide-twig.json";
+
+    private final Tracker routes = new Tracker();
+    private final Tracker templates = new Tracker();
+    private final Tracker twigExtensions = new Tracker();
+    private final Tracker phpStructure = new Tracker();
+    private final Tracker templateUsages = new Tracker();
+
+    public SymfonyModificationTrackers(@NotNull Project project) {
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new MyPsiTreeChangeListener(), project);
+
+        MessageBusConnection connection = project.getMessageBus().connect(project);
+
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    onFileEvent(event);
+                }
+            }
+        });
+
+        // indexes are maybe rebuild
+        connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+            @Override
+            public void enteredDumbMode() {
+            }
+
+            @Override
+            public void exitDumbMode() {
+                incModificationAll();
+            }
+        });
+    }
+
+    public static SymfonyModificationTrackers getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, SymfonyModificationTrackers.class);
+    }
+
+    /**
+     * Route annotations; routing files itself are container files
+     */
+    @NotNull
+    public static ModificationTracker getRouteTracker(@NotNull Project project) {
+        return getInstance(project).routes;
+    }
+
+    /**
+     * Template files and paths
+     */
+    @NotNull
+    public static ModificationTracker getTemplateTracker(@NotNull Project project) {
+        return getInstance(project).templates;
+    }
+
+    @NotNull
+    public static ModificationTracker getTwigExtensionTracker(@NotNull Project project) {
+        return getInstance(project).twigExtensions;
+    }
+
+    /**
+     * Classes, methods and their signatures; edits inside function bodies are ignored
+     */
+    @NotNull
+    public static ModificationTracker getPhpStructureTracker(@NotNull Project project) {
+        return getInstance(project).phpStructure;
+    }
+
+    /**
+     * Includes of templates and render calls of controllers; so also new usages in files we dont know yet
+     */
+    @NotNull
+    public static ModificationTracker getTemplateUsageTracker(@NotNull Project project) {
+        return getInstance(project).templateUsages;
+    }
+
+    /**
+     * Settings changes are not visible for our listeners
+     */
+    public void incTemplateModification() {
+        this.templates.incModification();
+    }
+
+    public void incModificationAll() {
+        this.routes.incModification();
+        this.templates.incModification();
+        this.twigExtensions.incModification();
+        this.phpStructure.incModification();
+        this.templateUsages.incModification();
+    }
+
+    private void onFileEvent(@NotNull VFileEvent event) {
+
+        // content changes of php files also reach us as psi event, only watch structure here
+        if(event instanceof VFileContentChangeEvent) {
+            VirtualFile file = event.getFile();
+            if(file != null && TWIG_JSON_FILE.equals(file.getName())) {
+                this.templates.incModification();
+            }
+
+            return;
+        }
+
+        if(event instanceof VFilePropertyChangeEvent && !VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName())) {
+            return;
+        }
+
+        // create, delete, move, copy or rename
+        this.templates.incModification();
+        this.templateUsages.incModification();
+
+        VirtualFile file = event.getFile();
+        if(file == null || file.isDirectory() || file.getFileType() == PhpFileType.INSTANCE) {
+            this.routes.incModification();
+            this.twigExtensions.incModification();
+            this.phpStructure.incModification();
+        }
+    }
+
+    private void onPsiChange(@NotNull PsiTreeChangeEvent event) {
+
+        PsiFile psiFile = event.getFile();
+
+        // file itself was added or removed; also part of vfs events
+        if(psiFile == null) {
+            if(event.getChild() instanceof PsiFile || event.getChild() instanceof PsiDirectory) {
+                incModificationAll();
+            }
+
+            return;
+        }
+
+        if(TWIG_JSON_FILE.equals(psiFile.getName())) {
+            this.templates.incModification();
+            return;
+        }
+
+        PsiElement parent = event.getParent();
+
+        if(psiFile instanceof TwigFile) {
+            if(parent == null || isTwigTemplateUsage(parent, event)) {
+                this.templateUsages.incModification();
+            }
+
+            return;
+        }
+
+        if(!(psiFile instanceof PhpFile)) {
+            return;
+        }
+
+        // whole file is reparsed
+        if(parent == null) {
+            this.routes.incModification();
+            this.phpStructure.incModification();
+            this.twigExtensions.incModification();
+            this.templateUsages.incModification();
+
+            return;
+        }
+
+        if(isPhpTemplateUsage(parent, event)) {
+            this.templateUsages.incModification();
+        }
+
+        // top level element changed
+        if(parent instanceof PsiFile) {
+            this.routes.incModification();
+            this.phpStructure.incModification();
+            if(containsTwigExtension(event)) {
+                this.twigExtensions.incModification();
+            }
+
+            return;
+        }
+
+        // class or method names and members; "Class::method" of route targets
+        if(isInsideDocComment(parent) || isDeclaration(parent, event) || containsDocComment(event.getChild()) || containsDocComment(event.getOldChild()) || containsDocComment(event.getNewChild())) {
+            this.routes.incModification();
+        }
+
+        if(!isInsideFunctionBody(parent)) {
+            this.phpStructure.incModification();
+        }
+
+        PhpClass phpClass = PsiTreeUtil.getParentOfType(parent, PhpClass.class, false);
+        if(phpClass != null ? TwigExtensionParser.hasExtensionMethods(phpClass) || isExtensionMethod(event) : containsTwigExtension(event)) {
+            this.twigExtensions.incModification();
+        }
+    }
+
+    /**
+     * Direct child of a namespace, class or method declaration changed, like their name
+     */
+    private static boolean isDeclaration(@NotNull PsiElement psiElement, @NotNull PsiTreeChangeEvent event) {
+        if(!(psiElement instanceof PhpNamespace || psiElement instanceof PhpClass || psiElement instanceof Method)) {
+            return false;
+        }
+
+        // reparse of a whole function body
+        return !(event.getChild() instanceof GroupStatement || event.getOldChild() instanceof GroupStatement || event.getNewChild() instanceof GroupStatement);
+    }
+
+    /**
+     * Changed element is inside or contains a method call, so a possible template usage like "$this->render()"
+     */
+    private static boolean isPhpTemplateUsage(@NotNull PsiElement parent, @NotNull PsiTreeChangeEvent event) {
+        if(PsiTreeUtil.getParentOfType(parent, MethodReference.class, false) != null) {
+            return true;
+        }
+
+        for (PsiElement psiElement : new PsiElement[] {event.getChild(), event.getOldChild(), event.getNewChild()}) {
+            if(psiElement != null && (psiElement instanceof MethodReference || PsiTreeUtil.findChildOfType(psiElement, MethodReference.class) != null)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Only tags with a template reference; typing inside any other tag or print block is no usage change
+     */
+    private static boolean isTwigTemplateUsage(@NotNull PsiElement parent, @NotNull PsiTreeChangeEvent event) {
+        for (PsiElement psiElement = parent; psiElement != null && !(psiElement instanceof PsiFile); psiElement = psiElement.getParent()) {
+            if(isTwigTemplateUsageTag(psiElement)) {
+                return true;
+            }
+        }
+
+        for (PsiElement psiElement : new PsiElement[] {event.getChild(), event.getOldChild(), event.getNewChild()}) {
+            if(psiElement == null) {
+                continue;
+            }
+
+            if(isTwigTemplateUsageTag(psiElement)) {
+                return true;
+            }
+
+            for (TwigCompositeElement element : PsiTreeUtil.findChildrenOfType(psiElement, TwigCompositeElement.class)) {
+                if(isTwigTemplateUsageTag(element)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isTwigTemplateUsageTag(@NotNull PsiElement psiElement) {
+        if(!(psiElement instanceof TwigCompositeElement)) {
+            return false;
+        }
+
+        IElementType elementType = psiElement.getNode().getElementType();
+        return elementType == TwigElementTypes.INCLUDE_TAG
+            || elementType == TwigElementTypes.EMBED_TAG
+            || elementType == TwigElementTypes.EXTENDS_TAG
+            || elementType == TwigElementTypes.IMPORT_TAG;
+    }
+
+    private static boolean isInsideDocComment(@NotNull PsiElement psiElement) {
+        return PsiTreeUtil.getParentOfType(psiElement, PhpDocComment.class, false) != null;
+    }
+
+    private static boolean isInsideFunctionBody(@NotNull PsiElement psiElement) {
+        Function function = PsiTreeUtil.getParentOfType(psiElement, Function.class, false);
+        if(function == null) {
+            return false;
+        }
+
+        GroupStatement body = PsiTreeUtil.getChildOfType(function, GroupStatement.class);
+        return body != null && PsiTreeUtil.isAncestor(body, psiElement, false);
+    }
+
+    private static boolean containsDocComment(@Nullable PsiElement psiElement) {
+        return psiElement != null && (psiElement instanceof PhpDocComment || PsiTreeUtil.findChildOfType(psiElement, PhpDocComment.class) != null);
+    }
+
+    /**
+     * Class with extension methods added or removed; only the changed elements are visited
+     */
+    private static boolean containsTwigExtension(@NotNull PsiTreeChangeEvent event) {
+        for (PsiElement psiElement : new PsiElement[] {event.getChild(), event.getOldChild(), event.getNewChild()}) {
+            if(psiElement == null) {
+                continue;
+            }
+
+            if(psiElement instanceof PhpClass && TwigExtensionParser.hasExtensionMethods((PhpClass) psiElement)) {
+                return true;
+            }
+
+            for (PhpClass phpClass : PsiTreeUtil.findChildrenOfType(psiElement, PhpClass.class)) {
+                if(TwigExtensionParser.hasExtensionMethods(phpClass)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Extension method itself was removed or replaced, so class has no extension methods anymore
+     */
+    private static boolean isExtensionMethod(@NotNull PsiTreeChangeEvent event) {
+        for (PsiElement psiElement : new PsiElement[] {event.getChild(), event.getOldChild()}) {
+            if(psiElement instanceof Method && Arrays.asList(TwigExtensionParser.EXTENSION_METHODS).contains(((Method) psiElement).getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class Tracker implements ModificationTracker {
+
+        private final AtomicLong modificationCount = new AtomicLong();
+
+        @Override
+        public long getModificationCount() {
+            return modificationCount.get();
+        }
+
+        private void incModification() {
+            modificationCount.incrementAndGet();
+        }
+    }
+
+    private class MyPsiTreeChangeListener extends PsiTreeChangeAdapter {
+
+        @Override
+        public void childAdded(@NotNull PsiTreeChangeEvent event) {
+            onPsiChange(event);
+        }
+
+        @Override
+        public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+            onPsiChange(event);
+        }
+
+        @Override
+        public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+            onPsiChange(event);
+        }
+
+        @Override
+        public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+            // platform fires it on file level after every change, the real change was already visited
+            if(event instanceof PsiTreeChangeEventImpl && ((PsiTreeChangeEventImpl) event).isGenericChange()) {
+                return;
+            }
+
+            onPsiChange(event);
+        }
+
+        @Override
+        public void childMoved(@NotNull PsiTreeChangeEvent event) {
+            onPsiChange(event);
+        }
+
+        @Override
+        public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+            onPsiChange(event);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
+
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.documentation.phpdoc.psi.PhpDocComment;
+import com.jetbrains.php.lang.documentation.phpdoc.psi.tags.PhpDocTag;
+import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import com.jetbrains.php.lang.psi.elements.PhpPsiElement;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.DoctrineUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.visitor.AnnotationElementWalkingVisitor;
+import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
+import gnu.trove.THashMap;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.yaml.YAMLFileType;
+import org.jetbrains.yaml.psi.YAMLDocument;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Database table name => model class of Doctrine metadata files
+ *
+ * Mapping drivers resolve classes and annotations, so table names are extracted here in an index safe way
+ */
+public class DoctrineTableStubIndex extends FileBasedIndexExtension<String, String> {
+
+    public static final ID<String, String> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.doctrine_table");
+    private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("name[\\s]*=[\\s]*[\"|']([\\w_\\\\]+)[\"|']");
+
+    private static class MyStringStringFileContentDataIndexer implements DataIndexer<String, String, FileContent> {
+        @NotNull
+        @Override
+        public Map<String, String> map(@NotNull FileContent fileContent) {
+
+            Map<String, String> map = new THashMap<String, String>();
+
+            PsiFile psiFile = fileContent.getPsiFile();
+            if(!Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject()) || !DoctrineMetadataFileStubIndex.isValidForIndex(fileContent, psiFile)) {
+                return map;
+            }
+
+            // only files which are already metadata files
+            Collection<Pair<String, String>> classRepositoryPair = DoctrineUtil.getClassRepositoryPair(psiFile);
+            if(classRepositoryPair == null || classRepositoryPair.size() == 0) {
+                return map;
+            }
+
+            Set<String> classes = new HashSet<String>();
+            for (Pair<String, String> pair : classRepositoryPair) {
+                if(StringUtils.isNotBlank(pair.getFirst())) {
+                    classes.add(pair.getFirst());
+                }
+            }
+
+            if(psiFile instanceof XmlFile) {
+                visitXml((XmlFile) psiFile, classes, map);
+            } else if(psiFile instanceof YAMLFile) {
+                visitYaml((YAMLFile) psiFile, classes, map);
+            } else if(psiFile instanceof PhpFile) {
+                visitPhp((PhpFile) psiFile, classes, map);
+            }
+
+            return map;
+        }
+    }
+
+    /**
+     * <entity name="Foo\Bar" table="foo_bar"/>
+     */
+    private static void visitXml(@NotNull XmlFile xmlFile, @NotNull Set<String> classes, @NotNull Map<String, String> map) {
+
+        XmlTag rootTag = xmlFile.getRootTag();
+        if(rootTag == null) {
+            return;
+        }
+
+        for (XmlTag xmlTag : rootTag.findSubTags("entity")) {
+            String name = xmlTag.getAttributeValue("name");
+            String table = xmlTag.getAttributeValue("table");
+            if(name != null && StringUtils.isNotBlank(table) && classes.contains(name)) {
+                map.put(table, name);
+            }
+        }
+    }
+
+    /**
+     * Foo\Bar:
+     *   table: foo_bar
+     */
+    private static void visitYaml(@NotNull YAMLFile yamlFile, @NotNull Set<String> classes, @NotNull Map<String, String> map) {
+
+        YAMLDocument yamlDocument = PsiTreeUtil.getChildOfType(yamlFile, YAMLDocument.class);
+        if(yamlDocument == null) {
+            return;
+        }
+
+        YAMLKeyValue[] yamlKeys = PsiTreeUtil.getChildrenOfType(yamlDocument, YAMLKeyValue.class);
+        if(yamlKeys == null) {
+            return;
+        }
+
+        for (YAMLKeyValue yamlKeyValue : yamlKeys) {
+            String name = yamlKeyValue.getKeyText();
+            if(!classes.contains(name)) {
+                continue;
+            }
+
+            String table = YamlHelper.getYamlKeyValueAsString(yamlKeyValue, "table");
+            if(StringUtils.isNotBlank(table)) {
+                map.put(table, name);
+            }
+        }
+    }
+
+    /**
+     * @ORM\Table(name="foo_bar"); annotation class is resolved on file imports
+     */
+    private static void visitPhp(@NotNull PhpFile phpFile, @NotNull final Set<String> classes, @NotNull final Map<String, String> map) {
+
+        phpFile.acceptChildren(new AnnotationElementWalkingVisitor(new Processor<PhpDocTag>() {
+            @Override
+            public boolean process(PhpDocTag phpDocTag) {
+
+                PhpDocComment phpDocComment = PsiTreeUtil.getParentOfType(phpDocTag, PhpDocComment.class);
+                if (phpDocComment == null) {
+                    return false;
+                }
+
+                PhpPsiElement phpClass = phpDocComment.getNextPsiSibling();
+                if (!(phpClass instanceof PhpClass)) {
+                    return false;
+                }
+
+                String presentableFQN = ((PhpClass) phpClass).getPresentableFQN();
+                if(presentableFQN == null || !classes.contains(presentableFQN)) {
+                    return false;
+                }
+
+                Matcher matcher = TABLE_NAME_PATTERN.matcher(phpDocTag.getText());
+                if (matcher.find()) {
+                    map.put(matcher.group(1), presentableFQN);
+                }
+
+                return false;
+            }
+        }, "\\Doctrine\\ORM\\Mapping\\Table"));
+    }
+
+    @NotNull
+    @Override
+    public ID<String, String> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, String, FileContent> getIndexer() {
+        return new MyStringStringFileContentDataIndexer();
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.myKeyDescriptor;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<String> getValueExternalizer() {
+        return ContainerParameterStubIndex.StringDataExternalizer.STRING_DATA_EXTERNALIZER;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new FileBasedIndex.InputFilter() {
+            @Override
+            public boolean acceptInput(@NotNull VirtualFile virtualFile) {
+                FileType fileType = virtualFile.getFileType();
+                return
+                    fileType == XmlFileType.INSTANCE ||
+                    fileType == PhpFileType.INSTANCE ||
+                    fileType == YAMLFileType.YML
+                ;
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+}
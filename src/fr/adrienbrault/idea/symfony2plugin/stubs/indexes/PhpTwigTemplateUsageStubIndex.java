@@ -3,12 +3,13 @@ package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.indexing.*;
-import com.intellij.util.io.DataExternalizer;
-import com.intellij.util.io.EnumeratorStringDescriptor;
-import com.intellij.util.io.KeyDescriptor;
+import com.intellij.util.io.*;
 import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.MethodReference;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.php.lang.psi.elements.StringLiteralExpression;
 import com.jetbrains.php.lang.psi.stubs.indexes.PhpConstantNameIndex;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
@@ -17,14 +18,21 @@ import gnu.trove.THashMap;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class PhpTwigTemplateUsageStubIndex extends FileBasedIndexExtension<String, Void> {
+/**
+ * Template name => signatures of methods rendering it, eg "#M#C\Foo\BarController.fooAction"
+ */
+public class PhpTwigTemplateUsageStubIndex extends FileBasedIndexExtension<String, Set<String>> {
 
-    public static final ID<String, Void> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.twig_php_usage");
+    public static final ID<String, Set<String>> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.twig_php_usage");
     private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+    private static final MethodSignaturesExternalizer EXTERNALIZER = new MethodSignaturesExternalizer();
     private static int MAX_FILE_BYTE_SIZE = 2097152;
 
     public static Set<String> RENDER_METHODS = new HashSet<String>() {{
@@ -35,25 +43,25 @@ public class PhpTwigTemplateUsageStubIndex extends FileBasedIndexExtension<Strin
 
     @NotNull
     @Override
-    public ID<String, Void> getName() {
+    public ID<String, Set<String>> getName() {
         return KEY;
     }
 
     @NotNull
     @Override
-    public DataIndexer<String, Void, FileContent> getIndexer() {
-        return new DataIndexer<String, Void, FileContent>() {
+    public DataIndexer<String, Set<String>, FileContent> getIndexer() {
+        return new DataIndexer<String, Set<String>, FileContent>() {
             @NotNull
             @Override
-            public Map<String, Void> map(@NotNull FileContent inputData) {
-                final Map<String, Void> map = new THashMap<String, Void>();
+            public Map<String, Set<String>> map(@NotNull FileContent inputData) {
+                final Map<String, Set<String>> map = new THashMap<String, Set<String>>();
 
                 PsiFile psiFile = inputData.getPsiFile();
                 if(!Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject())) {
                     return map;
                 }
 
-                if(!(inputData.getPsiFile() instanceof PhpFile) && isValidForIndex(inputData)) {
+                if(!(inputData.getPsiFile() instanceof PhpFile) || !isValidForIndex(inputData)) {
                     return map;
                 }
 
@@ -82,8 +90,23 @@ public class PhpTwigTemplateUsageStubIndex extends FileBasedIndexExtension<Strin
                             return;
                         }
 
-                        map.put(TwigHelper.normalizeTemplateName(contents), null);
+                        // render calls outside of class methods are no controller
+                        Method method = PsiTreeUtil.getParentOfType(methodReference, Method.class);
+                        if(method == null) {
+                            return;
+                        }
+
+                        PhpClass phpClass = method.getContainingClass();
+                        if(phpClass == null) {
+                            return;
+                        }
+
+                        String templateName = TwigHelper.normalizeTemplateName(contents);
+                        if(!map.containsKey(templateName)) {
+                            map.put(templateName, new HashSet<String>());
+                        }
 
+                        map.get(templateName).add("#M#C" + phpClass.getFQN() + "." + method.getName());
                     }
 
                 });
@@ -101,8 +124,8 @@ public class PhpTwigTemplateUsageStubIndex extends FileBasedIndexExtension<Strin
 
     @NotNull
     @Override
-    public DataExternalizer<Void> getValueExternalizer() {
-        return ScalarIndexExtension.VOID_DATA_EXTERNALIZER;
+    public DataExternalizer<Set<String>> getValueExternalizer() {
+        return EXTERNALIZER;
     }
 
     @NotNull
@@ -119,13 +142,36 @@ public class PhpTwigTemplateUsageStubIndex extends FileBasedIndexExtension<Strin
 
     @Override
     public int getVersion() {
-        return 1;
+        return 2;
     }
 
     public static boolean isValidForIndex(FileContent inputData) {
         return inputData.getFile().getLength() < MAX_FILE_BYTE_SIZE;
     }
 
+    private static class MethodSignaturesExternalizer implements DataExternalizer<Set<String>> {
+
+        @Override
+        public void save(@NotNull DataOutput out, Set<String> signatures) throws IOException {
+            DataInputOutputUtil.writeINT(out, signatures.size());
+            for (String signature : signatures) {
+                IOUtil.writeUTF(out, signature);
+            }
+        }
+
+        @Override
+        public Set<String> read(@NotNull DataInput in) throws IOException {
+            int size = DataInputOutputUtil.readINT(in);
+
+            Set<String> signatures = new HashSet<String>(size);
+            for (int i = 0; i < size; i++) {
+                signatures.add(IOUtil.readUTF(in));
+            }
+
+            return signatures;
+        }
+    }
+
 }
 
 
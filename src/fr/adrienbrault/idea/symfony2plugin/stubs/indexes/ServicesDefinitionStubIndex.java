@@ -1,14 +1,14 @@
 package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.intellij.util.indexing.*;
 import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
 import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
 import com.intellij.util.io.KeyDescriptor;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ImmutableDecoratorService;
@@ -34,7 +34,7 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
     public static final ID<String, ServiceInterface> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.service_definition_json");
     private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
-    private static JsonDataExternalizer JSON_EXTERNALIZER = new JsonDataExternalizer();
+    private static ServiceDataExternalizer EXTERNALIZER = new ServiceDataExternalizer();
 
     @NotNull
     @Override
@@ -68,7 +68,6 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
         return KEY;
     }
 
-
     @NotNull
     @Override
     public KeyDescriptor<String> getKeyDescriptor() {
@@ -77,7 +76,7 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
     @NotNull
     public DataExternalizer<ServiceInterface> getValueExternalizer() {
-        return JSON_EXTERNALIZER;
+        return EXTERNALIZER;
     }
 
     @NotNull
@@ -98,7 +97,7 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
     @Override
     public int getVersion() {
-        return 1;
+        return 3;
     }
 
     /**
@@ -114,7 +113,6 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
             for(String value: values) {
                 this.myStringEnumerator.save(out, value != null ? value : "");
             }
-
         }
 
         public synchronized String[] read(@NotNull DataInput in) throws IOException {
@@ -127,7 +125,6 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
             return list.toArray(new String[list.size()]);
         }
-
     }
 
     public static boolean isValidForIndex(FileContent inputData, PsiFile psiFile) {
@@ -166,23 +163,147 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
         return true;
     }
 
-    private static class JsonDataExternalizer implements DataExternalizer<ServiceInterface> {
-
-        private static final EnumeratorStringDescriptor myStringEnumerator = new EnumeratorStringDescriptor();
-        private static final Gson GSON = new Gson();
+    /**
+     * Binary format of a service: varint field flags followed by the present strings only;
+     * booleans are part of the flags. Strings with many duplicates are interned on read.
+     */
+    public static class ServiceDataExternalizer implements DataExternalizer<ServiceInterface> {
+
+        private static final int CLASS = 1;
+        private static final int ALIAS = 1 << 1;
+        private static final int DECORATES = 1 << 2;
+        private static final int DECORATION_INNER_NAME = 1 << 3;
+        private static final int PARENT = 1 << 4;
+        private static final int PRIVATE = 1 << 5;
+        private static final int LAZY = 1 << 6;
+        private static final int ABSTRACT = 1 << 7;
+        private static final int AUTOWIRE = 1 << 8;
+        private static final int DEPRECATED = 1 << 9;
+
+        /**
+         * Class is same as id, like for fqcn service ids; its not stored twice
+         */
+        private static final int CLASS_IS_ID = 1 << 10;
 
         @Override
-        public void save(@NotNull DataOutput dataOutput, ServiceInterface fileResource) throws IOException {
-            myStringEnumerator.save(dataOutput, GSON.toJson(fileResource));
+        public void save(@NotNull DataOutput out, ServiceInterface service) throws IOException {
+
+            int flags = 0;
+            if(service.getClassName() != null) {
+                flags |= service.getClassName().equals(service.getId()) ? CLASS_IS_ID : CLASS;
+            }
+
+            if(service.getAlias() != null) {
+                flags |= ALIAS;
+            }
+
+            if(service.getDecorates() != null) {
+                flags |= DECORATES;
+            }
+
+            if(service.getDecorationInnerName() != null) {
+                flags |= DECORATION_INNER_NAME;
+            }
+
+            if(service.getParent() != null) {
+                flags |= PARENT;
+            }
+
+            if(!service.isPublic()) {
+                flags |= PRIVATE;
+            }
+
+            if(service.isLazy()) {
+                flags |= LAZY;
+            }
+
+            if(service.isAbstract()) {
+                flags |= ABSTRACT;
+            }
+
+            if(service.isAutowire()) {
+                flags |= AUTOWIRE;
+            }
+
+            if(service.isDeprecated()) {
+                flags |= DEPRECATED;
+            }
+
+            DataInputOutputUtil.writeINT(out, flags);
+            IOUtil.writeUTF(out, service.getId());
+
+            if((flags & CLASS) != 0) {
+                IOUtil.writeUTF(out, service.getClassName());
+            }
+
+            if((flags & ALIAS) != 0) {
+                IOUtil.writeUTF(out, service.getAlias());
+            }
+
+            if((flags & DECORATES) != 0) {
+                IOUtil.writeUTF(out, service.getDecorates());
+            }
+
+            if((flags & DECORATION_INNER_NAME) != 0) {
+                IOUtil.writeUTF(out, service.getDecorationInnerName());
+            }
+
+            if((flags & PARENT) != 0) {
+                IOUtil.writeUTF(out, service.getParent());
+            }
         }
 
         @Override
         public ServiceInterface read(@NotNull DataInput in) throws IOException {
-            try {
-                return GSON.fromJson(myStringEnumerator.read(in), SerializableService.class);
-            } catch (JsonSyntaxException e) {
-                return null;
+
+            int flags = DataInputOutputUtil.readINT(in);
+
+            SerializableService service = new SerializableService(IOUtil.readUTF(in));
+
+            if((flags & CLASS) != 0) {
+                service.setClassName(IOUtil.readUTF(in).intern());
+            } else if((flags & CLASS_IS_ID) != 0) {
+                service.setClassName(service.getId());
+            }
+
+            if((flags & ALIAS) != 0) {
+                service.setAlias(IOUtil.readUTF(in).intern());
             }
+
+            if((flags & DECORATES) != 0) {
+                service.setDecorates(IOUtil.readUTF(in).intern());
+            }
+
+            if((flags & DECORATION_INNER_NAME) != 0) {
+                service.setDecorationInnerName(IOUtil.readUTF(in));
+            }
+
+            if((flags & PARENT) != 0) {
+                service.setParent(IOUtil.readUTF(in).intern());
+            }
+
+            // only non default values, same as json did
+            if((flags & PRIVATE) != 0) {
+                service.setIsPublic(false);
+            }
+
+            if((flags & LAZY) != 0) {
+                service.setIsLazy(true);
+            }
+
+            if((flags & ABSTRACT) != 0) {
+                service.setIsAbstract(true);
+            }
+
+            if((flags & AUTOWIRE) != 0) {
+                service.setIsAutowire(true);
+            }
+
+            if((flags & DEPRECATED) != 0) {
+                service.setIsDeprecated(true);
+            }
+
+            return service;
         }
     }
 
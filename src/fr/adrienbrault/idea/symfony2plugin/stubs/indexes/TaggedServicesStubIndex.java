@@ -0,0 +1,126 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
+
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.form.util.FormUtil;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.yaml.YAMLFileType;
+import org.jetbrains.yaml.psi.YAMLFile;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse of ServicesTagStubIndex: "tag name => service ids" of a file,
+ * so finding all services of one tag dont need to visit every service
+ */
+public class TaggedServicesStubIndex extends FileBasedIndexExtension<String, String[]> {
+
+    public static final ID<String, String[]> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.tagged_services");
+    private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+
+    @NotNull
+    @Override
+    public DataIndexer<String, String[], FileContent> getIndexer() {
+
+        return new DataIndexer<String, String[], FileContent>() {
+            @NotNull
+            @Override
+            public Map<String, String[]> map(@NotNull FileContent inputData) {
+
+                Map<String, String[]> map = new THashMap<String, String[]>();
+
+                PsiFile psiFile = inputData.getPsiFile();
+                if(!Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject())) {
+                    return map;
+                }
+
+                if (!ServicesDefinitionStubIndex.isValidForIndex(inputData, psiFile)) {
+                    return map;
+                }
+
+                if(psiFile instanceof YAMLFile) {
+                    this.attachInverted(FormUtil.getTags((YAMLFile) psiFile), map);
+                }
+
+                if(psiFile instanceof XmlFile) {
+                    this.attachInverted(FormUtil.getTags((XmlFile) psiFile), map);
+                }
+
+                return map;
+            }
+
+            private void attachInverted(Map<String, Set<String>> source, Map<String, String[]> target) {
+
+                Map<String, Set<String>> tagServices = new HashMap<String, Set<String>>();
+                for(Map.Entry<String, Set<String>> entry: source.entrySet()) {
+                    for(String tag: entry.getValue()) {
+                        Set<String> services = tagServices.get(tag);
+                        if(services == null) {
+                            services = new HashSet<String>();
+                            tagServices.put(tag, services);
+                        }
+
+                        services.add(entry.getKey());
+                    }
+                }
+
+                for(Map.Entry<String, Set<String>> entry: tagServices.entrySet()) {
+                    Set<String> services = entry.getValue();
+                    target.put(entry.getKey(), services.toArray(new String[services.size()]));
+                }
+            }
+
+        };
+    }
+
+    @NotNull
+    @Override
+    public ID<String, String[]> getName() {
+        return KEY;
+    }
+
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.myKeyDescriptor;
+    }
+
+    @NotNull
+    public DataExternalizer<String[]> getValueExternalizer() {
+        return new ServicesDefinitionStubIndex.MySetDataExternalizer();
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new FileBasedIndex.InputFilter() {
+            @Override
+            public boolean acceptInput(@NotNull VirtualFile file) {
+                return file.getFileType() == XmlFileType.INSTANCE || file.getFileType() == YAMLFileType.YML;
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+}
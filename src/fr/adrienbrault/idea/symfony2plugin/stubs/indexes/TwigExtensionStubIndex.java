@@ -0,0 +1,190 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import com.jetbrains.php.lang.psi.stubs.indexes.PhpConstantNameIndex;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Twig filter, function, test and operator name => all extensions providing it in file
+ *
+ * Classes are detected by their extension methods and not by class hierarchy, which is unknown while indexing;
+ * SymfonyModificationTrackers uses the same rule, so every indexed class also invalidates the extension caches
+ */
+public class TwigExtensionStubIndex extends FileBasedIndexExtension<String, Collection<TwigExtension>> {
+
+    public static final ID<String, Collection<TwigExtension>> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.twig_extension");
+    private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+    private static final TwigExtensionExternalizer EXTERNALIZER = new TwigExtensionExternalizer();
+
+    private static final int MAX_FILE_BYTE_SIZE = 1048576;
+
+    @NotNull
+    @Override
+    public ID<String, Collection<TwigExtension>> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Collection<TwigExtension>, FileContent> getIndexer() {
+        return new DataIndexer<String, Collection<TwigExtension>, FileContent>() {
+            @NotNull
+            @Override
+            public Map<String, Collection<TwigExtension>> map(@NotNull FileContent inputData) {
+                Map<String, Collection<TwigExtension>> map = new THashMap<String, Collection<TwigExtension>>();
+
+                PsiFile psiFile = inputData.getPsiFile();
+                if(!(psiFile instanceof PhpFile) || !Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject())) {
+                    return map;
+                }
+
+                if(!isValidForIndex(inputData, psiFile)) {
+                    return map;
+                }
+
+                for (PhpClass phpClass : PsiTreeUtil.findChildrenOfType(psiFile, PhpClass.class)) {
+                    if(!TwigExtensionParser.hasExtensionMethods(phpClass)) {
+                        continue;
+                    }
+
+                    for (Map<String, TwigExtension> extensions : TwigExtensionParser.parseExtensions(phpClass).values()) {
+                        for (Map.Entry<String, TwigExtension> entry : extensions.entrySet()) {
+                            if(!map.containsKey(entry.getKey())) {
+                                map.put(entry.getKey(), new ArrayList<TwigExtension>());
+                            }
+
+                            map.get(entry.getKey()).add(entry.getValue());
+                        }
+                    }
+                }
+
+                return map;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.myKeyDescriptor;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<Collection<TwigExtension>> getValueExternalizer() {
+        return EXTERNALIZER;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return PhpConstantNameIndex.PHP_INPUT_FILTER;
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    /**
+     * Twig extensions are also part of test or fixture folders, so unlike our other php indexes we dont filter on path.
+     * Content must hold one of the extension method names, so most files dont need any psi visiting.
+     */
+    private static boolean isValidForIndex(@NotNull FileContent inputData, @NotNull PsiFile psiFile) {
+
+        if(psiFile.getName().startsWith(".") || inputData.getFile().getLength() > MAX_FILE_BYTE_SIZE) {
+            return false;
+        }
+
+        String content = inputData.getContentAsText().toString();
+        for (String methodName : TwigExtensionParser.EXTENSION_METHODS) {
+            if(content.contains(methodName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class TwigExtensionExternalizer implements DataExternalizer<Collection<TwigExtension>> {
+
+        private static final TwigExtensionParser.TwigExtensionType[] TYPES = TwigExtensionParser.TwigExtensionType.values();
+
+        @Override
+        public void save(@NotNull DataOutput out, Collection<TwigExtension> twigExtensions) throws IOException {
+
+            DataInputOutputUtil.writeINT(out, twigExtensions.size());
+
+            for (TwigExtension twigExtension : twigExtensions) {
+                DataInputOutputUtil.writeINT(out, twigExtension.getTwigExtensionType().ordinal());
+
+                String signature = twigExtension.getSignature();
+                out.writeBoolean(signature != null);
+                if(signature != null) {
+                    IOUtil.writeUTF(out, signature);
+                }
+
+                Map<String, String> options = twigExtension.getOptions();
+                DataInputOutputUtil.writeINT(out, options.size());
+                for (Map.Entry<String, String> entry : options.entrySet()) {
+                    IOUtil.writeUTF(out, entry.getKey());
+                    IOUtil.writeUTF(out, entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public Collection<TwigExtension> read(@NotNull DataInput in) throws IOException {
+
+            int size = DataInputOutputUtil.readINT(in);
+
+            List<TwigExtension> twigExtensions = new ArrayList<TwigExtension>(size);
+            for (int i = 0; i < size; i++) {
+                TwigExtensionParser.TwigExtensionType type = TYPES[DataInputOutputUtil.readINT(in)];
+
+                String signature = null;
+                if(in.readBoolean()) {
+                    signature = IOUtil.readUTF(in);
+                }
+
+                TwigExtension twigExtension = new TwigExtension(type, signature);
+
+                int options = DataInputOutputUtil.readINT(in);
+                for (int j = 0; j < options; j++) {
+                    twigExtension.putOption(IOUtil.readUTF(in), IOUtil.readUTF(in));
+                }
+
+                twigExtensions.add(twigExtension);
+            }
+
+            return twigExtensions;
+        }
+    }
+
+}
@@ -1,8 +1,18 @@
 package fr.adrienbrault.idea.symfony2plugin.stubs.util;
 
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
 import com.intellij.util.indexing.FileBasedIndexImpl;
 import com.intellij.util.indexing.ID;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
 
 public class IndexUtil {
 
@@ -13,6 +23,7 @@ public class IndexUtil {
             AnnotationRoutesStubIndex.KEY,
             ContainerParameterStubIndex.KEY,
             ServicesTagStubIndex.KEY,
+            TaggedServicesStubIndex.KEY,
             TwigExtendsStubIndex.KEY,
             TwigIncludeStubIndex.KEY,
             TwigMacroFromStubIndex.KEY,
@@ -21,6 +32,9 @@ public class IndexUtil {
             YamlTranslationStubIndex.KEY,
             DoctrineMetadataFileStubIndex.KEY,
             FileResourcesIndex.KEY,
+            TwigExtensionStubIndex.KEY,
+            ConsoleCommandStubIndex.KEY,
+            DoctrineTableStubIndex.KEY,
         };
 
         for(ID<?,?> id: indexIds) {
@@ -30,4 +44,48 @@ public class IndexUtil {
 
     }
 
+    /**
+     * Files containing any of the given keys, eg all template name aliases of one file.
+     * FileBasedIndex.getFilesWithKey only returns files containing all keys and there is no api for the union,
+     * so its still one index lookup per distinct key; all of them feed the same processor and file set
+     */
+    @NotNull
+    public static <V> Set<VirtualFile> getFilesWithAnyKey(@NotNull ID<String, V> id, @NotNull Collection<String> keys, @NotNull GlobalSearchScope scope) {
+
+        final Set<VirtualFile> virtualFiles = new LinkedHashSet<VirtualFile>();
+
+        FileBasedIndex.ValueProcessor<V> processor = new FileBasedIndex.ValueProcessor<V>() {
+            @Override
+            public boolean process(VirtualFile virtualFile, V value) {
+                virtualFiles.add(virtualFile);
+                return true;
+            }
+        };
+
+        for (String key : new HashSet<String>(keys)) {
+            FileBasedIndex.getInstance().processValues(id, key, null, processor, scope);
+        }
+
+        return virtualFiles;
+    }
+
+    /**
+     * Same as getFilesWithAnyKey, restricted to file types and resolved to psi files
+     */
+    @NotNull
+    public static Collection<PsiFile> getPsiFilesWithAnyKey(@NotNull Project project, @NotNull ID<String, ?> id, @NotNull Collection<String> keys, @NotNull FileType... fileTypes) {
+
+        GlobalSearchScope scope = GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), fileTypes);
+
+        Collection<PsiFile> psiFiles = new ArrayList<PsiFile>();
+        for (VirtualFile virtualFile : getFilesWithAnyKey(id, keys, scope)) {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
+            if(psiFile != null) {
+                psiFiles.add(psiFile);
+            }
+        }
+
+        return psiFiles;
+    }
+
 }
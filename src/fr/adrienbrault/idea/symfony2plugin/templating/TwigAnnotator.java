@@ -12,7 +12,6 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
 import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetDirectoryReader;
-import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetFile;
 import fr.adrienbrault.idea.symfony2plugin.routing.PhpRoutingAnnotator;
 import fr.adrienbrault.idea.symfony2plugin.templating.assets.TwigNamedAssetsServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
@@ -161,10 +160,8 @@ public class TwigAnnotator implements Annotator {
             return;
         }
 
-        for (final AssetFile assetFile : new AssetDirectoryReader().setProject(element.getProject()).getAssetFiles()) {
-            if(assetFile.toString().equals(element.getText())) {
-                return;
-            }
+        if(new AssetDirectoryReader().setProject(element.getProject()).findAssetFiles(element.getText()).size() > 0) {
+            return;
         }
 
         holder.createWarningAnnotation(element, "Missing asset");
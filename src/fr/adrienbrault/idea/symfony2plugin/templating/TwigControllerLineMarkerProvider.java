@@ -9,13 +9,9 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiElementFilter;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.ConstantFunction;
-import com.intellij.util.Processor;
-import com.intellij.util.indexing.FileBasedIndexImpl;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.twig.TwigFile;
@@ -27,6 +23,7 @@ import fr.adrienbrault.idea.symfony2plugin.dic.RelatedPopupGotoLineMarker;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtendsStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigMacroFromStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.util.IndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateFileMap;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import icons.TwigIcons;
@@ -120,24 +117,9 @@ public class TwigControllerLineMarkerProvider implements LineMarkerProvider {
 
         TemplateFileMap files = getTemplateFilesByName(twigFile.getProject());
 
-        final Collection<PsiFile> targets = new ArrayList<PsiFile>();
-        for(String templateName: TwigUtil.getTemplateName(twigFile.getVirtualFile(), files)) {
-
-            final Project project = twigFile.getProject();
-            FileBasedIndexImpl.getInstance().getFilesWithKey(TwigIncludeStubIndex.KEY, new HashSet<String>(Arrays.asList(templateName)), new Processor<VirtualFile>() {
-                @Override
-                public boolean process(VirtualFile virtualFile) {
-                    PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
-
-                    if(psiFile != null) {
-                        targets.add(psiFile);
-                    }
-
-                    return true;
-                }
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE));
-
-        }
+        Collection<PsiFile> targets = IndexUtil.getPsiFilesWithAnyKey(
+            twigFile.getProject(), TwigIncludeStubIndex.KEY, TwigUtil.getTemplateName(twigFile.getVirtualFile(), files), TwigFileType.INSTANCE
+        );
 
         if(targets.size() == 0) {
             return null;
@@ -192,24 +174,9 @@ public class TwigControllerLineMarkerProvider implements LineMarkerProvider {
 
         TemplateFileMap files = getTemplateFilesByName(twigFile.getProject());
 
-        final Collection<PsiFile> targets = new ArrayList<PsiFile>();
-        for(String templateName: files.getNames(twigFile.getVirtualFile())) {
-
-            final Project project = twigFile.getProject();
-            FileBasedIndexImpl.getInstance().getFilesWithKey(TwigMacroFromStubIndex.KEY, new HashSet<String>(Arrays.asList(templateName)), new Processor<VirtualFile>() {
-                @Override
-                public boolean process(VirtualFile virtualFile) {
-                    PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
-
-                    if(psiFile != null) {
-                        targets.add(psiFile);
-                    }
-
-                    return true;
-                }
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE));
-
-        }
+        Collection<PsiFile> targets = IndexUtil.getPsiFilesWithAnyKey(
+            twigFile.getProject(), TwigMacroFromStubIndex.KEY, files.getNames(twigFile.getVirtualFile()), TwigFileType.INSTANCE
+        );
 
         if(targets.size() == 0) {
             return null;
@@ -322,35 +289,17 @@ public class TwigControllerLineMarkerProvider implements LineMarkerProvider {
             return;
         }
 
-        // use set here, we have multiple shortcut on one file, but only one is required
-        final HashSet<VirtualFile> virtualFiles = new LinkedHashSet<VirtualFile>();
-
+        // we have multiple shortcut on one file, all of them are resolved at once
+        Set<String> templateNames = new HashSet<String>();
         for(Map.Entry<String, VirtualFile> entry: files.entrySet()) {
-
-            // getFilesWithKey dont support keyset with > 1 items (bug?), so we cant merge calls
             if(entry.getValue().equals(psiFile.getVirtualFile())) {
-                String key = entry.getKey();
-                FileBasedIndexImpl.getInstance().getFilesWithKey(TwigExtendsStubIndex.KEY, new HashSet<String>(Arrays.asList(key)), new Processor<VirtualFile>() {
-                    @Override
-                    public boolean process(VirtualFile virtualFile) {
-                        virtualFiles.add(virtualFile);
-                        return true;
-                    }
-                }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(psiFile.getProject()), TwigFileType.INSTANCE));
-
+                templateNames.add(entry.getKey());
             }
-
         }
 
-        // finally resolve virtual file to twig files
-        for(VirtualFile virtualFile: virtualFiles) {
-
-            PsiFile resolvedPsiFile = PsiManager.getInstance(psiFile.getProject()).findFile(virtualFile);
-            if(resolvedPsiFile != null) {
-                twigChild.add(resolvedPsiFile);
-                getTwigChildList(files, resolvedPsiFile, twigChild, --depth);
-            }
-
+        for(PsiFile resolvedPsiFile: IndexUtil.getPsiFilesWithAnyKey(psiFile.getProject(), TwigExtendsStubIndex.KEY, templateNames, TwigFileType.INSTANCE)) {
+            twigChild.add(resolvedPsiFile);
+            getTwigChildList(files, resolvedPsiFile, twigChild, --depth);
         }
 
     }
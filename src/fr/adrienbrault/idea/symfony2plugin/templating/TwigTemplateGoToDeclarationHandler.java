@@ -134,12 +134,12 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
     }
 
     private PsiElement[] getFilterGoTo(PsiElement psiElement) {
-        Map<String, TwigExtension> filters = new TwigExtensionParser(psiElement.getProject()).getFilters();
-        if(!filters.containsKey(psiElement.getText())) {
+        TwigExtension twigExtension = TwigExtensionParser.getExtension(psiElement.getProject(), TwigExtensionParser.TwigElementType.FILTER, psiElement.getText());
+        if(twigExtension == null) {
             return new PsiElement[0];
         }
 
-        String signature = filters.get(psiElement.getText()).getSignature();
+        String signature = twigExtension.getSignature();
         if(signature == null) {
             return new PsiElement[0];
         }
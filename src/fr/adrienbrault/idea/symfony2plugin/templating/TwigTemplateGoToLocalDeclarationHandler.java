@@ -249,14 +249,12 @@ public class TwigTemplateGoToLocalDeclarationHandler implements GotoDeclarationH
     }
 
     private PsiElement[] getFunctions(PsiElement psiElement) {
-        Map<String, TwigExtension> functions = new TwigExtensionParser(psiElement.getProject()).getFunctions();
-
-        String funcName = psiElement.getText();
-        if(!functions.containsKey(funcName)) {
+        TwigExtension twigExtension = TwigExtensionParser.getExtension(psiElement.getProject(), TwigExtensionParser.TwigElementType.METHOD, psiElement.getText());
+        if(twigExtension == null || twigExtension.getSignature() == null) {
             return new PsiElement[0];
         }
 
-        return PhpElementsUtil.getPsiElementsBySignature(psiElement.getProject(), functions.get(funcName).getSignature());
+        return PhpElementsUtil.getPsiElementsBySignature(psiElement.getProject(), twigExtension.getSignature());
      }
 
     private PsiElement[] getSets(PsiElement psiElement) {
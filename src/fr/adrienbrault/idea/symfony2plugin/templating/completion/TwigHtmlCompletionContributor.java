@@ -14,8 +14,6 @@ import fr.adrienbrault.idea.symfony2plugin.routing.RouteLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigHtmlCompletionUtil;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 public class TwigHtmlCompletionContributor extends CompletionContributor {
 
     public TwigHtmlCompletionContributor() {
@@ -38,15 +36,17 @@ public class TwigHtmlCompletionContributor extends CompletionContributor {
                     return;
                 }
 
-                List<LookupElement> routesLookupElements = RouteHelper.getRoutesLookupElements(parameters.getPosition().getProject());
-                for(LookupElement element: routesLookupElements) {
+                // lookup elements are shared, so dont attach our insert handler to them
+                for(LookupElement element: RouteHelper.getRoutesLookupElements(parameters.getPosition().getProject())) {
                     if(element instanceof RouteLookupElement) {
-                        ((RouteLookupElement) element).withInsertHandler(TwigPathFunctionInsertHandler.getInstance());
+                        RouteLookupElement routeLookupElement = new RouteLookupElement(((RouteLookupElement) element).getRoute(), ((RouteLookupElement) element).isWeak());
+                        routeLookupElement.withInsertHandler(TwigPathFunctionInsertHandler.getInstance());
+                        resultSet.addElement(routeLookupElement);
+                    } else {
+                        resultSet.addElement(element);
                     }
                 }
 
-                resultSet.addAllElements(routesLookupElements);
-
             }
         });
 
@@ -58,7 +58,7 @@ public class TwigHtmlCompletionContributor extends CompletionContributor {
                     return;
                 }
 
-                for (AssetFile assetFile : new AssetDirectoryReader().setProject(parameters.getPosition().getProject()).setFilterExtension(TwigHelper.CSS_FILES_EXTENSIONS).setIncludeBundleDir(false).getAssetFiles()) {
+                for (AssetFile assetFile : new AssetDirectoryReader().setProject(parameters.getPosition().getProject()).setFilterExtension(TwigHelper.CSS_FILES_EXTENSIONS).setIncludeBundleDir(false).setPrefix(resultSet.getPrefixMatcher().getPrefix()).getAssetFiles()) {
                     resultSet.addElement(new AssetLookupElement(assetFile, parameters.getPosition().getProject()).withInsertHandler(TwigAssetFunctionInsertHandler.getInstance()));
                 }
 
@@ -74,7 +74,7 @@ public class TwigHtmlCompletionContributor extends CompletionContributor {
                     return;
                 }
 
-                for (AssetFile assetFile : new AssetDirectoryReader().setProject(parameters.getPosition().getProject()).setFilterExtension(TwigHelper.JS_FILES_EXTENSIONS).setIncludeBundleDir(false).getAssetFiles()) {
+                for (AssetFile assetFile : new AssetDirectoryReader().setProject(parameters.getPosition().getProject()).setFilterExtension(TwigHelper.JS_FILES_EXTENSIONS).setIncludeBundleDir(false).setPrefix(resultSet.getPrefixMatcher().getPrefix()).getAssetFiles()) {
                     resultSet.addElement(new AssetLookupElement(assetFile, parameters.getPosition().getProject()).withInsertHandler(TwigAssetFunctionInsertHandler.getInstance()));
                 }
 
@@ -90,7 +90,7 @@ public class TwigHtmlCompletionContributor extends CompletionContributor {
                     return;
                 }
 
-                for (AssetFile assetFile : new AssetDirectoryReader().setProject(parameters.getPosition().getProject()).setFilterExtension(TwigHelper.IMG_FILES_EXTENSIONS).setIncludeBundleDir(false).getAssetFiles()) {
+                for (AssetFile assetFile : new AssetDirectoryReader().setProject(parameters.getPosition().getProject()).setFilterExtension(TwigHelper.IMG_FILES_EXTENSIONS).setIncludeBundleDir(false).setPrefix(resultSet.getPrefixMatcher().getPrefix()).getAssetFiles()) {
                     resultSet.addElement(new AssetLookupElement(assetFile, parameters.getPosition().getProject()).withInsertHandler(TwigAssetFunctionInsertHandler.getInstance()));
                 }
 
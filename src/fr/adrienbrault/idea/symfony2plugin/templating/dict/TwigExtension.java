@@ -1,8 +1,10 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.dict;
 
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,4 +46,9 @@ public class TwigExtension {
         return options.containsKey(key) ? options.get(key) : null;
     }
 
+    @NotNull
+    public Map<String, String> getOptions() {
+        return Collections.unmodifiableMap(options);
+    }
+
 }
@@ -1,14 +1,14 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.globals;
 
-import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceStreamParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerStreamArgument;
+import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class TwigGlobalsServiceParser extends AbstractServiceParser {
+public class TwigGlobalsServiceParser extends AbstractServiceStreamParser {
 
     protected Map<String, TwigGlobalVariable> twigGlobals = new ConcurrentHashMap<String, TwigGlobalVariable>();
 
@@ -17,36 +17,24 @@ public class TwigGlobalsServiceParser extends AbstractServiceParser {
         return "/container/services/service[@id='twig']//call[@method='addGlobal']";
     }
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
+    @Override
+    public void visitServiceMethodCall(@NotNull Map<String, String> serviceAttributes, @NotNull String method, @NotNull List<ContainerStreamArgument> arguments) {
+        if(!"twig".equals(serviceAttributes.get("id")) || !"addGlobal".equals(method) || arguments.size() != 2) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-
-            NodeList arguments = node.getElementsByTagName("argument");
-
-            if(arguments.getLength() == 2) {
-                String globalName = arguments.item(0).getTextContent();
-
-                Element nodeValue = (Element) arguments.item(1);
-                if(nodeValue.hasAttribute("id")) {
-                    this.twigGlobals.put(globalName, new TwigGlobalVariable(globalName, nodeValue.getAttribute("id"), TwigGlobalEnum.SERVICE));
-                } else {
-                    this.twigGlobals.put(globalName, new TwigGlobalVariable(globalName, arguments.item(1).getTextContent(), TwigGlobalEnum.TEXT));
-                }
-
-            }
+        String globalName = arguments.get(0).getText();
 
+        Map<String, String> valueAttributes = arguments.get(1).getAttributes();
+        if(valueAttributes.containsKey("id")) {
+            this.twigGlobals.put(globalName, new TwigGlobalVariable(globalName, valueAttributes.get("id"), TwigGlobalEnum.SERVICE));
+        } else {
+            this.twigGlobals.put(globalName, new TwigGlobalVariable(globalName, arguments.get(1).getText(), TwigGlobalEnum.TEXT));
         }
-
     }
 
     public Map<String, TwigGlobalVariable> getTwigGlobals() {
         return twigGlobals;
     }
 
-}
\ No newline at end of file
+}
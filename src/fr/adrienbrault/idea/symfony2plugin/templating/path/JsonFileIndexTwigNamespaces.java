@@ -13,9 +13,9 @@ import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.CachedValue;
 import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValuesManager;
-import com.intellij.psi.util.PsiModificationTracker;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtensionParameter;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigConfigJson;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.dict.TwigPathJson;
 import fr.adrienbrault.idea.symfony2plugin.util.VfsExUtil;
@@ -42,7 +42,7 @@ public class JsonFileIndexTwigNamespaces implements TwigNamespaceExtension {
                 @Nullable
                 @Override
                 public Result<Collection<TwigPath>> compute() {
-                    return Result.create(getNamespacesInner(parameter), PsiModificationTracker.MODIFICATION_COUNT);
+                    return Result.create(getNamespacesInner(parameter), SymfonyModificationTrackers.getTemplateTracker(parameter.getProject()));
                 }
             }, false);
 
@@ -6,13 +6,17 @@ import com.intellij.openapi.util.Key;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.*;
+import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.parser.PhpElementTypes;
 import com.jetbrains.php.lang.psi.PhpPsiUtil;
 import com.jetbrains.php.lang.psi.elements.*;
-import com.jetbrains.php.phpunit.PhpUnitUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtensionStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
@@ -23,50 +27,35 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.*;
 import java.util.*;
 
+/**
+ * Filters, functions, tests and operators of all Twig extensions; values are provided by TwigExtensionStubIndex
+ */
 public class TwigExtensionParser  {
 
-    private static final Key<CachedValue<Map<String, TwigExtension>>> FUNCTION_CACHE = new Key<CachedValue<Map<String, TwigExtension>>>("TWIG_EXTENSIONS_FUNCTION");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> TEST_CACHE = new Key<CachedValue<Map<String, TwigExtension>>>("TWIG_EXTENSIONS_TEST");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> FILTERS_CACHE = new Key<CachedValue<Map<String, TwigExtension>>>("TWIG_EXTENSIONS_FILTERS");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> OPERATORS_CACHE = new Key<CachedValue<Map<String, TwigExtension>>>("TWIG_EXTENSIONS_OPERATORS");
+    private static final Key<CachedValue<Map<TwigElementType, Map<String, TwigExtension>>>> EXTENSIONS_CACHE = new Key<CachedValue<Map<TwigElementType, Map<String, TwigExtension>>>>("TWIG_EXTENSIONS");
 
     private Project project;
 
-    private Map<String, TwigExtension> functions;
-    private Map<String, TwigExtension> simpleTest;
-    private Map<String, TwigExtension> filters;
-    private Map<String, TwigExtension> operators;
+    private Map<TwigElementType, Map<String, TwigExtension>> extensions;
 
     public TwigExtensionParser(@NotNull Project project) {
         this.project = project;
     }
 
     public Map<String, TwigExtension> getFunctions() {
-        if(functions == null) {
-            this.parseElementType(TwigElementType.METHOD);
-        }
-        return functions;
+        return getExtensions(TwigElementType.METHOD);
     }
 
     public Map<String, TwigExtension> getFilters() {
-        if(filters == null) {
-            this.parseElementType(TwigElementType.FILTER);
-        }
-        return filters;
+        return getExtensions(TwigElementType.FILTER);
     }
 
     public Map<String, TwigExtension> getSimpleTest() {
-        if(simpleTest == null) {
-            this.parseElementType(TwigElementType.SIMPLE_TEST);
-        }
-        return simpleTest;
+        return getExtensions(TwigElementType.SIMPLE_TEST);
     }
 
     public Map<String, TwigExtension> getOperators() {
-        if(operators == null) {
-            this.parseElementType(TwigElementType.OPERATOR);
-        }
-        return operators;
+        return getExtensions(TwigElementType.OPERATOR);
     }
 
     public enum TwigElementType {
@@ -77,145 +66,169 @@ public class TwigExtensionParser  {
         FUNCTION_METHOD, FUNCTION_NODE, SIMPLE_FUNCTION, FILTER, SIMPLE_TEST, OPERATOR
     }
 
-    private void parseElementType(TwigElementType type) {
+    @NotNull
+    private Map<String, TwigExtension> getExtensions(@NotNull TwigElementType type) {
+        if(this.extensions == null) {
+            this.extensions = getExtensions(this.project);
+        }
 
-        if(type.equals(TwigElementType.FILTER)) {
+        Map<String, TwigExtension> extensions = this.extensions.get(type);
+        return extensions != null ? extensions : Collections.<String, TwigExtension>emptyMap();
+    }
 
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(FILTERS_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, TwigExtension>>() {
-                    @Nullable
-                    @Override
-                    public Result<Map<String, TwigExtension>> compute() {
-                        return Result.create(parseFilters(getTwigExtensionClasses()), PsiModificationTracker.MODIFICATION_COUNT);
-                    }
-                }, false);
+    /**
+     * Single name lookup, without collecting all extensions of project
+     */
+    @Nullable
+    public static TwigExtension getExtension(@NotNull Project project, @NotNull TwigElementType type, @NotNull String name) {
 
-                project.putUserData(FILTERS_CACHE, cache);
+        for (Collection<TwigExtension> twigExtensions : FileBasedIndex.getInstance().getValues(TwigExtensionStubIndex.KEY, name, GlobalSearchScope.allScope(project))) {
+            for (TwigExtension twigExtension : twigExtensions) {
+                if(getElementType(twigExtension.getTwigExtensionType()) == type) {
+                    return twigExtension;
+                }
             }
+        }
 
-            this.filters = cache.getValue();
-
-        } else if(type.equals(TwigElementType.METHOD)) {
-
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(FUNCTION_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, TwigExtension>>() {
-                    @Nullable
-                    @Override
-                    public Result<Map<String, TwigExtension>> compute() {
-                        return Result.create(parseFunctions(getTwigExtensionClasses()), PsiModificationTracker.MODIFICATION_COUNT);
-                    }
-                }, false);
+        return null;
+    }
 
-                project.putUserData(FUNCTION_CACHE, cache);
-            }
+    @NotNull
+    public static TwigElementType getElementType(@NotNull TwigExtensionType type) {
+        switch (type) {
+            case FILTER:
+                return TwigElementType.FILTER;
+            case SIMPLE_TEST:
+                return TwigElementType.SIMPLE_TEST;
+            case OPERATOR:
+                return TwigElementType.OPERATOR;
+            default:
+                return TwigElementType.METHOD;
+        }
+    }
 
-            this.functions = cache.getValue();
+    @NotNull
+    private static Map<TwigElementType, Map<String, TwigExtension>> getExtensions(@NotNull final Project project) {
 
-        } else if(type.equals(TwigElementType.SIMPLE_TEST)) {
+        CachedValue<Map<TwigElementType, Map<String, TwigExtension>>> cache = project.getUserData(EXTENSIONS_CACHE);
+        if(cache == null) {
+            cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<TwigElementType, Map<String, TwigExtension>>>() {
+                @Nullable
+                @Override
+                public Result<Map<TwigElementType, Map<String, TwigExtension>>> compute() {
+                    return Result.create(getExtensionsProxy(project), SymfonyModificationTrackers.getTwigExtensionTracker(project));
+                }
+            }, false);
 
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(TEST_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, TwigExtension>>() {
-                    @Nullable
-                    @Override
-                    public Result<Map<String, TwigExtension>> compute() {
-                        return Result.create(parseTests(getTwigExtensionClasses()), PsiModificationTracker.MODIFICATION_COUNT);
-                    }
-                }, false);
+            project.putUserData(EXTENSIONS_CACHE, cache);
+        }
 
-                project.putUserData(TEST_CACHE, cache);
-            }
+        return cache.getValue();
+    }
 
-            this.simpleTest = cache.getValue();
+    @NotNull
+    private static Map<TwigElementType, Map<String, TwigExtension>> getExtensionsProxy(@NotNull Project project) {
 
-        } else if(type.equals(TwigElementType.OPERATOR)) {
+        Map<TwigElementType, Map<String, TwigExtension>> extensions = new EnumMap<TwigElementType, Map<String, TwigExtension>>(TwigElementType.class);
+        for (TwigElementType type : TwigElementType.values()) {
+            extensions.put(type, new HashMap<String, TwigExtension>());
+        }
 
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(OPERATORS_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, TwigExtension>>() {
-                    @Nullable
-                    @Override
-                    public Result<Map<String, TwigExtension>> compute() {
-                        return Result.create(parseOperators(getTwigExtensionClasses()), PsiModificationTracker.MODIFICATION_COUNT);
-                    }
-                }, false);
+        SymfonyProcessors.CollectProjectUniqueKeys projectUniqueKeys = new SymfonyProcessors.CollectProjectUniqueKeys(project, TwigExtensionStubIndex.KEY);
+        FileBasedIndex.getInstance().processAllKeys(TwigExtensionStubIndex.KEY, projectUniqueKeys, project);
 
-                project.putUserData(OPERATORS_CACHE, cache);
+        for (String name : projectUniqueKeys.getResult()) {
+            for (Collection<TwigExtension> twigExtensions : FileBasedIndex.getInstance().getValues(TwigExtensionStubIndex.KEY, name, GlobalSearchScope.allScope(project))) {
+                for (TwigExtension twigExtension : twigExtensions) {
+                    extensions.get(getElementType(twigExtension.getTwigExtensionType())).put(name, twigExtension);
+                }
             }
-
-            this.operators = cache.getValue();
         }
-    }
 
-    private Collection<PhpClass> getTwigExtensionClasses() {
+        for (TwigElementType type : TwigElementType.values()) {
+            extensions.put(type, Collections.unmodifiableMap(extensions.get(type)));
+        }
 
-        Collection<PhpClass> phpClasses = new ArrayList<PhpClass>();
+        return extensions;
+    }
 
-        // only the interface gave use all elements; service container dont hold all
-        for(PhpClass phpClass : PhpIndex.getInstance(this.project).getAllSubclasses("\\Twig_ExtensionInterface")) {
+    /**
+     * Methods parseExtensions is looking at; a class without them cant provide any extension
+     */
+    public static final String[] EXTENSION_METHODS = new String[] {"getFilters", "getFunctions", "getTests", "getOperators"};
 
-            // dont add unit tests classes
-            if(PhpUnitUtil.isPhpUnitTestFile(phpClass.getContainingFile())) {
-                continue;
+    /**
+     * Cheap psi check without any index or class hierarchy, so its usable in psi listeners
+     */
+    public static boolean hasExtensionMethods(@NotNull PhpClass phpClass) {
+        for (String methodName : EXTENSION_METHODS) {
+            if(phpClass.findOwnMethodByName(methodName) != null) {
+                return true;
             }
-
-            phpClasses.add(phpClass);
         }
 
-        return phpClasses;
+        return false;
     }
 
-    private Map<String, TwigExtension> parseFilters(Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<String, TwigExtension>();
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getFilters");
-            if(method != null) {
-                parseFilter(method, extensions);
-            }
+    /**
+     * Visit the extension methods of given class; used by our index so only psi of the file itself is allowed here
+     */
+    @NotNull
+    public static Map<TwigElementType, Map<String, TwigExtension>> parseExtensions(@NotNull PhpClass phpClass) {
+
+        Map<TwigElementType, Map<String, TwigExtension>> extensions = new EnumMap<TwigElementType, Map<String, TwigExtension>>(TwigElementType.class);
+
+        Method method = phpClass.findOwnMethodByName("getFilters");
+        if(method != null) {
+            extensions.put(TwigElementType.FILTER, parseFilter(method, new HashMap<String, TwigExtension>()));
         }
 
-        return extensions;
-    }
+        method = phpClass.findOwnMethodByName("getFunctions");
+        if(method != null) {
+            extensions.put(TwigElementType.METHOD, parseFunctions(method, new HashMap<String, TwigExtension>()));
+        }
 
-    private Map<String, TwigExtension> parseFunctions(Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<String, TwigExtension>();
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getFunctions");
-            if(method != null) {
-                parseFunctions(method, extensions);
-            }
+        method = phpClass.findOwnMethodByName("getTests");
+        if(method != null) {
+            extensions.put(TwigElementType.SIMPLE_TEST, parseSimpleTest(method, new HashMap<String, TwigExtension>()));
+        }
+
+        // operators are plain arrays, so we need some more evidence of a Twig extension
+        method = phpClass.findOwnMethodByName("getOperators");
+        if(method != null && (extensions.size() > 0 || phpClass.findOwnMethodByName("getName") != null)) {
+            extensions.put(TwigElementType.OPERATOR, parseOperators(method, new HashMap<String, TwigExtension>()));
         }
 
         return extensions;
     }
 
-    private Map<String, TwigExtension> parseTests(Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<String, TwigExtension>();
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getTests");
-            if(method != null) {
-                parseSimpleTest(method, extensions);
-            }
+    /**
+     * Instance check on class name only; php index is not available while indexing
+     */
+    private static boolean isNewExpressionOf(@NotNull NewExpression newExpression, @NotNull String className) {
+        ClassReference classReference = newExpression.getClassReference();
+        if(classReference == null) {
+            return false;
         }
 
-        return extensions;
+        String fqn = classReference.getFQN();
+        return fqn != null && fqn.equalsIgnoreCase("\\" + className);
     }
 
-    private Map<String, TwigExtension> parseOperators(Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<String, TwigExtension>();
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getOperators");
-            if(method != null) {
-                parseOperators(method, extensions);
-            }
+    /**
+     * String literal only; resolving references needs the php index
+     */
+    @Nullable
+    private static String getStringContents(@Nullable PsiElement psiElement) {
+        if(!(psiElement instanceof StringLiteralExpression)) {
+            return null;
         }
 
-        return extensions;
+        String contents = ((StringLiteralExpression) psiElement).getContents();
+        return StringUtils.isEmpty(contents) ? null : contents;
     }
 
-    protected Map<String, TwigExtension> parseFunctions(final Method method, final Map<String, TwigExtension> filters) {
+    private static Map<String, TwigExtension> parseFunctions(final Method method, final Map<String, TwigExtension> filters) {
 
         final PhpClass containingClass = method.getContainingClass();
         if(containingClass == null) {
@@ -240,7 +253,7 @@ public class TwigExtensionParser  {
             if(arrayValues.size() > 1) {
                 PsiElement firstChild = arrayValues.get(0).getFirstChild();
                 if(firstChild instanceof Variable && "this".equals(((Variable) firstChild).getName())) {
-                    String methodName = PhpElementsUtil.getStringValue(arrayValues.get(1).getFirstChild());
+                    String methodName = getStringContents(arrayValues.get(1).getFirstChild());
                     if(StringUtils.isNotBlank(methodName)) {
                         PhpClass phpClass = method.getContainingClass();
                         if(phpClass != null) {
@@ -251,7 +264,7 @@ public class TwigExtensionParser  {
             }
 
         } else {
-            String funcTargetName = PhpElementsUtil.getStringValue(psiElement);
+            String funcTargetName = getStringContents(psiElement);
             if(funcTargetName != null) {
 
                 if(funcTargetName.contains("::")) {
@@ -269,7 +282,7 @@ public class TwigExtensionParser  {
         return null;
     }
 
-    protected Map<String, TwigExtension> parseFilter(Method method, Map<String, TwigExtension> filters) {
+    private static Map<String, TwigExtension> parseFilter(Method method, Map<String, TwigExtension> filters) {
 
 
         final PhpClass containingClass = method.getContainingClass();
@@ -282,7 +295,7 @@ public class TwigExtensionParser  {
         return filters;
 
     }
-    protected Map<String, TwigExtension> parseOperators(Method method, Map<String, TwigExtension> filters) {
+    private static Map<String, TwigExtension> parseOperators(Method method, Map<String, TwigExtension> filters) {
 
         final PhpClass containingClass = method.getContainingClass();
         if(containingClass == null) {
@@ -322,7 +335,7 @@ public class TwigExtensionParser  {
                         if(arrayValue instanceof ArrayCreationExpression) {
                             for (ArrayHashElement arrayHashElement : PsiTreeUtil.findChildrenOfType(arrayValue, ArrayHashElement.class)) {
                                 PhpPsiElement key = arrayHashElement.getKey();
-                                String stringValue = PhpElementsUtil.getStringValue(key);
+                                String stringValue = getStringContents(key);
                                 if(stringValue != null && StringUtils.isNotBlank(stringValue)) {
                                     filters.put(stringValue, new TwigExtension(TwigExtensionType.OPERATOR));
                                 }
@@ -338,7 +351,7 @@ public class TwigExtensionParser  {
 
     }
 
-    protected Map<String, TwigExtension> parseSimpleTest(Method method, Map<String, TwigExtension> filters) {
+    private static Map<String, TwigExtension> parseSimpleTest(Method method, Map<String, TwigExtension> filters) {
 
 
         final PhpClass containingClass = method.getContainingClass();
@@ -418,10 +431,10 @@ public class TwigExtensionParser  {
         private void visitNewExpression(NewExpression element) {
 
             // new \Twig_SimpleFunction('url', array($this, 'getUrl'), array('is_safe_callback' => array($this, 'isUrlGenerationSafe'))),
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_SimpleFilter")) {
+            if(isNewExpressionOf(element, "Twig_SimpleFilter")) {
                 PsiElement[] psiElement = element.getParameters();
                 if(psiElement.length > 0) {
-                    String funcName = PhpElementsUtil.getStringValue(psiElement[0]);
+                    String funcName = getStringContents(psiElement[0]);
                     if(funcName != null && !funcName.contains("*")) {
 
                         String signature = null;
@@ -444,13 +457,13 @@ public class TwigExtensionParser  {
             }
 
             // array('shuffle' => new Twig_Filter_Function('twig_shuffle_filter'),)
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_Filter_Function")) {
+            if(isNewExpressionOf(element, "Twig_Filter_Function")) {
                 PsiElement arrayValue = element.getParent();
                 if(arrayValue != null && arrayValue.getNode().getElementType() == PhpElementTypes.ARRAY_VALUE) {
                     PsiElement arrayHash = arrayValue.getParent();
                     if(arrayHash instanceof ArrayHashElement) {
                         PsiElement arrayKey = ((ArrayHashElement) arrayHash).getKey();
-                        String funcName = PhpElementsUtil.getStringValue(arrayKey);
+                        String funcName = getStringContents(arrayKey);
                         if(funcName != null && !funcName.contains("*")) {
 
                             PsiElement[] parameters = element.getParameters();
@@ -468,20 +481,20 @@ public class TwigExtensionParser  {
             }
 
             // return array('serialize'  => new \Twig_Filter_Method($this, 'serialize'), );
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_Filter_Method")) {
+            if(isNewExpressionOf(element, "Twig_Filter_Method")) {
                 PsiElement arrayValue = element.getParent();
                 if(arrayValue != null && arrayValue.getNode().getElementType() == PhpElementTypes.ARRAY_VALUE) {
                     PsiElement arrayHash = arrayValue.getParent();
                     if(arrayHash instanceof ArrayHashElement) {
                         PsiElement arrayKey = ((ArrayHashElement) arrayHash).getKey();
-                        String funcName = PhpElementsUtil.getStringValue(arrayKey);
+                        String funcName = getStringContents(arrayKey);
                         if(funcName != null && funcName.matches("\\w+")) {
 
                             PsiElement[] parameters = element.getParameters();
                             String signature = null;
                             if(parameters.length > 1) {
                                 if(parameters[0] instanceof Variable && "this".equals(((Variable) parameters[0]).getName())) {
-                                    String methodName = PhpElementsUtil.getStringValue(parameters[1]);
+                                    String methodName = getStringContents(parameters[1]);
                                     if(methodName != null) {
                                         String presentableFQN = containingClass.getPresentableFQN();
                                         if(presentableFQN != null) {
@@ -539,10 +552,10 @@ public class TwigExtensionParser  {
         private void visitNewExpression(NewExpression element) {
 
             // new \Twig_SimpleFunction('url', array($this, 'getUrl'), array('is_safe_callback' => array($this, 'isUrlGenerationSafe'))),
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_SimpleFunction")) {
+            if(isNewExpressionOf(element, "Twig_SimpleFunction")) {
                 PsiElement[] psiElement = element.getParameters();
                 if(psiElement.length > 0) {
-                    String funcName = PhpElementsUtil.getStringValue(psiElement[0]);
+                    String funcName = getStringContents(psiElement[0]);
                     if(funcName != null && !funcName.contains("*")) {
 
                         String signature = null;
@@ -565,20 +578,20 @@ public class TwigExtensionParser  {
             }
 
             //array('form_javascript' => new \Twig_Function_Method($this, 'renderJavascript', array('is_safe' => array('html'))),);
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_Function_Method")) {
+            if(isNewExpressionOf(element, "Twig_Function_Method")) {
                 PsiElement arrayValue = element.getParent();
                 if(arrayValue != null && arrayValue.getNode().getElementType() == PhpElementTypes.ARRAY_VALUE) {
                     PsiElement arrayHash = arrayValue.getParent();
                     if(arrayHash instanceof ArrayHashElement) {
                         PsiElement arrayKey = ((ArrayHashElement) arrayHash).getKey();
-                        String funcName = PhpElementsUtil.getStringValue(arrayKey);
+                        String funcName = getStringContents(arrayKey);
                         if(funcName != null && !funcName.contains("*")) {
 
                             PsiElement[] parameters = element.getParameters();
                             String signature = null;
                             if(parameters.length > 1) {
                                 if(parameters[0] instanceof Variable && "this".equals(((Variable) parameters[0]).getName())) {
-                                    String methodName = PhpElementsUtil.getStringValue(parameters[1]);
+                                    String methodName = getStringContents(parameters[1]);
                                     if(methodName != null) {
                                         String presentableFQN = containingClass.getPresentableFQN();
                                         if(presentableFQN != null) {
@@ -598,19 +611,19 @@ public class TwigExtensionParser  {
             }
 
             // array('form_help' => new \Twig_Function_Node('Symfony\Bridge\Twig\Node\SearchAndRenderBlockNode', array('is_safe' => array('html'))),)
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_Function_Node")) {
+            if(isNewExpressionOf(element, "Twig_Function_Node")) {
                 PsiElement arrayValue = element.getParent();
                 if(arrayValue != null && arrayValue.getNode().getElementType() == PhpElementTypes.ARRAY_VALUE) {
                     PsiElement arrayHash = arrayValue.getParent();
                     if(arrayHash instanceof ArrayHashElement) {
                         PsiElement arrayKey = ((ArrayHashElement) arrayHash).getKey();
-                        String funcName = PhpElementsUtil.getStringValue(arrayKey);
+                        String funcName = getStringContents(arrayKey);
                         if(funcName != null && !funcName.contains("*")) {
 
                             PsiElement[] parameters = element.getParameters();
                             String signature = null;
                             if(parameters.length > 0) {
-                                String className = PhpElementsUtil.getStringValue(parameters[0]);
+                                String className = getStringContents(parameters[0]);
                                 if(className != null) {
 
                                     if(className.startsWith("\\")) {
@@ -650,10 +663,10 @@ public class TwigExtensionParser  {
         private void visitNewExpression(NewExpression element) {
 
             // new Twig_SimpleTest('even', null, array('node_class' => 'Twig_Node_Expression_Test_Even')),
-            if(PhpElementsUtil.isNewExpressionPhpClassWithInstance(element, "Twig_SimpleTest")) {
+            if(isNewExpressionOf(element, "Twig_SimpleTest")) {
                 PsiElement[] psiElement = element.getParameters();
                 if(psiElement.length > 0) {
-                    String funcName = PhpElementsUtil.getStringValue(psiElement[0]);
+                    String funcName = getStringContents(psiElement[0]);
                     if(funcName != null && !funcName.contains("*")) {
                         filters.put(funcName, new TwigExtension(TwigExtensionType.SIMPLE_TEST, null));
                     }
@@ -6,20 +6,32 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiComment;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.PhpFileType;
 import com.jetbrains.php.lang.psi.elements.Field;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.php.lang.psi.elements.PhpNamedElement;
 import com.jetbrains.php.lang.psi.resolve.types.PhpType;
 import com.jetbrains.twig.TwigFile;
+import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.TwigTokenTypes;
 import com.jetbrains.twig.elements.TwigCompositeElement;
 import com.jetbrains.twig.elements.TwigElementTypes;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.PhpTwigTemplateUsageStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.util.IndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigTypeContainer;
@@ -206,24 +218,47 @@ public class TwigTypeResolveUtil {
         return globalVars;
     }
 
+    /**
+     * Variables of given scope; template wide variables are cached on the file itself
+     */
     @NotNull
     public static Map<String, PsiVariable> collectScopeVariables(@NotNull PsiElement psiElement) {
-        return collectScopeVariables(psiElement, new HashSet<VirtualFile>());
+
+        PsiFile psiFile = psiElement.getContainingFile();
+        if(psiFile == null) {
+            return collectScopeVariables(psiElement, new HashSet<VirtualFile>());
+        }
+
+        FileScopeVariables fileScopeVariables = CachedValuesManager.getCachedValue(psiFile, new FileScopeVariablesCachedValueProvider(psiFile));
+        if(fileScopeVariables == null) {
+            return collectScopeVariables(psiElement, new HashSet<VirtualFile>());
+        }
+
+        return collectElementScopeVariables(psiElement, fileScopeVariables);
     }
 
     @NotNull
     public static Map<String, PsiVariable> collectScopeVariables(@NotNull PsiElement psiElement, @NotNull Set<VirtualFile> visitedFiles) {
 
-        Map<String, Set<String>> globalVars = new HashMap<String, Set<String>>();
-        Map<String, PsiVariable> controllerVars = new HashMap<String, PsiVariable>();
-
         VirtualFile virtualFile = psiElement.getContainingFile().getVirtualFile();
         if(visitedFiles.contains(virtualFile)) {
-            return controllerVars;
+            return new HashMap<String, PsiVariable>();
         }
 
         visitedFiles.add(virtualFile);
 
+        return collectElementScopeVariables(psiElement, collectFileScopeVariables(psiElement, visitedFiles));
+    }
+
+    /**
+     * Run all collectors; they only depend on the containing file of given element
+     */
+    @NotNull
+    private static FileScopeVariables collectFileScopeVariables(@NotNull PsiElement psiElement, @NotNull Set<VirtualFile> visitedFiles) {
+
+        Map<String, Set<String>> globalVars = new HashMap<String, Set<String>>();
+        Map<String, PsiVariable> controllerVars = new HashMap<String, PsiVariable>();
+
         TwigFileVariableCollectorParameter collectorParameter = new TwigFileVariableCollectorParameter(psiElement, visitedFiles);
         for(TwigFileVariableCollector collector: twigFileVariableCollectors) {
             collector.collect(collectorParameter, globalVars);
@@ -234,13 +269,25 @@ public class TwigTypeResolveUtil {
 
         }
 
+        return new FileScopeVariables(globalVars, controllerVars);
+    }
+
+    /**
+     * Merge file variables with the block, macro and "for" scope of element; file variables itself are not touched
+     */
+    @NotNull
+    private static Map<String, PsiVariable> collectElementScopeVariables(@NotNull PsiElement psiElement, @NotNull FileScopeVariables fileScopeVariables) {
+
+        Map<String, Set<String>> globalVars = new HashMap<String, Set<String>>(fileScopeVariables.globalVars);
+        Map<String, PsiVariable> controllerVars = new HashMap<String, PsiVariable>(fileScopeVariables.controllerVars);
+
         // globals first
         globalVars.putAll(convertHashMapToTypeSet(findInlineStatementVariableDocBlock(psiElement, TwigElementTypes.BLOCK_STATEMENT)));
         globalVars.putAll(convertHashMapToTypeSet(findInlineStatementVariableDocBlock(psiElement, TwigElementTypes.MACRO_STATEMENT)));
         globalVars.putAll(convertHashMapToTypeSet(findInlineStatementVariableDocBlock(psiElement, TwigElementTypes.FOR_STATEMENT)));
 
         for(Map.Entry<String, Set<String>> entry: globalVars.entrySet()) {
-            controllerVars.put(entry.getKey(), new PsiVariable(entry.getValue(), null));
+            controllerVars.put(entry.getKey(), new PsiVariable(new HashSet<String>(entry.getValue()), null));
         }
 
         // check if we are in "for" scope and resolve types ending with []
@@ -249,7 +296,6 @@ public class TwigTypeResolveUtil {
         return controllerVars;
     }
 
-
     private static Collection<String> collectForArrayScopeVariablesFoo(Project project, String[] typeName, PsiVariable psiVariable) {
 
         Collection<String> previousElements = psiVariable.getTypes();
@@ -335,9 +381,11 @@ public class TwigTypeResolveUtil {
             }
         }
 
-        // we already have same variable in scope, so merge types
+        // we already have same variable in scope, so merge types; instance maybe shared with file cache
         if(globalVars.containsKey(scopeVariable)) {
-            globalVars.get(scopeVariable).getTypes().addAll(types);
+            PsiVariable psiVariable = globalVars.get(scopeVariable);
+            types.addAll(psiVariable.getTypes());
+            globalVars.put(scopeVariable, new PsiVariable(types, psiVariable.getElement()));
         } else {
             globalVars.put(scopeVariable, new PsiVariable(types));
         }
@@ -541,5 +589,117 @@ public class TwigTypeResolveUtil {
         return TwigTypeResolveUtil.formatPsiTypeName(afterInVarPsiElement);
     }
 
-}
+    /**
+     * Templates including one of given templates and controllers rendering them; both provide variables
+     */
+    @NotNull
+    private static Set<VirtualFile> getTemplateUsageFiles(@NotNull Project project, @NotNull Collection<TwigFile> twigFiles) {
+
+        Set<String> templateNames = new HashSet<String>();
+        for (TwigFile twigFile : twigFiles) {
+            templateNames.addAll(TwigUtil.getTemplateName(twigFile));
+        }
+
+        Set<VirtualFile> virtualFiles = new HashSet<VirtualFile>();
+        if(templateNames.size() == 0) {
+            return virtualFiles;
+        }
 
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        virtualFiles.addAll(IndexUtil.getFilesWithAnyKey(TwigIncludeStubIndex.KEY, templateNames, GlobalSearchScope.getScopeRestrictedByFileTypes(scope, TwigFileType.INSTANCE)));
+        virtualFiles.addAll(IndexUtil.getFilesWithAnyKey(PhpTwigTemplateUsageStubIndex.KEY, templateNames, GlobalSearchScope.getScopeRestrictedByFileTypes(scope, PhpFileType.INSTANCE)));
+
+        return virtualFiles;
+    }
+
+    /**
+     * Collector result of a template, before any block, macro or "for" scope is applied
+     */
+    private static class FileScopeVariables {
+
+        @NotNull
+        private final Map<String, Set<String>> globalVars;
+
+        @NotNull
+        private final Map<String, PsiVariable> controllerVars;
+
+        private FileScopeVariables(@NotNull Map<String, Set<String>> globalVars, @NotNull Map<String, PsiVariable> controllerVars) {
+            this.globalVars = Collections.unmodifiableMap(globalVars);
+            this.controllerVars = Collections.unmodifiableMap(controllerVars);
+        }
+    }
+
+    /**
+     * Invalidated by the template itself, all templates of its include graph and the controllers rendering them
+     */
+    private static class FileScopeVariablesCachedValueProvider implements CachedValueProvider<FileScopeVariables> {
+
+        @NotNull
+        private final PsiFile psiFile;
+
+        private FileScopeVariablesCachedValueProvider(@NotNull PsiFile psiFile) {
+            this.psiFile = psiFile;
+        }
+
+        @Nullable
+        @Override
+        public Result<FileScopeVariables> compute() {
+
+            Project project = psiFile.getProject();
+
+            Set<VirtualFile> visitedFiles = new HashSet<VirtualFile>();
+            visitedFiles.add(psiFile.getVirtualFile());
+
+            FileScopeVariables fileScopeVariables = collectFileScopeVariables(psiFile, visitedFiles);
+
+            Set<PsiFile> templates = new HashSet<PsiFile>();
+            templates.add(psiFile);
+
+            for (VirtualFile virtualFile : visitedFiles) {
+                PsiFile template = virtualFile != null ? PsiManager.getInstance(project).findFile(virtualFile) : null;
+                if(template instanceof TwigFile) {
+                    templates.add(template);
+                }
+            }
+
+            Set<Object> dependencies = new HashSet<Object>(templates);
+
+            Collection<TwigFile> twigFiles = new ArrayList<TwigFile>();
+            for (PsiFile template : templates) {
+                if(template instanceof TwigFile) {
+                    twigFiles.add((TwigFile) template);
+
+                    // controller found by bundle convention, eg "@Template"
+                    Method method = TwigUtil.findTwigFileController((TwigFile) template);
+                    if(method != null) {
+                        dependencies.add(method.getContainingFile());
+                    }
+                }
+            }
+
+            for (VirtualFile virtualFile : getTemplateUsageFiles(project, twigFiles)) {
+                PsiFile usageFile = PsiManager.getInstance(project).findFile(virtualFile);
+                if(usageFile != null) {
+                    dependencies.add(usageFile);
+                }
+            }
+
+            // "@Controller" doc blocks
+            for (PsiVariable psiVariable : fileScopeVariables.controllerVars.values()) {
+                PsiElement element = psiVariable.getElement();
+                if(element != null && element.isValid()) {
+                    dependencies.add(element.getContainingFile());
+                }
+            }
+
+            // new includes or render calls in files we dont know yet
+            dependencies.add(SymfonyModificationTrackers.getTemplateUsageTracker(project));
+            dependencies.add(SymfonyModificationTrackers.getTemplateTracker(project));
+            dependencies.add(SymfonyModificationTrackers.getTwigExtensionTracker(project));
+            dependencies.add(ContainerFileModificationTracker.getInstance(project));
+
+            return Result.create(fileScopeVariables, dependencies.toArray());
+        }
+    }
+
+}
@@ -66,7 +66,7 @@ public class TwigUtil {
             return null;
         }
 
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(PhpIndex.getInstance(method.getProject()));
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(method.getProject());
         SymfonyBundle symfonyBundle = symfonyBundleUtil.getContainingBundle(phpClass);
         if(symfonyBundle == null) {
             return null;
@@ -401,54 +401,36 @@ public class TwigUtil {
 
     }
 
+    /**
+     * Methods rendering the given template; index stores their signatures, so no php file is parsed here
+     */
     @NotNull
     public static Set<Method> getTwigFileMethodUsageOnIndex(@NotNull TwigFile psiFile) {
 
-        final Set<String> keys = TwigUtil.getTemplateName(psiFile);
+        Set<String> keys = TwigUtil.getTemplateName(psiFile);
         if(keys.size() == 0) {
             return Collections.emptySet();
         }
 
-        final Set<VirtualFile> virtualFiles = new HashSet<VirtualFile>();
+        Project project = psiFile.getProject();
+        GlobalSearchScope scope = GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), PhpFileType.INSTANCE);
 
-        // find virtual files
+        Set<String> signatures = new HashSet<String>();
         for(String key: keys) {
-            FileBasedIndexImpl.getInstance().getFilesWithKey(PhpTwigTemplateUsageStubIndex.KEY, new HashSet<String>(Arrays.asList(key)), new Processor<VirtualFile>() {
-                @Override
-                public boolean process(VirtualFile virtualFile) {
-                    virtualFiles.add(virtualFile);
-                    return true;
-                }
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(psiFile.getProject()), PhpFileType.INSTANCE));
-        }
-
-        final Set<Method> methods = new HashSet<Method>();
-
-        for(VirtualFile virtualFile : virtualFiles) {
-
-            PsiFile psiTemplate = PsiManager.getInstance(psiFile.getProject()).findFile(virtualFile);
-            if(psiTemplate == null) {
-                continue;
+            for (Set<String> values : FileBasedIndexImpl.getInstance().getValues(PhpTwigTemplateUsageStubIndex.KEY, key, scope)) {
+                signatures.addAll(values);
             }
+        }
 
-            psiTemplate.accept(new PsiRecursiveElementWalkingVisitor() {
-                @Override
-                public void visitElement(PsiElement element) {
-                    if(element instanceof StringLiteralExpression && element.getParent() instanceof ParameterList && element.getParent().getParent() instanceof MethodReference && keys.contains(((StringLiteralExpression) element).getContents())) {
-
-                        PsiElement methodReference = element.getParent().getParent();
-                        if(methodReference instanceof MethodReference && PhpTwigTemplateUsageStubIndex.RENDER_METHODS.contains(((MethodReference) methodReference).getName())) {
-                            Method method = PsiTreeUtil.getParentOfType(element, Method.class);
-                            if(method != null) {
-                                methods.add(method);
-                            }
-                        }
-                    }
+        Set<Method> methods = new HashSet<Method>();
 
-                    super.visitElement(element);
+        PhpIndex phpIndex = PhpIndex.getInstance(project);
+        for (String signature : signatures) {
+            for (PhpNamedElement phpNamedElement : phpIndex.getBySignature(signature)) {
+                if(phpNamedElement instanceof Method) {
+                    methods.add((Method) phpNamedElement);
                 }
-            });
-
+            }
         }
 
         return methods;
@@ -4,13 +4,16 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationPsiParser;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationCatalogueParser;
 import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class TranslationIndex {
 
@@ -20,7 +23,11 @@ public class TranslationIndex {
 
     @Nullable
     private TranslationStringMap translationStringMap;
-    private Long translationStringMapModified;
+
+    /**
+     * file name => parsed catalogue; only changed files are parsed again
+     */
+    private final Map<String, CatalogueFile> catalogueFiles = new HashMap<String, CatalogueFile>();
 
     public static TranslationIndex getInstance(Project project){
 
@@ -43,75 +50,67 @@ public class TranslationIndex {
 
     synchronized public TranslationStringMap getTranslationMap() {
 
-        if(this.translationStringMap != null && this.isCacheValid()) {
-            return this.translationStringMap;
-        }
-
         File translationDirectory = this.getTranslationRoot();
         if(null == translationDirectory) {
+            this.catalogueFiles.clear();
+            this.translationStringMap = null;
             return new TranslationStringMap();
         }
 
-        Symfony2ProjectComponent.getLogger().info("translations changed: " + translationDirectory.toString());
-
-        this.translationStringMapModified = translationDirectory.lastModified();
-        return this.translationStringMap = new TranslationPsiParser(project).parsePathMatcher(translationDirectory.getPath());
-    }
-
-    protected boolean isCacheValid() {
-
-        // symfony2 recreates translation file on change, so folder modtime is caching indicator
-        File translationRootPath = this.getTranslationRoot();
-        if (null == translationRootPath) {
-            return false;
-        }
-
-        Long translationModified = translationRootPath.lastModified();
-        if(!translationModified.equals(translationStringMapModified)) {
-            return false;
+        // use cache in any i/o error
+        File[] files = translationDirectory.listFiles();
+        if(null == files) {
+            return this.translationStringMap != null ? this.translationStringMap : new TranslationStringMap();
         }
 
-        // @TODO make this more abstract
-        // we check for possible file modifications here per translation file
-        if(this.translationStringMap != null) {
+        boolean changed = this.translationStringMap == null;
 
+        // symfony2 recreates translation file on change; so we check every catalogue
+        Set<String> fileNames = new HashSet<String>();
+        for (File fileEntry : files) {
+            String fileName = fileEntry.getName();
+            if (fileEntry.isDirectory() || !fileName.startsWith("catalogue") || !fileName.endsWith("php")) {
+                continue;
+            }
 
-            File file = new File(translationRootPath.getPath());
+            fileNames.add(fileName);
 
-            // use cache in any i/o error
-            File[] files = file.listFiles();
-            if(null == files) {
-                return true;
+            CatalogueFile catalogueFile = this.catalogueFiles.get(fileName);
+            if(catalogueFile != null && catalogueFile.isUpToDate(fileEntry)) {
+                continue;
             }
 
-            // directory is empty or not exits, before and after instance
-            Map<String, Long> fileNames = this.translationStringMap.getFileNames();
-            if(files.length == 0 && fileNames.size() == 0) {
-                return true;
-            }
+            Symfony2ProjectComponent.getLogger().info("update translations: " + fileEntry.getPath());
 
-            for (File fileEntry : files) {
-                if (!fileEntry.isDirectory()) {
-                    String fileName = fileEntry.getName();
-                    if(fileName.startsWith("catalogue") && fileName.endsWith("php")) {
+            this.catalogueFiles.put(fileName, new CatalogueFile(fileEntry.lastModified(), fileEntry.length(), TranslationCatalogueParser.parse(fileEntry)));
+            changed = true;
+        }
 
+        // removed catalogues
+        if(this.catalogueFiles.keySet().retainAll(fileNames)) {
+            changed = true;
+        }
 
-                        if(!fileNames.containsKey(fileName)) {
-                            return false;
-                        }
+        if(!changed) {
+            return this.translationStringMap;
+        }
 
-                        if(!fileNames.get(fileName).equals(fileEntry.lastModified())) {
-                            return false;
-                        }
+        Symfony2ProjectComponent.getLogger().info("translations changed: " + translationDirectory.toString());
 
-                    }
+        // merging parsed files is cheap; so we dont need to patch the old map
+        TranslationStringMap translationStringMap = new TranslationStringMap();
+        for (Map.Entry<String, CatalogueFile> entry : this.catalogueFiles.entrySet()) {
+            for (Map.Entry<String, Set<String>> domain : entry.getValue().getDomains().entrySet()) {
+                translationStringMap.addDomain(domain.getKey());
+                for (String key : domain.getValue()) {
+                    translationStringMap.addString(domain.getKey(), key);
                 }
             }
 
-
+            translationStringMap.addFile(entry.getKey(), entry.getValue().getLastModified());
         }
 
-        return true;
+        return this.translationStringMap = translationStringMap;
     }
 
     @Nullable
@@ -131,4 +130,32 @@ public class TranslationIndex {
     }
 
 
+    private static class CatalogueFile {
+
+        private final long lastModified;
+        private final long length;
+
+        @NotNull
+        private final Map<String, Set<String>> domains;
+
+        private CatalogueFile(long lastModified, long length, @NotNull Map<String, Set<String>> domains) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.domains = domains;
+        }
+
+        private boolean isUpToDate(@NotNull File file) {
+            return this.lastModified == file.lastModified() && this.length == file.length();
+        }
+
+        private long getLastModified() {
+            return lastModified;
+        }
+
+        @NotNull
+        private Map<String, Set<String>> getDomains() {
+            return domains;
+        }
+    }
+
 }
@@ -0,0 +1,472 @@
+package fr.adrienbrault.idea.symfony2plugin.translation.parser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming parser for the "catalogue.*.php" files of the translation cache, without building any php psi.
+ *
+ * Catalogues are written with var_export, so we only need to know about strings, numbers and nested arrays:
+ * new MessageCatalogue('de', array('domain' => array('key' => 'translation')))
+ */
+public class TranslationCatalogueParser {
+
+    private enum Type {
+        STRING, NUMBER, IDENTIFIER, ARROW, DOT, COMMA, OPEN, CLOSE, OTHER
+    }
+
+    @NotNull
+    private final Lexer lexer;
+
+    /**
+     * domain => translation keys
+     */
+    @NotNull
+    private final Map<String, Set<String>> domains = new HashMap<String, Set<String>>();
+
+    private TranslationCatalogueParser(@NotNull Reader reader) {
+        this.lexer = new Lexer(reader);
+    }
+
+    /**
+     * @return domain => translation keys; empty on any i/o error
+     */
+    @NotNull
+    public static Map<String, Set<String>> parse(@NotNull File file) {
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                return parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return new HashMap<String, Set<String>>();
+        }
+    }
+
+    @NotNull
+    public static Map<String, Set<String>> parse(@NotNull Reader reader) throws IOException {
+        TranslationCatalogueParser parser = new TranslationCatalogueParser(reader);
+        parser.visit();
+        return parser.domains;
+    }
+
+    private void visit() throws IOException {
+
+        Token token;
+        while ((token = this.lexer.next()) != null) {
+
+            // new MessageCatalogue(
+            if(token.type != Type.IDENTIFIER || !token.text.equalsIgnoreCase("new")) {
+                continue;
+            }
+
+            Token className = this.lexer.next();
+            if(className == null || className.type != Type.IDENTIFIER || !isMessageCatalogue(className.text)) {
+                continue;
+            }
+
+            Token open = this.lexer.next();
+            if(open == null || open.type != Type.OPEN) {
+                continue;
+            }
+
+            // first parameter is the locale
+            this.skipValue();
+
+            Token comma = this.lexer.next();
+            if(comma == null || comma.type != Type.COMMA) {
+                continue;
+            }
+
+            // second parameter hold our huge translation arrays
+            if(this.openArray()) {
+                this.visitDomains();
+            }
+        }
+    }
+
+    /**
+     * 'domain' => array( ... ), ...
+     */
+    private void visitDomains() throws IOException {
+
+        Token token;
+        while ((token = this.lexer.next()) != null) {
+            if(token.type == Type.CLOSE) {
+                return;
+            }
+
+            if(token.type == Type.COMMA) {
+                continue;
+            }
+
+            String domain = this.readKey(token);
+
+            Token arrow = this.lexer.next();
+            if(arrow == null || arrow.type != Type.ARROW) {
+                return;
+            }
+
+            if(domain != null && this.openArray()) {
+                if(!this.domains.containsKey(domain)) {
+                    this.domains.put(domain, new HashSet<String>());
+                }
+
+                this.visitKeys(this.domains.get(domain));
+            } else {
+                this.skipValue();
+            }
+        }
+    }
+
+    /**
+     * 'key' => 'translation', ...
+     */
+    private void visitKeys(@NotNull Set<String> keys) throws IOException {
+
+        Token token;
+        while ((token = this.lexer.next()) != null) {
+            if(token.type == Type.CLOSE) {
+                return;
+            }
+
+            if(token.type == Type.COMMA) {
+                continue;
+            }
+
+            String key = this.readKey(token);
+
+            Token arrow = this.lexer.next();
+            if(arrow == null || arrow.type != Type.ARROW) {
+                return;
+            }
+
+            if(key != null) {
+                keys.add(key);
+            }
+
+            this.skipValue();
+        }
+    }
+
+    /**
+     * var_export splits strings with special chars: 'foo' . "\0" . 'bar'
+     */
+    @Nullable
+    private String readKey(@NotNull Token token) throws IOException {
+
+        if(token.type != Type.STRING && token.type != Type.NUMBER) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(token.text);
+
+        Token next;
+        while ((next = this.lexer.peek()) != null && next.type == Type.DOT) {
+            this.lexer.next();
+
+            Token part = this.lexer.next();
+            if(part == null || (part.type != Type.STRING && part.type != Type.NUMBER)) {
+                return null;
+            }
+
+            key.append(part.text);
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * "array(" or "["
+     */
+    private boolean openArray() throws IOException {
+
+        Token token = this.lexer.peek();
+        if(token == null) {
+            return false;
+        }
+
+        if(token.type == Type.OPEN && token.text.equals("[")) {
+            this.lexer.next();
+            return true;
+        }
+
+        if(token.type == Type.IDENTIFIER && token.text.equalsIgnoreCase("array")) {
+            this.lexer.next();
+
+            Token open = this.lexer.next();
+            return open != null && open.type == Type.OPEN;
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip any expression until next "," or closing bracket on same level; both are not consumed
+     */
+    private void skipValue() throws IOException {
+
+        int depth = 0;
+
+        Token token;
+        while ((token = this.lexer.peek()) != null) {
+            if(depth == 0 && (token.type == Type.COMMA || token.type == Type.CLOSE)) {
+                return;
+            }
+
+            this.lexer.next();
+
+            if(token.type == Type.OPEN) {
+                depth++;
+            } else if(token.type == Type.CLOSE) {
+                depth--;
+            }
+        }
+    }
+
+    private static boolean isMessageCatalogue(@NotNull String className) {
+        int namespace = className.lastIndexOf('\\');
+        return (namespace < 0 ? className : className.substring(namespace + 1)).equalsIgnoreCase("MessageCatalogue");
+    }
+
+    private static class Token {
+
+        @NotNull
+        private final Type type;
+
+        @NotNull
+        private final String text;
+
+        private Token(@NotNull Type type, @NotNull String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Minimal php lexer; only knows the tokens a var_export array can contain
+     */
+    private static class Lexer {
+
+        @NotNull
+        private final Reader reader;
+
+        private int current = -2;
+
+        @Nullable
+        private Token peeked;
+
+        private Lexer(@NotNull Reader reader) {
+            this.reader = reader;
+        }
+
+        @Nullable
+        private Token peek() throws IOException {
+            if(this.peeked == null) {
+                this.peeked = this.read();
+            }
+
+            return this.peeked;
+        }
+
+        @Nullable
+        private Token next() throws IOException {
+            Token token = this.peek();
+            this.peeked = null;
+            return token;
+        }
+
+        private int current() throws IOException {
+            if(this.current == -2) {
+                this.current = this.reader.read();
+            }
+
+            return this.current;
+        }
+
+        private int advance() throws IOException {
+            int c = this.current();
+            this.current = this.reader.read();
+            return c;
+        }
+
+        @Nullable
+        private Token read() throws IOException {
+
+            while (true) {
+                int c = this.current();
+                if(c < 0) {
+                    return null;
+                }
+
+                if(Character.isWhitespace(c)) {
+                    this.advance();
+                    continue;
+                }
+
+                if(c == '#') {
+                    this.skipLine();
+                    continue;
+                }
+
+                if(c == '/') {
+                    this.advance();
+                    if(this.current() == '/') {
+                        this.skipLine();
+                        continue;
+                    }
+
+                    if(this.current() == '*') {
+                        this.skipBlockComment();
+                        continue;
+                    }
+
+                    return new Token(Type.OTHER, "/");
+                }
+
+                if(c == '\'') {
+                    return new Token(Type.STRING, this.readSingleQuoted());
+                }
+
+                if(c == '"') {
+                    return new Token(Type.STRING, this.readDoubleQuoted());
+                }
+
+                if(c == '-' || (c >= '0' && c <= '9')) {
+                    return this.readNumber();
+                }
+
+                if(Character.isLetter(c) || c == '_' || c == '\\') {
+                    return new Token(Type.IDENTIFIER, this.readIdentifier());
+                }
+
+                this.advance();
+
+                switch (c) {
+                    case '(':
+                    case '[':
+                        return new Token(Type.OPEN, String.valueOf((char) c));
+                    case ')':
+                    case ']':
+                        return new Token(Type.CLOSE, String.valueOf((char) c));
+                    case ',':
+                        return new Token(Type.COMMA, ",");
+                    case '.':
+                        return new Token(Type.DOT, ".");
+                    case '=':
+                        if(this.current() == '>') {
+                            this.advance();
+                            return new Token(Type.ARROW, "=>");
+                        }
+                }
+
+                return new Token(Type.OTHER, String.valueOf((char) c));
+            }
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            while ((c = this.current()) >= 0 && c != '\n') {
+                this.advance();
+            }
+        }
+
+        private void skipBlockComment() throws IOException {
+            // "*" of the opener
+            this.advance();
+
+            int c;
+            while ((c = this.advance()) >= 0) {
+                if(c == '*' && this.current() == '/') {
+                    this.advance();
+                    return;
+                }
+            }
+        }
+
+        @NotNull
+        private String readSingleQuoted() throws IOException {
+            this.advance();
+
+            StringBuilder value = new StringBuilder();
+
+            int c;
+            while ((c = this.advance()) >= 0 && c != '\'') {
+                if(c == '\\' && (this.current() == '\'' || this.current() == '\\')) {
+                    c = this.advance();
+                }
+
+                value.append((char) c);
+            }
+
+            return value.toString();
+        }
+
+        @NotNull
+        private String readDoubleQuoted() throws IOException {
+            this.advance();
+
+            StringBuilder value = new StringBuilder();
+
+            int c;
+            while ((c = this.advance()) >= 0 && c != '"') {
+                if(c != '\\') {
+                    value.append((char) c);
+                    continue;
+                }
+
+                int escaped = this.advance();
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case '0': value.append('\0'); break;
+                    case '"': value.append('"'); break;
+                    case '\\': value.append('\\'); break;
+                    case '$': value.append('$'); break;
+                    default:
+                        value.append('\\');
+                        if(escaped >= 0) {
+                            value.append((char) escaped);
+                        }
+                }
+            }
+
+            return value.toString();
+        }
+
+        @NotNull
+        private Token readNumber() throws IOException {
+            StringBuilder value = new StringBuilder();
+            value.append((char) this.advance());
+
+            int c;
+            while ((c = this.current()) >= 0 && (Character.isLetterOrDigit(c) || c == '.')) {
+                value.append((char) this.advance());
+            }
+
+            return new Token(Type.NUMBER, value.toString());
+        }
+
+        @NotNull
+        private String readIdentifier() throws IOException {
+            StringBuilder value = new StringBuilder();
+
+            int c;
+            while ((c = this.current()) >= 0 && (Character.isLetterOrDigit(c) || c == '_' || c == '\\')) {
+                value.append((char) this.advance());
+            }
+
+            return value.toString();
+        }
+    }
+
+}
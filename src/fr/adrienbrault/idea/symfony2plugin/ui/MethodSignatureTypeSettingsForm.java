@@ -14,6 +14,7 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.assistant.signature.MethodSignatureSetting;
 import fr.adrienbrault.idea.symfony2plugin.util.IdeHelper;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.PhpTypeCache;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.Nullable;
 
@@ -155,6 +156,9 @@ public class MethodSignatureTypeSettingsForm  implements Configurable {
         getSettings().methodSignatureSettings = methodParameterSettings;
         getSettings().objectSignatureTypeProvider = enableCustomSignatureTypesCheckBox.isSelected();
 
+        // signatures are part of resolved types
+        PhpTypeCache.getInstance(this.project).clear();
+
         this.changed = false;
     }
 
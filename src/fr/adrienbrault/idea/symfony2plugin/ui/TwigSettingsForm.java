@@ -15,6 +15,7 @@ import com.intellij.util.ui.ListTableModel;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceSetting;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigPath;
 import org.jetbrains.annotations.Nls;
@@ -197,6 +198,8 @@ public class TwigSettingsForm implements Configurable {
 
         getSettings().twigNamespaces = twigPaths;
         this.changed = false;
+
+        SymfonyModificationTrackers.getInstance(this.project).incTemplateModification();
     }
 
     private Settings getSettings() {
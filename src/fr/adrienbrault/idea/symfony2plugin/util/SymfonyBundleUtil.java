@@ -1,53 +1,75 @@
 package fr.adrienbrault.idea.symfony2plugin.util;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Bundles of a project; they are collected once per php structure change and shared by all instances
+ */
 public class SymfonyBundleUtil {
 
-    protected PhpIndex phpIndex;
-    protected HashMap<String, SymfonyBundle> symfonyBundles;
+    private static final Key<CachedValue<BundleRegistry>> BUNDLE_CACHE = new Key<CachedValue<BundleRegistry>>("SYMFONY_BUNDLES");
 
-    public SymfonyBundleUtil(PhpIndex phpIndex) {
-        this.phpIndex = phpIndex;
-        this.loadBundles();
-    }
+    @NotNull
+    private final BundleRegistry registry;
 
-    public SymfonyBundleUtil(Project project) {
-        this(PhpIndex.getInstance(project));
+    public SymfonyBundleUtil(@NotNull Project project) {
+        this.registry = getRegistry(project);
     }
 
-    protected void loadBundles() {
-
-        this.symfonyBundles = new HashMap<String, SymfonyBundle>();
-        Collection<PhpClass> phpClasses = this.phpIndex.getAllSubclasses("\\Symfony\\Component\\HttpKernel\\Bundle\\Bundle");
+    @NotNull
+    private static BundleRegistry getRegistry(@NotNull final Project project) {
 
-        for (PhpClass phpClass : phpClasses) {
-            this.symfonyBundles.put(phpClass.getName(), new SymfonyBundle(phpClass));
+        CachedValue<BundleRegistry> cache = project.getUserData(BUNDLE_CACHE);
+        if(cache != null && cache.hasUpToDateValue()) {
+            return cache.getValue();
         }
 
+        synchronized (BUNDLE_CACHE) {
+
+            cache = project.getUserData(BUNDLE_CACHE);
+            if (cache == null) {
+                cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<BundleRegistry>() {
+                    @Nullable
+                    @Override
+                    public Result<BundleRegistry> compute() {
+                        return Result.create(BundleRegistry.create(project), SymfonyModificationTrackers.getPhpStructureTracker(project));
+                    }
+                }, false);
+
+                project.putUserData(BUNDLE_CACHE, cache);
+            }
+
+            return cache.getValue();
+        }
     }
 
     public Collection<SymfonyBundle> getBundles() {
-        return this.symfonyBundles.values();
+        return this.registry.bundles.values();
     }
 
     public Map<String, SymfonyBundle> getParentBundles() {
 
         Map<String, SymfonyBundle> bundles = new HashMap<String, SymfonyBundle>();
 
-        for (Map.Entry<String, SymfonyBundle> entry : this.symfonyBundles.entrySet()) {
+        for (Map.Entry<String, SymfonyBundle> entry : this.registry.bundles.entrySet()) {
             if(entry.getValue().getParentBundleName() != null) {
                 bundles.put(entry.getKey(), entry.getValue());
             }
@@ -58,11 +80,11 @@ public class SymfonyBundleUtil {
 
     @Nullable
     public SymfonyBundle getBundle(String bundleName) {
-        return this.symfonyBundles.get(bundleName);
+        return this.registry.bundles.get(bundleName);
     }
 
     public boolean bundleExists(String bundleName) {
-        return this.symfonyBundles.get(bundleName) != null;
+        return this.registry.bundles.get(bundleName) != null;
     }
 
     @Nullable
@@ -77,47 +99,49 @@ public class SymfonyBundleUtil {
             return null;
         }
 
-        String bundleName = bundleShortcutName.substring(1, stripedBundlePos);
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.getName().equals(bundleName)) {
-                return bundle;
-            }
-        }
-
-        return null;
+        return this.registry.bundles.get(bundleShortcutName.substring(1, stripedBundlePos));
     }
 
-
+    /**
+     * Walk up the namespace, so nearest bundle wins
+     */
     @Nullable
     public SymfonyBundle getContainingBundle(PhpClass phpClass) {
 
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.isInBundle(phpClass)) {
-                return bundle;
+        String namespaceName = phpClass.getNamespaceName();
+
+        while (true) {
+            SymfonyBundle symfonyBundle = this.registry.namespaces.get(namespaceName);
+            if(symfonyBundle != null) {
+                return symfonyBundle;
             }
-        }
 
-        return null;
+            // "\Foo\Bar\" => "\Foo\"
+            int parent = namespaceName.lastIndexOf('\\', namespaceName.length() - 2);
+            if(parent < 0) {
+                return null;
+            }
+
+            namespaceName = namespaceName.substring(0, parent + 1);
+        }
     }
 
     @Nullable
     public SymfonyBundle getContainingBundle(PsiFile psiFile) {
-
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.isInBundle(psiFile)) {
-                return bundle;
-            }
-        }
-
-        return null;
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        return virtualFile != null ? getContainingBundle(virtualFile) : null;
     }
 
+    /**
+     * Walk up the directory tree, so nearest bundle wins
+     */
     @Nullable
     public SymfonyBundle getContainingBundle(@NotNull VirtualFile virtualFile) {
 
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.isInBundle(virtualFile)) {
-                return bundle;
+        for (VirtualFile directory = virtualFile; directory != null; directory = directory.getParent()) {
+            SymfonyBundle symfonyBundle = this.registry.directories.get(directory);
+            if(symfonyBundle != null) {
+                return symfonyBundle;
             }
         }
 
@@ -126,14 +150,50 @@ public class SymfonyBundleUtil {
 
     @Nullable
     public SymfonyBundle getContainingBundle(PsiDirectory directory) {
+        return getContainingBundle(directory.getVirtualFile());
+    }
 
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.isInBundle(directory.getVirtualFile())) {
-                return bundle;
-            }
+    /**
+     * Bundles by name, namespace and directory; never changed after creation
+     */
+    private static class BundleRegistry {
+
+        @NotNull
+        private final Map<String, SymfonyBundle> bundles;
+
+        @NotNull
+        private final Map<String, SymfonyBundle> namespaces;
+
+        @NotNull
+        private final Map<VirtualFile, SymfonyBundle> directories;
+
+        private BundleRegistry(@NotNull Map<String, SymfonyBundle> bundles, @NotNull Map<String, SymfonyBundle> namespaces, @NotNull Map<VirtualFile, SymfonyBundle> directories) {
+            this.bundles = Collections.unmodifiableMap(bundles);
+            this.namespaces = Collections.unmodifiableMap(namespaces);
+            this.directories = Collections.unmodifiableMap(directories);
         }
 
-        return null;
+        @NotNull
+        private static BundleRegistry create(@NotNull Project project) {
+
+            Map<String, SymfonyBundle> bundles = new HashMap<String, SymfonyBundle>();
+            Map<String, SymfonyBundle> namespaces = new HashMap<String, SymfonyBundle>();
+            Map<VirtualFile, SymfonyBundle> directories = new HashMap<VirtualFile, SymfonyBundle>();
+
+            for (PhpClass phpClass : PhpIndex.getInstance(project).getAllSubclasses("\\Symfony\\Component\\HttpKernel\\Bundle\\Bundle")) {
+                SymfonyBundle symfonyBundle = new SymfonyBundle(phpClass);
+
+                bundles.put(phpClass.getName(), symfonyBundle);
+                namespaces.put(phpClass.getNamespaceName(), symfonyBundle);
+
+                VirtualFile directory = symfonyBundle.getVirtualDirectory();
+                if(directory != null) {
+                    directories.put(directory, symfonyBundle);
+                }
+            }
+
+            return new BundleRegistry(bundles, namespaces, directories);
+        }
     }
 
 }
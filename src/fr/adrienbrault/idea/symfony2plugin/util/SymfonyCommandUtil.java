@@ -2,68 +2,198 @@ package fr.adrienbrault.idea.symfony2plugin.util;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiElementFilter;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIndex;
-import com.jetbrains.php.lang.psi.elements.Method;
-import com.jetbrains.php.lang.psi.elements.MethodReference;
-import com.jetbrains.php.lang.psi.elements.PhpClass;
+import com.jetbrains.php.lang.psi.elements.*;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ConsoleCommandStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyCommand;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.*;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class SymfonyCommandUtil {
 
+    private static final String COMMAND_CLASS = "\\Symfony\\Component\\Console\\Command\\Command";
+
     @NotNull
     public static Collection<SymfonyCommand> getCommands(@NotNull Project project) {
 
         Collection<SymfonyCommand> symfonyCommands = new ArrayList<SymfonyCommand>();
 
-        for (PhpClass phpClass : PhpIndex.getInstance(project).getAllSubclasses("\\Symfony\\Component\\Console\\Command\\Command")) {
+        for (String name : getCommandNames(project)) {
+            symfonyCommands.addAll(getCommands(project, name));
+        }
 
-            if(PhpElementsUtil.isTestClass(phpClass)) {
-                continue;
+        return symfonyCommands;
+    }
+
+    /**
+     * Command names of index with at least one Command subclass; use it for completion and name lists.
+     * Index only knows the class name, so every class is checked once against the class hierarchy
+     */
+    @NotNull
+    public static Set<String> getCommandNames(@NotNull Project project) {
+        SymfonyProcessors.CollectProjectUniqueKeys projectUniqueKeys = new SymfonyProcessors.CollectProjectUniqueKeys(project, ConsoleCommandStubIndex.KEY);
+        FileBasedIndex.getInstance().processAllKeys(ConsoleCommandStubIndex.KEY, projectUniqueKeys, project);
+
+        Map<String, Boolean> commandClasses = new HashMap<String, Boolean>();
+        Symfony2InterfacesUtil symfony2InterfacesUtil = new Symfony2InterfacesUtil();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+
+        Set<String> names = new HashSet<String>();
+        for (String name : projectUniqueKeys.getResult()) {
+            for (String className : FileBasedIndex.getInstance().getValues(ConsoleCommandStubIndex.KEY, name, scope)) {
+
+                Boolean isCommand = commandClasses.get(className);
+                if(isCommand == null) {
+                    isCommand = getCommandClasses(project, className, symfony2InterfacesUtil).size() > 0;
+                    commandClasses.put(className, isCommand);
+                }
+
+                if(isCommand) {
+                    names.add(name);
+                    break;
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Resolve a single command name to its "setName" calls
+     */
+    @NotNull
+    public static Collection<SymfonyCommand> getCommands(@NotNull Project project, @NotNull String name) {
+
+        Collection<SymfonyCommand> symfonyCommands = new ArrayList<SymfonyCommand>();
+
+        Set<String> classNames = new HashSet<String>(
+            FileBasedIndex.getInstance().getValues(ConsoleCommandStubIndex.KEY, name, GlobalSearchScope.allScope(project))
+        );
+
+        Symfony2InterfacesUtil symfony2InterfacesUtil = new Symfony2InterfacesUtil();
+        for (String className : classNames) {
+            for (PhpClass phpClass : getCommandClasses(project, className, symfony2InterfacesUtil)) {
+                MethodReference methodReference = getCommandNameReferences(phpClass).get(name);
+                if(methodReference != null) {
+                    symfonyCommands.add(new SymfonyCommand(name, methodReference));
+                }
             }
+        }
+
+        return symfonyCommands;
+    }
+
+    /**
+     * Classes of the given name which are Command subclasses and no test class
+     */
+    @NotNull
+    private static Collection<PhpClass> getCommandClasses(@NotNull Project project, @NotNull String className, @NotNull Symfony2InterfacesUtil symfony2InterfacesUtil) {
+
+        Collection<PhpClass> phpClasses = new ArrayList<PhpClass>();
+        for (PhpClass phpClass : PhpIndex.getInstance(project).getClassesByFQN(className)) {
+            if(!PhpElementsUtil.isTestClass(phpClass) && symfony2InterfacesUtil.isInstanceOf(phpClass, COMMAND_CLASS)) {
+                phpClasses.add(phpClass);
+            }
+        }
 
-            Method method = phpClass.findOwnMethodByName("configure");
-            if(method == null) {
+        return phpClasses;
+    }
+
+    /**
+     * "setName" calls inside "configure" method; references are only resolved inside the class itself,
+     * so this is also usable on indexing
+     */
+    @NotNull
+    public static Map<String, MethodReference> getCommandNameReferences(@NotNull PhpClass phpClass) {
+
+        Method method = phpClass.findOwnMethodByName("configure");
+        if(method == null) {
+            return Collections.emptyMap();
+        }
+
+        PsiElement[] psiElements = PsiTreeUtil.collectElements(method, new PsiElementFilter() {
+            @Override
+            public boolean isAccepted(PsiElement psiElement) {
+                return psiElement instanceof MethodReference && "setName".equals(((MethodReference) psiElement).getName());
+            }
+        });
+
+        Map<String, MethodReference> names = new HashMap<String, MethodReference>();
+
+        for (PsiElement psiElement : psiElements) {
+
+            PsiElement psiMethodParameter = PsiElementUtils.getMethodParameterPsiElementAt((MethodReference) psiElement, 0);
+            if(psiMethodParameter == null) {
                 continue;
             }
 
-            PsiElement[] psiElements = PsiTreeUtil.collectElements(method, new PsiElementFilter() {
-                @Override
-                public boolean isAccepted(PsiElement psiElement) {
-                    return psiElement instanceof MethodReference && "setName".equals(((MethodReference) psiElement).getName());
-                }
-            });
+            String stringValue = getLocalStringValue(phpClass, psiMethodParameter);
+            if(stringValue != null && !names.containsKey(stringValue)) {
+                names.put(stringValue, (MethodReference) psiElement);
+            }
+        }
 
-            for (PsiElement psiElement : psiElements) {
+        return names;
+    }
 
-                if(!(psiElement instanceof MethodReference)) {
-                    continue;
-                }
+    /**
+     * 'foo', $this->foo, self::FOO, static::FOO
+     */
+    @Nullable
+    private static String getLocalStringValue(@NotNull PhpClass phpClass, @NotNull PsiElement psiElement) {
 
-                PsiElement psiMethodParameter = PsiElementUtils.getMethodParameterPsiElementAt((MethodReference) psiElement, 0);
-                if(psiMethodParameter == null) {
-                    continue;
-                }
+        if(psiElement instanceof StringLiteralExpression) {
+            String contents = ((StringLiteralExpression) psiElement).getContents();
+            return contents.length() > 0 ? contents : null;
+        }
 
-                String stringValue = PhpElementsUtil.getStringValue(psiMethodParameter);
-                if(stringValue == null) {
-                    continue;
-                }
+        Field field = null;
 
-                symfonyCommands.add(new SymfonyCommand(stringValue, psiElement));
+        if(psiElement instanceof FieldReference) {
+            PhpExpression classReference = ((FieldReference) psiElement).getClassReference();
+            if(classReference instanceof Variable && "this".equals(((Variable) classReference).getName())) {
+                field = getOwnField(phpClass, ((FieldReference) psiElement).getName(), false);
+            }
+        } else if(psiElement instanceof ClassConstantReference) {
+            PhpExpression classReference = ((ClassConstantReference) psiElement).getClassReference();
+            if(classReference != null && ("self".equals(classReference.getText()) || "static".equals(classReference.getText()))) {
+                field = getOwnField(phpClass, ((ClassConstantReference) psiElement).getName(), true);
             }
+        }
 
+        if(field == null || !(field.getDefaultValue() instanceof StringLiteralExpression)) {
+            return null;
         }
 
-        return symfonyCommands;
+        String contents = ((StringLiteralExpression) field.getDefaultValue()).getContents();
+        return contents.length() > 0 ? contents : null;
+    }
+
+    @Nullable
+    private static Field getOwnField(@NotNull PhpClass phpClass, @Nullable String name, boolean isConstant) {
+
+        if(name == null) {
+            return null;
+        }
+
+        for (Field field : PsiTreeUtil.findChildrenOfType(phpClass, Field.class)) {
+            if(field.isConstant() == isConstant && name.equals(field.getName())) {
+                return field;
+            }
+        }
+
+        return null;
     }
 
 }
@@ -5,27 +5,40 @@ import com.intellij.codeInsight.lookup.LookupElementPresentation;
 import com.jetbrains.php.PhpIcons;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class ControllerActionLookupElement extends LookupElement {
 
-    private ControllerAction controllerAction;
+    @NotNull
+    private final String shortcutName;
+
+    @Nullable
+    private final String methodName;
 
     public ControllerActionLookupElement(ControllerAction controllerAction) {
-        this.controllerAction = controllerAction;
+        this(controllerAction.getShortcutName(), StringUtils.stripStart(controllerAction.getMethod().getFQN(), "\\"));
+    }
+
+    /**
+     * @param methodName "Foo\\BarController.fooAction"
+     */
+    public ControllerActionLookupElement(@NotNull String shortcutName, @Nullable String methodName) {
+        this.shortcutName = shortcutName;
+        this.methodName = methodName;
     }
 
     @NotNull
     @Override
     public String getLookupString() {
-        return this.controllerAction.getShortcutName();
+        return this.shortcutName;
     }
 
     public void renderElement(LookupElementPresentation presentation) {
         presentation.setItemText(getLookupString());
-        presentation.setTypeText(StringUtils.stripStart(controllerAction.getMethod().getFQN(), "\\"));
+        presentation.setTypeText(this.methodName);
         presentation.setTypeGrayed(true);
         presentation.setIcon(PhpIcons.METHOD_ICON);
     }
@@ -2,17 +2,24 @@ package fr.adrienbrault.idea.symfony2plugin.util.controller;
 
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
+import com.jetbrains.php.lang.psi.elements.PhpNamedElement;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
 import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ServiceRouteContainer;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpIndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
+import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -20,6 +27,8 @@ import java.util.*;
 
 public class ControllerIndex {
 
+    private static final Key<CachedValue<Map<String, String>>> CONTROLLER_ACTIONS_CACHE = new Key<CachedValue<Map<String, String>>>("SYMFONY_CONTROLLER_ACTIONS");
+
     private Project project;
     private PhpIndex phpIndex;
 
@@ -30,18 +39,56 @@ public class ControllerIndex {
        this.phpIndex = PhpIndex.getInstance(project);
     }
 
+    /**
+     * Resolves all methods; use getActionSignatures if you only need names
+     */
     public List<ControllerAction> getActions() {
 
         List<ControllerAction> actions = new ArrayList<ControllerAction>();
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(phpIndex);
 
-        for (SymfonyBundle symfonyBundle : symfonyBundleUtil.getBundles()) {
-            actions.addAll(this.getActionMethods(symfonyBundle));
+        for (Map.Entry<String, String> entry : getActionSignatures(this.project).entrySet()) {
+            Method method = getMethodBySignature(entry.getValue());
+            if(method != null) {
+                actions.add(new ControllerAction(entry.getKey(), method));
+            }
         }
 
         return actions;
     }
 
+    /**
+     * "FooBundle:Bar:foo" => "#M#C\Foo\Controller\BarController.fooAction"
+     */
+    @NotNull
+    public static Map<String, String> getActionSignatures(@NotNull final Project project) {
+
+        CachedValue<Map<String, String>> cache = project.getUserData(CONTROLLER_ACTIONS_CACHE);
+        if(cache == null) {
+            cache = CachedValuesManager.getManager(project).createCachedValue(new CachedValueProvider<Map<String, String>>() {
+                @Nullable
+                @Override
+                public Result<Map<String, String>> compute() {
+                    return Result.create(getActionSignaturesProxy(project), SymfonyModificationTrackers.getPhpStructureTracker(project));
+                }
+            }, false);
+
+            project.putUserData(CONTROLLER_ACTIONS_CACHE, cache);
+        }
+
+        return cache.getValue();
+    }
+
+    @NotNull
+    private static Map<String, String> getActionSignaturesProxy(@NotNull Project project) {
+
+        Map<String, String> actions = new LinkedHashMap<String, String>();
+        for (SymfonyBundle symfonyBundle : new SymfonyBundleUtil(project).getBundles()) {
+            visitActionMethods(project, symfonyBundle, actions);
+        }
+
+        return Collections.unmodifiableMap(actions);
+    }
+
     @Nullable
     public ControllerAction getControllerActionOnService(String shortcutName) {
 
@@ -68,16 +115,31 @@ public class ControllerIndex {
 
     @Nullable
     public ControllerAction getControllerAction(String shortcutName) {
-        for(ControllerAction controllerAction: this.getActions()) {
-            if(controllerAction.getShortcutName().equals(shortcutName)) {
-                return controllerAction;
+        String signature = getActionSignatures(this.project).get(shortcutName);
+        if(signature == null) {
+            return null;
+        }
+
+        Method method = getMethodBySignature(signature);
+        if(method == null) {
+            return null;
+        }
+
+        return new ControllerAction(shortcutName, method);
+    }
+
+    @Nullable
+    private Method getMethodBySignature(@NotNull String signature) {
+        for (PhpNamedElement phpNamedElement : this.phpIndex.getBySignature(signature)) {
+            if(phpNamedElement instanceof Method) {
+                return (Method) phpNamedElement;
             }
         }
 
         return null;
     }
 
-    private List<ControllerAction> getActionMethods(SymfonyBundle symfonyBundle) {
+    private static void visitActionMethods(@NotNull Project project, @NotNull SymfonyBundle symfonyBundle, @NotNull Map<String, String> actions) {
 
         String namespaceName = symfonyBundle.getNamespaceName();
         if(!namespaceName.startsWith("\\")) {
@@ -90,9 +152,7 @@ public class ControllerIndex {
 
         namespaceName += "Controller";
 
-        List<ControllerAction> actions = new ArrayList<ControllerAction>();
-
-        for (PhpClass phpClass : PhpIndexUtil.getPhpClassInsideNamespace(this.project, namespaceName)) {
+        for (PhpClass phpClass : PhpIndexUtil.getPhpClassInsideNamespace(project, namespaceName)) {
 
             if(!phpClass.getName().endsWith("Controller")) {
                 continue;
@@ -107,6 +167,8 @@ public class ControllerIndex {
                 presentableFQN = "\\" + presentableFQN;
             }
 
+            String classFqn = presentableFQN;
+
             presentableFQN = presentableFQN.substring(0, presentableFQN.length() - "Controller".length());
             if(presentableFQN.length() == 0) {
                 continue;
@@ -118,14 +180,14 @@ public class ControllerIndex {
                 String methodName = method.getName();
                 if(methodName.endsWith("Action") && method.getAccess().isPublic()) {
                     String shortcutName = symfonyBundle.getName() + ":" + ns.replace("\\", "/") + ':' + methodName.substring(0, methodName.length() - 6);
-                    actions.add(new ControllerAction(shortcutName, method));
+                    if(!actions.containsKey(shortcutName)) {
+                        actions.put(shortcutName, "#M#C" + classFqn + "." + methodName);
+                    }
                 }
 
             }
 
         }
-
-        return actions;
     }
 
     @NotNull
@@ -183,11 +245,13 @@ public class ControllerIndex {
     static public List<LookupElement> getControllerLookupElements(Project project) {
         List<LookupElement> lookupElements = new ArrayList<LookupElement>();
 
-        ControllerIndex controllerIndex = new ControllerIndex(project);
-        for(ControllerAction controllerAction: controllerIndex.getActions()) {
-            lookupElements.add(new ControllerActionLookupElement(controllerAction));
+        // names only; methods are not resolved for completion
+        for(Map.Entry<String, String> entry: getActionSignatures(project).entrySet()) {
+            lookupElements.add(new ControllerActionLookupElement(entry.getKey(), StringUtils.stripStart(entry.getValue().substring("#M#C".length()), "\\")));
         }
 
+        ControllerIndex controllerIndex = new ControllerIndex(project);
+
         for(ControllerAction controllerAction: controllerIndex.getServiceActionMethods(project)) {
             lookupElements.add(new ControllerActionLookupElement(controllerAction));
         }
@@ -1,94 +1,176 @@
 package fr.adrienbrault.idea.symfony2plugin.util.dict;
 
-import com.intellij.psi.PsiElement;
-import com.jetbrains.php.lang.psi.elements.MethodReference;
-import com.jetbrains.php.lang.psi.resolve.types.PhpType;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.jetbrains.php.lang.psi.elements.PhpNamedElement;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Signature => result cache of our PhpTypeProvider2 implementations; PhpStorm calls "getBySignature" for the same
+ * signature again and again and every call needs index lookups and container or entity resolving.
+ *
+ * Results are dropped on container file and php structure changes; entities are defined in both of them.
+ * Least recently used signatures are dropped if we reach the limit.
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class PhpTypeCache {
 
-    private HashMap<Integer, PhpType> phpTypes = new HashMap<Integer, PhpType>();
-    private HashMap<Integer, Long> lastCacheHit = new HashMap<Integer, Long>();
-    private long lastCacheHitCheckTime;
+    private static final int MAX_SIZE = 2000;
 
-    public PhpTypeCache() {
-        this.lastCacheHitCheckTime = System.currentTimeMillis();
-    }
+    @NotNull
+    private final Project project;
 
-    public boolean hasSignature(Integer signature) {
-        return this.phpTypes.containsKey(signature);
-    }
+    private final Map<String, Collection<? extends PhpNamedElement>> phpTypes = new LinkedHashMap<String, Collection<? extends PhpNamedElement>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Collection<? extends PhpNamedElement>> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
 
-    public boolean hasSignature(MethodReference methodReference) {
-        return this.hasSignature(methodReference.hashCode());
-    }
+    private long containerModificationCount = -1;
+    private long phpStructureModificationCount = -1;
 
-    public boolean hasSignature(PsiElement psiElement) {
-        return psiElement instanceof MethodReference && this.hasSignature((MethodReference) psiElement);
-    }
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong resolveTime = new AtomicLong();
 
-    @Nullable
-    public PhpType getSignatureCache(Integer signature) {
-        this.lastCacheHit.put(signature, System.currentTimeMillis());
-        return this.phpTypes.get(signature);
+    public PhpTypeCache(@NotNull Project project) {
+        this.project = project;
     }
 
-    @Nullable
-    public PhpType getSignatureCache(MethodReference methodReference) {
-        return this.getSignatureCache(methodReference.hashCode());
+    public static PhpTypeCache getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PhpTypeCache.class);
     }
+
+    /**
+     * @param key type provider key, signatures are only unique per provider
+     * @param expression signature of "getBySignature"
+     * @param resolver called on cache miss; its result, also null, is cached
+     */
     @Nullable
-    public PhpType getSignatureCache(PsiElement psiElement) {
+    public Collection<? extends PhpNamedElement> getBySignature(char key, @NotNull String expression, @NotNull SignatureResolver resolver) {
 
-        if(psiElement instanceof  MethodReference) {
-            return this.getSignatureCache((MethodReference) psiElement);
+        String signature = key + expression;
+
+        long containerModificationCount;
+        long phpStructureModificationCount;
+
+        synchronized (this.phpTypes) {
+            dropOutdated();
+
+            // state our result is resolved on
+            containerModificationCount = this.containerModificationCount;
+            phpStructureModificationCount = this.phpStructureModificationCount;
+
+            if(this.phpTypes.containsKey(signature)) {
+                Collection<? extends PhpNamedElement> phpNamedElements = this.phpTypes.get(signature);
+                if(isValid(phpNamedElements)) {
+                    this.hits.incrementAndGet();
+                    return phpNamedElements;
+                }
+
+                this.phpTypes.remove(signature);
+            }
         }
 
-        return null;
-    }
+        // dont lock while resolving, we are inside index and type resolving of PhpStorm
+        long start = System.nanoTime();
+        Collection<? extends PhpNamedElement> phpNamedElements = resolver.resolve();
+        this.resolveTime.addAndGet(System.nanoTime() - start);
+        this.misses.incrementAndGet();
+
+        // a change while resolving; result maybe belongs to the old state, so dont cache it
+        synchronized (this.phpTypes) {
+            dropOutdated();
+            if(containerModificationCount == this.containerModificationCount && phpStructureModificationCount == this.phpStructureModificationCount) {
+                this.phpTypes.put(signature, phpNamedElements);
+            }
+        }
 
-    public void setSignatureCache(MethodReference methodReference, PhpType phpType) {
-        this.lastCacheHit.put(methodReference.hashCode(), System.currentTimeMillis());
-        this.phpTypes.put(methodReference.hashCode(), phpType);
+        return phpNamedElements;
     }
 
-    public void setSignatureCache(PsiElement psiElement, PhpType phpType) {
-        if(psiElement instanceof MethodReference) {
-            this.setSignatureCache((MethodReference) psiElement, phpType);
+    public void clear() {
+        synchronized (this.phpTypes) {
+            this.phpTypes.clear();
         }
     }
 
-    public PhpType addSignatureCache(PsiElement psiElement, PhpType phpType) {
-        if(psiElement instanceof MethodReference) {
-            this.setSignatureCache((MethodReference) psiElement, phpType);
+    public int size() {
+        synchronized (this.phpTypes) {
+            return this.phpTypes.size();
         }
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
 
-        return phpType;
+    /**
+     * @return hits of all lookups between 0 and 1
+     */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long lookups = hits + this.misses.get();
+        return lookups > 0 ? (double) hits / lookups : 0;
     }
 
-    public HashMap<Integer, PhpType> getCachedTypes() {
-        return this.phpTypes;
+    /**
+     * @return overall time of cache misses in nanoseconds
+     */
+    public long getResolveTime() {
+        return this.resolveTime.get();
     }
 
-    public long getLastCacheHitCheckTime() {
-        return this.lastCacheHitCheckTime;
+    /**
+     * Needs the lock of "phpTypes"
+     */
+    private void dropOutdated() {
+
+        long containerModificationCount = ContainerFileModificationTracker.getInstance(this.project).getModificationCount();
+        long phpStructureModificationCount = SymfonyModificationTrackers.getPhpStructureTracker(this.project).getModificationCount();
+
+        if(containerModificationCount != this.containerModificationCount || phpStructureModificationCount != this.phpStructureModificationCount) {
+            this.phpTypes.clear();
+            this.containerModificationCount = containerModificationCount;
+            this.phpStructureModificationCount = phpStructureModificationCount;
+        }
     }
 
-    public void removeExpiredTypes(Long expiredTime) {
+    /**
+     * Psi elements are replaced on reparse, also if structure is the same
+     */
+    private static boolean isValid(@Nullable Collection<? extends PhpNamedElement> phpNamedElements) {
 
-        for(Map.Entry<Integer, Long> entrySet: this.lastCacheHit.entrySet()) {
-            if(entrySet.getValue() < expiredTime) {
-                this.phpTypes.remove(entrySet.getKey());
+        if(phpNamedElements == null) {
+            return true;
+        }
+
+        for (PhpNamedElement phpNamedElement : phpNamedElements) {
+            if(!phpNamedElement.isValid()) {
+                return false;
             }
         }
 
-        this.lastCacheHitCheckTime = System.currentTimeMillis();
+        return true;
+    }
+
+    public interface SignatureResolver {
+        @Nullable
+        Collection<? extends PhpNamedElement> resolve();
     }
 
 }
@@ -19,6 +19,7 @@ import fr.adrienbrault.idea.symfony2plugin.stubs.ServiceIndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerParameterStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesTagStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TaggedServicesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
@@ -256,23 +257,16 @@ public class ServiceUtil {
         return phpClasses;
     }
 
+    /**
+     * Services of a tag in xml and yaml files; lookup on TaggedServicesStubIndex, so only files with this tag are visited
+     */
     public static Set<String> getTaggedServices(Project project, String tagName) {
 
-        // @TODO: cache
-        SymfonyProcessors.CollectProjectUniqueKeys projectUniqueKeysStrong = new SymfonyProcessors.CollectProjectUniqueKeys(project, ServicesTagStubIndex.KEY);
-        FileBasedIndexImpl.getInstance().processAllKeys(ServicesTagStubIndex.KEY, projectUniqueKeysStrong, project);
-
         Set<String> service = new HashSet<String>();
 
-        for(String serviceName: projectUniqueKeysStrong.getResult()) {
-
-            List<String[]> serviceDefinitions = FileBasedIndexImpl.getInstance().getValues(ServicesTagStubIndex.KEY, serviceName, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), XmlFileType.INSTANCE, YAMLFileType.YML));
-            for(String[] strings: serviceDefinitions) {
-                if(Arrays.asList(strings).contains(tagName)) {
-                    service.add(serviceName);
-                }
-            }
-
+        List<String[]> serviceDefinitions = FileBasedIndexImpl.getInstance().getValues(TaggedServicesStubIndex.KEY, tagName, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), XmlFileType.INSTANCE, YAMLFileType.YML));
+        for(String[] strings: serviceDefinitions) {
+            service.addAll(Arrays.asList(strings));
         }
 
         return service;
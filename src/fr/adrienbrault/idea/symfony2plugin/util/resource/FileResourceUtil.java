@@ -14,7 +14,6 @@ import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.Consumer;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIcons;
-import com.jetbrains.php.PhpIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.FileResourcesIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.FileResourceVisitorUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
@@ -202,7 +201,7 @@ public class FileResourceUtil {
 
         String bundleName = content.substring(1, content.indexOf("/"));
 
-        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(PhpIndex.getInstance(project)).getBundle(bundleName);
+        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(project).getBundle(bundleName);
         if(symfonyBundle == null) {
             return Collections.emptyList();
         }
@@ -0,0 +1,50 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser which is fed by ContainerStreamReader; ServiceXmlParserFactory shares one pass per container file
+ * for all of them, so implementations must only collect their data inside the visit callbacks
+ */
+abstract public class AbstractServiceStreamParser extends AbstractServiceParser implements ContainerStreamVisitorInterface {
+
+    @Override
+    public String getXPathFilter() {
+        return "";
+    }
+
+    public void parser(File file) {
+        try {
+            ContainerStreamReader.read(file, this);
+        } catch (XMLStreamException ignored) {
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void visitService(@NotNull Map<String, String> serviceAttributes) {
+    }
+
+    @Override
+    public void visitServiceTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+    }
+
+    @Override
+    public void visitServiceMethodCall(@NotNull Map<String, String> serviceAttributes, @NotNull String method, @NotNull List<ContainerStreamArgument> arguments) {
+    }
+
+    @Override
+    public void visitParameter(@NotNull String key, @NotNull String value) {
+    }
+
+    @Override
+    public void visitEnd() {
+    }
+
+}
@@ -0,0 +1,160 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Parsed state of all container files for a set of parser classes.
+ *
+ * Instances are never changed after creation, a new snapshot is published on any container file change.
+ * Every file is read once and all stream parsers share this pass; DOM based parsers are called after it.
+ */
+public class ContainerSnapshot {
+
+    /**
+     * Timestamp of a configured file which not exists; its a state like any timestamp, so a missing file
+     * is not reported as modified on every check
+     */
+    private static final long MISSING = -1;
+
+    /**
+     * All configured files with their timestamp or MISSING
+     */
+    @NotNull
+    private final Map<String, Long> files;
+
+    @NotNull
+    private final Map<Class, ServiceParserInterface> parsers;
+
+    private ContainerSnapshot(@NotNull Map<String, Long> files, @NotNull Map<Class, ServiceParserInterface> parsers) {
+        this.files = Collections.unmodifiableMap(files);
+        this.parsers = Collections.unmodifiableMap(parsers);
+    }
+
+    @Nullable
+    public <T extends ServiceParserInterface> T get(@NotNull Class<T> serviceParser) {
+        return serviceParser.cast(this.parsers.get(serviceParser));
+    }
+
+    @NotNull
+    public Set<Class> getParserClasses() {
+        return this.parsers.keySet();
+    }
+
+    public boolean isModified(@NotNull List<File> serviceFiles) {
+        if(this.files.size() != serviceFiles.size()) {
+            return true;
+        }
+
+        for(File serviceFile: serviceFiles) {
+            Long lastModified = this.files.get(serviceFile.getAbsolutePath());
+            if(lastModified == null || lastModified != getLastModified(serviceFile)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long getLastModified(@NotNull File file) {
+        return file.exists() ? file.lastModified() : MISSING;
+    }
+
+    /**
+     * Same files, but with some more parser; already parsed instances are taken over
+     */
+    @NotNull
+    public ContainerSnapshot withParsers(@NotNull Collection<Class<? extends ServiceParserInterface>> serviceParsers) {
+
+        Map<Class, ServiceParserInterface> parsers = new HashMap<Class, ServiceParserInterface>(this.parsers);
+
+        List<File> files = new ArrayList<File>();
+        for (Map.Entry<String, Long> entry : this.files.entrySet()) {
+            if(entry.getValue() != MISSING) {
+                files.add(new File(entry.getKey()));
+            }
+        }
+
+        Collection<Class<? extends ServiceParserInterface>> missing = new ArrayList<Class<? extends ServiceParserInterface>>();
+        for (Class<? extends ServiceParserInterface> serviceParser : serviceParsers) {
+            if(!parsers.containsKey(serviceParser)) {
+                missing.add(serviceParser);
+            }
+        }
+
+        parsers.putAll(parse(files, missing));
+
+        return new ContainerSnapshot(this.files, parsers);
+    }
+
+    @NotNull
+    public static ContainerSnapshot create(@NotNull List<File> serviceFiles, @NotNull Collection<Class<? extends ServiceParserInterface>> serviceParsers) {
+
+        List<File> files = new ArrayList<File>();
+        Map<String, Long> fileModified = new HashMap<String, Long>();
+        for (File serviceFile : serviceFiles) {
+            long lastModified = getLastModified(serviceFile);
+            fileModified.put(serviceFile.getAbsolutePath(), lastModified);
+
+            if(lastModified != MISSING) {
+                files.add(serviceFile);
+            } else {
+                Symfony2ProjectComponent.getLogger().warn("file not found: " + serviceFile.toString());
+            }
+        }
+
+        return new ContainerSnapshot(fileModified, parse(files, serviceParsers));
+    }
+
+    @NotNull
+    private static Map<Class, ServiceParserInterface> parse(@NotNull List<File> files, @NotNull Collection<Class<? extends ServiceParserInterface>> serviceParsers) {
+
+        Map<Class, ServiceParserInterface> parsers = new HashMap<Class, ServiceParserInterface>();
+        List<ContainerStreamVisitorInterface> visitors = new ArrayList<ContainerStreamVisitorInterface>();
+
+        for (Class<? extends ServiceParserInterface> serviceParser : serviceParsers) {
+            ServiceParserInterface instance;
+            try {
+                instance = serviceParser.newInstance();
+            } catch (InstantiationException e) {
+                continue;
+            } catch (IllegalAccessException e) {
+                continue;
+            }
+
+            Symfony2ProjectComponent.getLogger().info("new instance: " + serviceParser.getName());
+
+            parsers.put(serviceParser, instance);
+            if(instance instanceof ContainerStreamVisitorInterface) {
+                visitors.add((ContainerStreamVisitorInterface) instance);
+            }
+        }
+
+        ContainerStreamVisitorInterface[] visitorArray = visitors.toArray(new ContainerStreamVisitorInterface[visitors.size()]);
+
+        for (File file : files) {
+            if(visitorArray.length > 0) {
+                try {
+                    ContainerStreamReader.read(file, visitorArray);
+                } catch (XMLStreamException ignored) {
+                } catch (IOException ignored) {
+                }
+            }
+
+            for (ServiceParserInterface parser : parsers.values()) {
+                if(!(parser instanceof ContainerStreamVisitorInterface)) {
+                    parser.parser(file);
+                }
+            }
+        }
+
+        return parsers;
+    }
+
+}
@@ -0,0 +1,36 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * "argument" element of a streamed method call, text includes all child elements like DOM getTextContent
+ */
+public class ContainerStreamArgument {
+
+    @NotNull
+    private final Map<String, String> attributes;
+
+    @NotNull
+    private final StringBuilder text = new StringBuilder();
+
+    public ContainerStreamArgument(@NotNull Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
+    @NotNull
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    @NotNull
+    public String getText() {
+        return text.toString();
+    }
+
+    void appendText(@NotNull String value) {
+        this.text.append(value);
+    }
+
+}
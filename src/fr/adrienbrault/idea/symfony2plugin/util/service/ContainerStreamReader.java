@@ -0,0 +1,178 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Streaming StAX reader for compiled container files like "appDevDebugProjectContainer.xml".
+ *
+ * These files are easily bigger than 30MB, so building a DOM for every parser is expensive.
+ * We walk the file once with constant memory and dispatch every relevant element to all visitors.
+ */
+public class ContainerStreamReader {
+
+    @NotNull
+    private final XMLStreamReader reader;
+
+    @NotNull
+    private final ContainerStreamVisitorInterface[] visitors;
+
+    private ContainerStreamReader(@NotNull XMLStreamReader reader, @NotNull ContainerStreamVisitorInterface[] visitors) {
+        this.reader = reader;
+        this.visitors = visitors;
+    }
+
+    public static void read(@NotNull File file, @NotNull ContainerStreamVisitorInterface... visitors) throws IOException, XMLStreamException {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file));
+        try {
+            read(stream, visitors);
+        } finally {
+            stream.close();
+        }
+    }
+
+    public static void read(@NotNull InputStream stream, @NotNull ContainerStreamVisitorInterface... visitors) throws XMLStreamException {
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(stream);
+        try {
+            new ContainerStreamReader(reader, visitors).walk();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @NotNull
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        // container files never need any external resource
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        return factory;
+    }
+
+    private void walk() throws XMLStreamException {
+
+        // element names of current path; eg [container, services, service, tag]
+        List<String> path = new ArrayList<String>();
+        LinkedList<Map<String, String>> services = new LinkedList<Map<String, String>>();
+
+        String parameterKey = null;
+        boolean parameterCollection = false;
+        StringBuilder parameterValue = null;
+
+        // outermost "call" of a service and its arguments
+        int callDepth = 0;
+        String callMethod = null;
+        List<ContainerStreamArgument> callArguments = null;
+        LinkedList<ContainerStreamArgument> openArguments = new LinkedList<ContainerStreamArgument>();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = reader.getLocalName();
+                    String parent = path.size() > 0 ? path.get(path.size() - 1) : null;
+                    path.add(name);
+
+                    if("service".equals(name)) {
+                        Map<String, String> serviceAttributes = getAttributes();
+                        services.addFirst(serviceAttributes);
+                        for (ContainerStreamVisitorInterface visitor : visitors) {
+                            visitor.visitService(serviceAttributes);
+                        }
+                    } else if("tag".equals(name) && "service".equals(parent)) {
+                        Map<String, String> tagAttributes = getAttributes();
+                        for (ContainerStreamVisitorInterface visitor : visitors) {
+                            visitor.visitServiceTag(services.getFirst(), tagAttributes);
+                        }
+                    } else if("call".equals(name) && callArguments == null && services.size() > 0) {
+                        callDepth = path.size();
+                        callMethod = reader.getAttributeValue(null, "method");
+                        callArguments = new ArrayList<ContainerStreamArgument>();
+                    } else if("argument".equals(name) && callArguments != null) {
+                        ContainerStreamArgument argument = new ContainerStreamArgument(getAttributes());
+                        callArguments.add(argument);
+                        openArguments.addFirst(argument);
+                    } else if("parameter".equals(name) && isParameterPath(path)) {
+                        parameterKey = reader.getAttributeValue(null, "key");
+                        parameterCollection = "collection".equals(reader.getAttributeValue(null, "type"));
+                        parameterValue = new StringBuilder();
+                    }
+
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if(parameterValue != null && !parameterCollection) {
+                        parameterValue.append(reader.getText());
+                    }
+
+                    for (ContainerStreamArgument argument : openArguments) {
+                        argument.appendText(reader.getText());
+                    }
+
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if(parameterValue != null && isParameterPath(path)) {
+                        if(parameterKey != null) {
+                            String value = parameterCollection ? "collection" : parameterValue.toString();
+                            for (ContainerStreamVisitorInterface visitor : visitors) {
+                                visitor.visitParameter(parameterKey, value);
+                            }
+                        }
+
+                        parameterKey = null;
+                        parameterValue = null;
+                    }
+
+                    if(callArguments != null) {
+                        if(path.size() == callDepth) {
+                            if(callMethod != null) {
+                                for (ContainerStreamVisitorInterface visitor : visitors) {
+                                    visitor.visitServiceMethodCall(services.getLast(), callMethod, callArguments);
+                                }
+                            }
+
+                            callMethod = null;
+                            callArguments = null;
+                        } else if("argument".equals(reader.getLocalName())) {
+                            openArguments.removeFirst();
+                        }
+                    }
+
+                    if("service".equals(reader.getLocalName())) {
+                        services.removeFirst();
+                    }
+
+                    path.remove(path.size() - 1);
+                    break;
+            }
+        }
+
+        for (ContainerStreamVisitorInterface visitor : visitors) {
+            visitor.visitEnd();
+        }
+    }
+
+    private static boolean isParameterPath(@NotNull List<String> path) {
+        return path.size() == 3 && "container".equals(path.get(0)) && "parameters".equals(path.get(1)) && "parameter".equals(path.get(2));
+    }
+
+    @NotNull
+    private Map<String, String> getAttributes() {
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+
+        return attributes;
+    }
+
+}
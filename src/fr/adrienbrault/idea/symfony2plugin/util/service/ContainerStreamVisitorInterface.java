@@ -0,0 +1,39 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Callbacks for a single pass over a compiled container xml, see ContainerStreamReader
+ */
+public interface ContainerStreamVisitorInterface {
+
+    /**
+     * Every "service" element; also inline services which dont have an id
+     */
+    public void visitService(@NotNull Map<String, String> serviceAttributes);
+
+    /**
+     * "tag" element directly inside a "service" element
+     */
+    public void visitServiceTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes);
+
+    /**
+     * "call" element inside a service, with all "argument" elements below it.
+     * Service attributes are the one of the top most service so calls of inline services belong to their parent
+     */
+    public void visitServiceMethodCall(@NotNull Map<String, String> serviceAttributes, @NotNull String method, @NotNull List<ContainerStreamArgument> arguments);
+
+    /**
+     * "/container/parameters/parameter[@key]"; collection values are reported as "collection"
+     */
+    public void visitParameter(@NotNull String key, @NotNull String value);
+
+    /**
+     * File was read without any error
+     */
+    public void visitEnd();
+
+}
@@ -5,98 +5,95 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * All parsers of a project share one ContainerSnapshot, so every container file is read once for all of them
+ */
 public class ServiceXmlParserFactory {
 
-    protected static Map<Project, Map<Class, ServiceXmlParserFactory>> instance = new HashMap<Project, Map<Class, ServiceXmlParserFactory>>();
+    protected static Map<Project, ServiceXmlParserFactory> instance = new HashMap<Project, ServiceXmlParserFactory>();
 
     protected Project project;
-    protected ServiceParserInterface serviceParserInstance;
 
-    protected HashMap<String, Long> serviceFiles = new HashMap<String, Long>();
+    /**
+     * Immutable; replaced as a whole so readers never see a half parsed state
+     */
+    @Nullable
+    private volatile ContainerSnapshot snapshot;
 
     public ServiceXmlParserFactory(Project project) {
         this.project = project;
     }
 
-    protected boolean isModified(List<File> serviceFiles) {
-        if(this.serviceFiles.size() != serviceFiles.size()) {
-            return true;
-        }
-
-        for(File serviceFile: serviceFiles) {
-            if(serviceFile.exists()) {
-                if(!this.serviceFiles.containsKey(serviceFile.getAbsolutePath())) {
-                    return true;
-                }
-                if(!this.serviceFiles.get(serviceFile.getAbsolutePath()).equals(serviceFile.lastModified())) {
-                    return true;
-                }
-            } else {
-                Symfony2ProjectComponent.getLogger().warn("file not found: " + serviceFiles.toString());
-            }
-        }
-
-        return false;
-    }
-
     @Nullable
     public <T extends ServiceParserInterface> T parser(Class<T> serviceParser) {
 
-        Symfony2ProjectComponent symfony2ProjectComponent = this.project.getComponent(Symfony2ProjectComponent.class);
-
-        List<File> settingsServiceFiles = symfony2ProjectComponent.getContainerFiles();
+        List<File> settingsServiceFiles = this.project.getComponent(Symfony2ProjectComponent.class).getContainerFiles();
 
-        if (this.serviceParserInstance != null && !this.isModified(settingsServiceFiles)) {
-            return (T) this.serviceParserInstance;
+        ContainerSnapshot current = this.snapshot;
+        if(current != null && !current.isModified(settingsServiceFiles)) {
+            T parser = current.get(serviceParser);
+            if(parser != null) {
+                return parser;
+            }
         }
 
-        try {
-            this.serviceParserInstance = serviceParser.newInstance();
-            Symfony2ProjectComponent.getLogger().info("new instance: " + serviceParser.getName());
-        } catch (InstantiationException ignored) {
-        } catch (IllegalAccessException ignored) {
-        }
+        synchronized (this) {
 
-        if (this.serviceParserInstance != null) {
-            this.serviceFiles = new HashMap<String, Long>();
-            for(File settingsServiceFile: settingsServiceFiles) {
-                if(settingsServiceFile.exists()) {
-                    this.serviceParserInstance.parser(settingsServiceFile);
-                    serviceFiles.put(settingsServiceFile.getAbsolutePath(), settingsServiceFile.lastModified());
+            // other thread was faster
+            current = this.snapshot;
+            boolean modified = current == null || current.isModified(settingsServiceFiles);
+            if(!modified) {
+                T parser = current.get(serviceParser);
+                if(parser != null) {
+                    return parser;
                 }
             }
-        }
 
-        Symfony2ProjectComponent.getLogger().info("update: " + serviceParser.getName());
+            Collection<Class<? extends ServiceParserInterface>> serviceParsers = new HashSet<Class<? extends ServiceParserInterface>>();
+            serviceParsers.add(serviceParser);
+
+            if(modified) {
+                // known stream parsers are cheap on the same pass; DOM based ones are build again on their own next access
+                if(current != null) {
+                    for (Class parserClass : current.getParserClasses()) {
+                        if(ContainerStreamVisitorInterface.class.isAssignableFrom(parserClass)) {
+                            serviceParsers.add(parserClass);
+                        }
+                    }
+                }
 
-        return (T) this.serviceParserInstance;
-    }
+                current = ContainerSnapshot.create(settingsServiceFiles, serviceParsers);
+            } else {
+                current = current.withParsers(serviceParsers);
+            }
+
+            this.snapshot = current;
 
-    public void setCacheInvalid() {
-        this.serviceFiles = new HashMap<String, Long>();
+            Symfony2ProjectComponent.getLogger().info("update: " + serviceParser.getName());
+
+            return current.get(serviceParser);
+        }
     }
 
-    synchronized public static <T extends ServiceParserInterface> T getInstance(Project project, Class<T> serviceParser){
+    synchronized public void setCacheInvalid() {
+        this.snapshot = null;
+    }
 
-        Map<Class, ServiceXmlParserFactory> projectInstance = instance.get(project);
+    public static <T extends ServiceParserInterface> T getInstance(Project project, Class<T> serviceParser){
+        return getFactory(project).parser(serviceParser);
+    }
 
-        if(projectInstance == null) {
-            projectInstance = new HashMap<Class, ServiceXmlParserFactory>();
-            instance.put(project, projectInstance);
-        }
+    synchronized private static ServiceXmlParserFactory getFactory(Project project) {
 
-        ServiceXmlParserFactory serviceXmlParserFactory = projectInstance.get(serviceParser);
+        ServiceXmlParserFactory serviceXmlParserFactory = instance.get(project);
         if(serviceXmlParserFactory == null) {
             serviceXmlParserFactory = new ServiceXmlParserFactory(project);
-            projectInstance.put(serviceParser, serviceXmlParserFactory);
+            instance.put(project, serviceXmlParserFactory);
         }
 
-        return serviceXmlParserFactory.parser(serviceParser);
-
+        return serviceXmlParserFactory;
     }
 
     synchronized public static void cleanInstance(Project project){
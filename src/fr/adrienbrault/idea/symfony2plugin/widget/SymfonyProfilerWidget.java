@@ -18,6 +18,7 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
 import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerIndex;
 import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerUtil;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.DefaultDataCollector;
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.MailCollector;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequest;
 import fr.adrienbrault.idea.symfony2plugin.widget.action.SymfonyProfilerWidgetActions;
 import org.jetbrains.annotations.NotNull;
@@ -31,6 +32,12 @@ public class SymfonyProfilerWidget extends EditorBasedWidget implements StatusBa
 
     private Project project;
 
+    @Nullable
+    private ProfilerIndex profilerIndex;
+
+    @Nullable
+    private File profilerCsv;
+
     public static String ID = "symfony2.profiler";
 
     public SymfonyProfilerWidget(@NotNull Project project) {
@@ -56,15 +63,14 @@ public class SymfonyProfilerWidget extends EditorBasedWidget implements StatusBa
             return actionGroup;
         }
 
-        ProfilerIndex profilerIndex = new ProfilerIndex(profilerCsv);
-
-        List<ProfilerRequest> requests = profilerIndex.getRequests();
-        Collections.reverse(requests);
-
-        if(requests.size() > 10) {
-            requests = requests.subList(0, 10);
+        // reuse index; it only needs to read new requests
+        if(this.profilerIndex == null || !profilerCsv.equals(this.profilerCsv)) {
+            this.profilerIndex = new ProfilerIndex(profilerCsv);
+            this.profilerCsv = profilerCsv;
         }
 
+        List<ProfilerRequest> requests = this.profilerIndex.getLatestRequests(10);
+
         Collection<AnAction> templateActions = new ArrayList<AnAction>();
         Map<String, Integer> templateActionsMap = new HashMap<String, Integer>();
 
@@ -87,9 +93,7 @@ public class SymfonyProfilerWidget extends EditorBasedWidget implements StatusBa
             // regular expression fails on current version (because of multiple mailer)
             // ArrayList<MailMessage> messages = profilerRequest.getCollector(MailCollector.class).getMessages();
 
-            // @TODO: use collector
-            String content = profilerRequest.getContent();
-            if(content != null && content.contains("Swift_Mime_Headers_MailboxHeader")) {
+            if(profilerRequest.getCollector(MailCollector.class).hasMails()) {
                 mailActions.add(new SymfonyProfilerWidgetActions.UrlAction(this.project, profilerRequest, statusCode).withPanel("swiftmailer").withIcon(Symfony2Icons.MAIL));
             }
 
@@ -0,0 +1,111 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.asset.dic;
+
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetDirectoryReader;
+import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetFile;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetDirectoryReader
+ */
+public class AssetDirectoryReaderTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        // web directory is outside of project content, bundles are indexed
+        createDummyFiles(
+            "web/assets/foo.js",
+            "web/assets/foo.css"
+        );
+
+        myFixture.addFileToProject("src/FooBundle/FooBundle.php", "<?php\n" +
+            "namespace FooBundle;\n" +
+            "class FooBundle extends \\Symfony\\Component\\HttpKernel\\Bundle\\Bundle {}\n"
+        );
+
+        myFixture.addFileToProject("src/FooBundle/Resources/public/js/foo.js", "");
+        myFixture.addFileToProject("src/FooBundle/Resources/public/css/foo.CSS", "");
+        myFixture.addFileToProject("src/FooBundle/Resources/public/js/node_modules/lib/lib.js", "");
+        myFixture.addFileToProject("src/FooBundle/foo.js", "");
+    }
+
+    public void testGetAssetFilesOfWebAndBundle() {
+        List<String> assets = getAssetNames(new AssetDirectoryReader().setFilterExtension("js").setIncludeBundleDir(true));
+
+        assertContainsElements(assets, "assets/foo.js", "@FooBundle/Resources/public/js/foo.js");
+        assertDoesntContain(assets, "assets/foo.css", "@FooBundle/Resources/public/css/foo.CSS", "@FooBundle/foo.js");
+
+        // excluded by default
+        assertDoesntContain(assets, "@FooBundle/Resources/public/js/node_modules/lib/lib.js");
+
+        assets = getAssetNames(new AssetDirectoryReader().setFilterExtension("css").setIncludeBundleDir(true));
+        assertContainsElements(assets, "assets/foo.css", "@FooBundle/Resources/public/css/foo.CSS");
+
+        assertDoesntContain(getAssetNames(new AssetDirectoryReader().setFilterExtension("js")), "@FooBundle/Resources/public/js/foo.js");
+    }
+
+    public void testGetAssetFilesIsLimitedByPrefixDirectory() {
+        List<String> assets = getAssetNames(new AssetDirectoryReader().setIncludeBundleDir(true).setPrefix("@FooBundle/Resources/public/css/fo"));
+
+        assertContainsElements(assets, "@FooBundle/Resources/public/css/foo.CSS");
+        assertDoesntContain(assets, "@FooBundle/Resources/public/js/foo.js");
+
+        // unknown directory dont limit anything; completion filters on its own
+        assets = getAssetNames(new AssetDirectoryReader().setIncludeBundleDir(true).setPrefix("FooBundle/Res"));
+        assertContainsElements(assets, "assets/foo.js", "@FooBundle/Resources/public/js/foo.js");
+    }
+
+    public void testExcludePatterns() {
+        Settings.getInstance(getProject()).assetExcludePatterns = "**/node_modules/**; assets/*.css";
+
+        try {
+            List<String> assets = getAssetNames(new AssetDirectoryReader().setIncludeBundleDir(true));
+
+            assertContainsElements(assets, "assets/foo.js", "@FooBundle/Resources/public/js/foo.js");
+            assertDoesntContain(assets, "assets/foo.css", "@FooBundle/Resources/public/js/node_modules/lib/lib.js");
+
+            assertSize(0, new AssetDirectoryReader().setProject(getProject()).findAssetFiles("assets/foo.css"));
+        } finally {
+            Settings.getInstance(getProject()).assetExcludePatterns = Settings.DEFAULT_ASSET_EXCLUDE_PATTERNS;
+        }
+    }
+
+    public void testWithoutExcludesAllFilesAreVisible() {
+        Settings.getInstance(getProject()).assetExcludePatterns = "";
+
+        try {
+            assertContainsElements(getAssetNames(new AssetDirectoryReader().setIncludeBundleDir(true)), "@FooBundle/Resources/public/js/node_modules/lib/lib.js");
+        } finally {
+            Settings.getInstance(getProject()).assetExcludePatterns = Settings.DEFAULT_ASSET_EXCLUDE_PATTERNS;
+        }
+    }
+
+    public void testFindAssetFiles() {
+        AssetDirectoryReader reader = new AssetDirectoryReader().setProject(getProject()).setIncludeBundleDir(true);
+
+        assertEquals("assets/foo.js", reader.findAssetFiles("assets/foo.js").get(0).toString());
+        assertEquals("@FooBundle/Resources/public/js/foo.js", reader.findAssetFiles("@FooBundle/Resources/public/js/foo.js").get(0).toString());
+
+        assertSize(0, reader.findAssetFiles("assets/unknown.js"));
+        assertSize(0, reader.findAssetFiles("@FooBundle/foo.js"));
+        assertSize(0, reader.findAssetFiles("@UnknownBundle/Resources/public/js/foo.js"));
+        assertSize(0, reader.findAssetFiles("assets"));
+
+        assertSize(0, reader.setFilterExtension("css").findAssetFiles("@FooBundle/Resources/public/js/foo.js"));
+    }
+
+    private List<String> getAssetNames(AssetDirectoryReader reader) {
+        List<String> names = new ArrayList<String>();
+
+        for (AssetFile assetFile : reader.setProject(getProject()).getAssetFiles()) {
+            names.add(assetFile.toString());
+        }
+
+        return names;
+    }
+
+}
@@ -2,6 +2,7 @@ package fr.adrienbrault.idea.symfony2plugin.tests.doctrine;
 
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import fr.adrienbrault.idea.symfony2plugin.doctrine.EntityHelper;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineTypes;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.DoctrineModel;
 
@@ -60,6 +61,30 @@ public class EntityHelperTest extends SymfonyLightCodeInsightFixtureTestCase {
         assertNull("FooBundle\\Document\\Doc", EntityHelper.resolveShortcutName(getProject(), "BarCarBundle:Bar"));
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.doctrine.EntityHelper#getShortcutNamespaces
+     */
+    public void testGetShortcutNamespaces() {
+        Map<String, String> entities = EntityHelper.getShortcutNamespaces(getProject(), DoctrineTypes.Manager.ORM);
+        assertEquals("\\FooBundle\\Entity", entities.get("FooBundle"));
+        assertEquals("\\FooBundle\\Document", EntityHelper.getShortcutNamespaces(getProject(), DoctrineTypes.Manager.MONGO_DB).get("FooBundle"));
+        assertEquals("\\FooBundle\\Document", EntityHelper.getShortcutNamespaces(getProject(), DoctrineTypes.Manager.COUCH_DB).get("FooBundle"));
+
+        // no compiled container here, so all are weak ones
+        assertEquals("\\FooBundle\\Entity", EntityHelper.getWeakShortcutNamespaces(getProject(), DoctrineTypes.Manager.ORM).get("FooBundle"));
+
+        // shared until php structure changes
+        assertSame(entities, EntityHelper.getShortcutNamespaces(getProject(), DoctrineTypes.Manager.ORM));
+
+        myFixture.addFileToProject("car.php", "<?php\n" +
+            "namespace CarBundle { class CarBundle implements \\Symfony\\Component\\HttpKernel\\Bundle\\Bundle {} }\n" +
+            "namespace CarBundle\\Entity { class Car {} }\n"
+        );
+
+        assertEquals("\\CarBundle\\Entity", EntityHelper.getShortcutNamespaces(getProject(), DoctrineTypes.Manager.ORM).get("CarBundle"));
+        assertEquals("CarBundle\\Entity\\Car", EntityHelper.resolveShortcutName(getProject(), "CarBundle:Car").getPresentableFQN());
+    }
+
     /**
      * @see fr.adrienbrault.idea.symfony2plugin.doctrine.EntityHelper#getModelClasses
      */
@@ -85,4 +110,49 @@ public class EntityHelperTest extends SymfonyLightCodeInsightFixtureTestCase {
         assertFalse(map.values().contains("FooBundle:BarRepository"));
         assertFalse(map.values().contains("FooBundle:BarInterface"));
     }
+
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.doctrine.EntityHelper#getModelClassesByClassName
+     */
+    public void testGetModelClassesByClassName() {
+        assertSize(1, EntityHelper.getModelClassesByClassName(getProject(), "FooBundle\\Entity\\Bar"));
+        assertSize(1, EntityHelper.getModelClassesByClassName(getProject(), "\\FooBundle\\Entity\\Bar"));
+        assertSize(0, EntityHelper.getModelClassesByClassName(getProject(), "FooBundle\\Entity\\BarRepository"));
+        assertSize(0, EntityHelper.getModelClassesByClassName(getProject(), "FooBundle\\Entity\\Unknown"));
+    }
+
+    /**
+     * Bundle namespace and metadata models of the same classes must be merged without a linear search per model
+     */
+    public void testGetModelClassesWithThousandsOfModels() {
+
+        int count = 3000;
+
+        StringBuilder content = new StringBuilder("<?php\nnamespace FooBundle\\Entity\\Generated;\nuse Doctrine\\ORM\\Mapping AS ORM;\n");
+        for (int i = 0; i < count; i++) {
+            content.append("/** @ORM\\Entity */ class Model").append(i).append(" {}\n");
+        }
+
+        myFixture.addFileToProject("generated.php", content.toString());
+
+        Collection<DoctrineModel> models = EntityHelper.getModelClasses(getProject());
+
+        // no rebuild without a change; models of the cached catalogue are shared
+        assertSame(
+            EntityHelper.getModelClassesByClassName(getProject(), "FooBundle\\Entity\\Generated\\Model0").iterator().next(),
+            EntityHelper.getModelClassesByClassName(getProject(), "FooBundle\\Entity\\Generated\\Model0").iterator().next()
+        );
+
+        Map<String, Integer> classNames = new HashMap<String, Integer>();
+        for (DoctrineModel model : models) {
+            String className = model.getPhpClass().getPresentableFQN();
+            classNames.put(className, classNames.containsKey(className) ? classNames.get(className) + 1 : 1);
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(1), classNames.get("FooBundle\\Entity\\Generated\\Model" + i));
+        }
+
+        assertSize(1, EntityHelper.getModelClassesByClassName(getProject(), "FooBundle\\Entity\\Generated\\Model" + (count - 1)));
+    }
 }
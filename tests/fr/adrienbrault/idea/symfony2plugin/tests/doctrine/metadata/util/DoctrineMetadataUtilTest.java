@@ -142,6 +142,13 @@ public class DoctrineMetadataUtilTest extends SymfonyLightCodeInsightFixtureTest
         assertNotNull(items.get("foo_table"));
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.doctrine.metadata.util.DoctrineMetadataUtil#getTableNames
+     */
+    public void testGetTableNames() {
+        assertContainsElements(DoctrineMetadataUtil.getTableNames(getProject()), "cms_users", "foo_table");
+    }
+
     /**
      * @see fr.adrienbrault.idea.symfony2plugin.doctrine.metadata.util.DoctrineMetadataUtil#getMetadataByTable
      */
@@ -0,0 +1,139 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.profiler;
+
+import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerIndex;
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerIndex
+ */
+public class ProfilerIndexTest extends Assert {
+
+    @Test
+    public void testRequestsAreReadAndAppendedLinesAreVisible() throws Exception {
+
+        File file = createIndex();
+        append(file, "18e6b8,127.0.0.1,GET,http://127.0.0.1:8000/foo,1416762140,,200\n");
+        append(file, "a4b9e2,127.0.0.1,POST,http://127.0.0.1:8000/bar,1416762141,,302\n");
+
+        ProfilerIndex profilerIndex = new ProfilerIndex(file);
+
+        List<ProfilerRequest> requests = profilerIndex.getRequests();
+        assertEquals(2, requests.size());
+        assertEquals("18e6b8", requests.get(0).getHash());
+        assertEquals("127.0.0.1", requests.get(0).getHost());
+        assertEquals("GET", requests.get(0).getMethod());
+        assertEquals("http://127.0.0.1:8000/foo", requests.get(0).getUrl());
+        assertEquals("1416762140", requests.get(0).getTimestamp());
+        assertEquals("POST", requests.get(1).getMethod());
+
+        // incomplete line is ignored until its written
+        append(file, "c1d2e3,127.0.0.1,GET,http://127.0.0.1:8000/car");
+        assertEquals(2, profilerIndex.getRequests().size());
+        assertNull(profilerIndex.getRequestOnHash("c1d2e3"));
+
+        append(file, ",1416762142,,200\r\n");
+        assertEquals(3, profilerIndex.getRequests().size());
+        assertEquals("http://127.0.0.1:8000/car", profilerIndex.getRequestOnHash("c1d2e3").getUrl());
+        assertEquals("1416762142", profilerIndex.getRequestOnHash("c1d2e3").getTimestamp());
+
+        List<ProfilerRequest> latest = profilerIndex.getLatestRequests(2);
+        assertEquals(2, latest.size());
+        assertEquals("c1d2e3", latest.get(0).getHash());
+        assertEquals("a4b9e2", latest.get(1).getHash());
+    }
+
+    @Test
+    public void testThatReplacedFileIsReadAgain() throws Exception {
+
+        File file = createIndex();
+        append(file, "18e6b8,127.0.0.1,GET,http://127.0.0.1:8000/foo,1416762140,,200\n");
+
+        ProfilerIndex profilerIndex = new ProfilerIndex(file);
+        assertNotNull(profilerIndex.getRequestOnHash("18e6b8"));
+
+        // "cache:clear" with new requests
+        assertTrue(file.delete());
+        append(file, "f00bar,127.0.0.1,GET,http://127.0.0.1:8000/bar,1416762150,,200\n");
+        append(file, "f00baz,127.0.0.1,GET,http://127.0.0.1:8000/baz,1416762151,,200\n");
+
+        assertNull(profilerIndex.getRequestOnHash("18e6b8"));
+        assertEquals("http://127.0.0.1:8000/baz", profilerIndex.getRequestOnHash("f00baz").getUrl());
+        assertEquals(2, profilerIndex.getRequests().size());
+    }
+
+    @Test
+    public void testThatRequestsStayReadableAfterFileIsDeleted() throws Exception {
+
+        File file = createIndex();
+        append(file, "18e6b8,127.0.0.1,GET,http://127.0.0.1:8000/foo,1416762140,,200\n");
+        append(file, "a4b9e2,127.0.0.1,POST,http://127.0.0.1:8000/bar,1416762141,,302\n");
+
+        ProfilerIndex profilerIndex = new ProfilerIndex(file);
+        List<ProfilerRequest> requests = profilerIndex.getRequests();
+
+        // "cache:clear" while the profiler view still iterates
+        assertTrue(file.delete());
+
+        assertEquals(2, requests.size());
+        for (ProfilerRequest request : requests) {
+            assertNotNull(request.getHash());
+        }
+
+        assertEquals(0, profilerIndex.getRequests().size());
+        assertEquals(0, profilerIndex.getLatestRequests(10).size());
+    }
+
+    @Test
+    public void testHashLookupOnLargeIndex() throws Exception {
+
+        File file = createIndex();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            for (int i = 0; i < 200000; i++) {
+                writer.write(String.format("%06x,127.0.0.1,GET,http://127.0.0.1:8000/page/%d,%d,,200\n", i, i, 1416762140 + i));
+            }
+        } finally {
+            writer.close();
+        }
+
+        ProfilerIndex profilerIndex = new ProfilerIndex(file);
+
+        List<ProfilerRequest> latest = profilerIndex.getLatestRequests(10);
+
+        for (int i = 0; i < 1000; i++) {
+            assertNotNull(profilerIndex.getRequestOnHash(String.format("%06x", i * 200)));
+        }
+
+        assertEquals(10, latest.size());
+        assertEquals("http://127.0.0.1:8000/page/199999", latest.get(0).getUrl());
+        assertEquals(200000, profilerIndex.getRequests().size());
+        assertEquals("http://127.0.0.1:8000/page/4242", profilerIndex.getRequestOnHash(String.format("%06x", 4242)).getUrl());
+    }
+
+    private static File createIndex() throws IOException {
+        File dir = File.createTempFile("profiler", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        dir.deleteOnExit();
+
+        File file = new File(dir, "index.csv");
+        file.deleteOnExit();
+
+        return file;
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.profiler;
+
+import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerPayloadScanner;
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerPayload;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerPayloadScanner
+ */
+public class ProfilerPayloadScannerTest extends Assert {
+
+    @Test
+    public void testThatAllCollectorValuesAreFoundInOnePass() throws Exception {
+
+        String body = "Hello \u00e4";
+
+        String content = "a:2:{s:5:\"token\";s:6:\"18e6b8\";s:4:\"data\";s:999:\"" +
+            "a:3:{s:7:\"request\";O:49:\"Symfony\\Component\\HttpKernel\\DataCollector\\RequestDataCollector\":1:{" +
+                "s:6:\"_route\";s:10:\"foo_r\u00f6ute\";" +
+                "s:11:\"_controller\";s:45:\"AppBundle\\Controller\\FooController::barAction\";" +
+                "s:11:\"status_code\";i:302;" +
+            "}" +
+            "s:4:\"time\";a:1:{i:0;s:33:\"template.twig (foo.html.twig)\";}" +
+            "s:11:\"swiftmailer\";C:60:\"Symfony\\Bundle\\SwiftmailerBundle\\DataCollector\\MessageDataCollector\":" + (43 + utf8Length(body)) + ":{" +
+                "s:40:\"\u0000Swift_Mime_SimpleMimeEntity\u0000_body\";s:" + utf8Length(body) + ":\"" + body + "\";" +
+            "}" +
+            "s:6:\"header\";O:32:\"Swift_Mime_Headers_MailboxHeader\":0:{}" +
+            "}\";}";
+
+        ProfilerPayload payload = ProfilerPayloadScanner.scan(new ByteArrayInputStream(content.getBytes("UTF-8")));
+
+        assertEquals("foo_r\u00f6ute", payload.getRoute());
+        assertEquals("AppBundle\\Controller\\FooController::barAction", payload.getController());
+        assertEquals("302", payload.getStatusCode());
+        assertEquals("foo.html.twig", payload.getTemplate());
+        assertEquals(1, payload.getMessages().size());
+        assertEquals(body, payload.getMessages().get(0).getMessage());
+        assertTrue(payload.hasMailboxHeader());
+    }
+
+    @Test
+    public void testThatInvalidValuesAreIgnored() throws Exception {
+
+        String content = "" +
+            "s:6:\"_route\";s:invalid;" +
+            "s:6:\"_route\";s:3:\"foo\";" +
+            "s:11:\"status_code\";i:;" +
+            "\"template.twig (foo.txt)\"" +
+            "\"template.twig (bar.html.twig)\"" +
+            "s:40:\"\u0000Swift_Mime_SimpleMimeEntity\u0000_body\";s:3:\"foo\";";
+
+        ProfilerPayload payload = ProfilerPayloadScanner.scan(new ByteArrayInputStream(content.getBytes("UTF-8")));
+
+        assertEquals("foo", payload.getRoute());
+        assertNull(payload.getController());
+        assertNull(payload.getStatusCode());
+        assertEquals("bar.html.twig", payload.getTemplate());
+
+        // body outside of message collector
+        assertEquals(0, payload.getMessages().size());
+        assertFalse(payload.hasMailboxHeader());
+    }
+
+    private static int utf8Length(String value) throws Exception {
+        return value.getBytes("UTF-8").length;
+    }
+}
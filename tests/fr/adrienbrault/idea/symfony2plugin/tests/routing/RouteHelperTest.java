@@ -9,6 +9,7 @@ import com.intellij.psi.xml.XmlFile;
 import com.intellij.util.containers.ContainerUtil;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
 import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteRegistry;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlPsiElementFactory;
@@ -217,6 +218,22 @@ public class RouteHelperTest extends SymfonyLightCodeInsightFixtureTestCase {
         }));
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper#getRouteRegistry
+     */
+    public void testGetRouteRegistry() {
+        RouteRegistry routeRegistry = RouteHelper.getRouteRegistry(getProject());
+
+        assertTrue(routeRegistry.hasRoute("my_car_foo_stuff"));
+        assertTrue(routeRegistry.isWeakRoute("my_car_foo_stuff"));
+        assertFalse(routeRegistry.hasRoute("my_car_foo_stuff_unknown"));
+        assertEquals("/foo_bar/edit/{id}", routeRegistry.getRoute("my_car_foo_stuff").getPath());
+
+        // shared as long as no route changes
+        assertSame(routeRegistry, RouteHelper.getRouteRegistry(getProject()));
+        assertSame(routeRegistry.getLookupElements(), RouteHelper.getRoutesLookupElements(getProject()));
+    }
+
     /**
      * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper#getRoutesInsideUrlGeneratorFile
      */
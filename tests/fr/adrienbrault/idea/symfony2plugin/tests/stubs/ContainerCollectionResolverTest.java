@@ -1,9 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.stubs;
 
+import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
 import org.jetbrains.yaml.YAMLFileType;
 
+import java.util.Map;
+
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  * @see fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver
@@ -49,4 +52,57 @@ public class ContainerCollectionResolverTest extends SymfonyLightCodeInsightFixt
         assertEquals("DateTime", ContainerCollectionResolver.getService(getProject(), "foo_as_alias").getClassName());
         assertEquals("DateTime", ContainerCollectionResolver.getService(getProject(), "foo").getClassName());
     }
+
+    public void testConvertClassNameToServices() {
+
+        myFixture.configureByText(YAMLFileType.YML, "" +
+                "parameters:\n" +
+                "    foo_class: Foo\\Bar\n" +
+                "services:\n" +
+                "    foo_bar:\n" +
+                "        class: Foo\\Bar\n" +
+                "    foo_bar_parameter:\n" +
+                "        class: %foo_class%\n"
+        );
+
+        ContainerCollectionResolver.ServiceCollector collector = ContainerCollectionResolver.ServiceCollector.create(getProject());
+        assertContainsElements(collector.convertClassNameToServices("Foo\\Bar"), "foo_bar", "foo_bar_parameter");
+        assertContainsElements(collector.convertClassNameToServices("\\Foo\\Bar"), "foo_bar", "foo_bar_parameter");
+        assertSize(0, collector.convertClassNameToServices("Foo\\Unknown"));
+
+        myFixture.configureByText(YAMLFileType.YML, "" +
+                "services:\n" +
+                "    foo_bar_car:\n" +
+                "        class: Foo\\Car\n"
+        );
+
+        assertContainsElements(ContainerCollectionResolver.ServiceCollector.create(getProject()).convertClassNameToServices("Foo\\Car"), "foo_bar_car");
+    }
+
+    public void testServicesSnapshotIsSharedUntilContainerChanges() {
+
+        Map<String, ContainerService> services = ContainerCollectionResolver.getServices(getProject());
+        assertSame(services, ContainerCollectionResolver.getServices(getProject()));
+        assertSame(services, ContainerCollectionResolver.ServiceCollector.create(getProject()).getServices());
+        assertEquals("DateTime", ContainerCollectionResolver.resolveService(getProject(), "Foo"));
+
+        try {
+            services.remove("foo");
+            fail("services snapshot must be immutable");
+        } catch (UnsupportedOperationException ignored) {
+        }
+
+        myFixture.configureByText(YAMLFileType.YML, "" +
+                "parameters:\n" +
+                "    car_class: Foo\\Car\n" +
+                "services:\n" +
+                "    car:\n" +
+                "        class: %car_class%\n"
+        );
+
+        assertNotSame(services, ContainerCollectionResolver.getServices(getProject()));
+        assertEquals("Foo\\Car", ContainerCollectionResolver.resolveService(getProject(), "car"));
+        assertEquals("Foo\\Car", ContainerCollectionResolver.getService(getProject(), "CAR").getClassName());
+        assertNull(ContainerCollectionResolver.getService(getProject(), "unknown"));
+    }
 }
@@ -0,0 +1,98 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.cache;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.util.CachedValue;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerParameterStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import org.jetbrains.yaml.YAMLFileType;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches
+ */
+public class FileIndexCachesTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    private static final Key<CachedValue<Set<String>>> SERVICE_KEYS = new Key<CachedValue<Set<String>>>("SYMFONY_TEST_SERVICE_KEYS");
+    private static final Key<CachedValue<Set<String>>> PARAMETER_KEYS = new Key<CachedValue<Set<String>>>("SYMFONY_TEST_PARAMETER_KEYS");
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        myFixture.configureByText(YAMLFileType.YML, "" +
+            "parameters:\n" +
+            "    bar: foo\n" +
+            "\n" +
+            "services:\n" +
+            "    foo:\n" +
+            "        class: DateTime\n"
+        );
+    }
+
+    /**
+     * Many threads on different keys; every result must be complete and no thread is allowed to hang on an other key.
+     * Every key is computed once, so all threads of a key must see the same instance
+     */
+    public void testConcurrentReadersOnDifferentKeys() throws Exception {
+
+        final int threadCount = 16;
+        final int iterations = 500;
+
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Set<Set<String>> serviceResults = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Set<String>, Boolean>()));
+        final Set<Set<String>> parameterResults = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Set<String>, Boolean>()));
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            final boolean services = i % 2 == 0;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < iterations; j++) {
+                            Set<String> keys = ApplicationManager.getApplication().runReadAction(new Computable<Set<String>>() {
+                                @Override
+                                public Set<String> compute() {
+                                    return services
+                                        ? FileIndexCaches.getIndexKeysCache(getProject(), SERVICE_KEYS, ServicesDefinitionStubIndex.KEY)
+                                        : FileIndexCaches.getIndexKeysCache(getProject(), PARAMETER_KEYS, ContainerParameterStubIndex.KEY);
+                                }
+                            });
+
+                            if(!keys.contains(services ? "foo" : "bar")) {
+                                throw new AssertionError("missing key in cache");
+                            }
+
+                            (services ? serviceResults : parameterResults).add(keys);
+
+                            calls.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join(30000);
+            assertFalse("thread is blocked", thread.isAlive());
+        }
+
+        assertEquals(0, errors.size());
+        assertEquals(threadCount * iterations, calls.get());
+        assertEquals(1, serviceResults.size());
+        assertEquals(1, parameterResults.size());
+    }
+
+}
@@ -0,0 +1,127 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.cache;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.ContainerFileModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.Collection;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexDeltaCache
+ */
+public class FileIndexDeltaCacheTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testServicesAreUpdatedForChangedFileOnly() {
+
+        myFixture.configureByText("foo.yml", "" +
+            "services:\n" +
+            "    delta_foo:\n" +
+            "        class: DateTime\n"
+        );
+
+        final PsiFile psiFile = myFixture.configureByText("bar.yml", "" +
+            "parameters:\n" +
+            "    delta_parameter: foo\n" +
+            "services:\n" +
+            "    delta_bar:\n" +
+            "        class: DateTime\n"
+        );
+
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "delta_foo"));
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "delta_bar"));
+        assertTrue(ContainerCollectionResolver.getParameterNames(getProject()).contains("delta_parameter"));
+
+        long modificationCount = ContainerFileModificationTracker.getInstance(getProject()).getModificationCount();
+
+        new WriteCommandAction.Simple(getProject()) {
+            @Override
+            protected void run() throws Throwable {
+                Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+                assertNotNull(document);
+
+                document.setText("" +
+                    "services:\n" +
+                    "    delta_baz:\n" +
+                    "        class: DateTime\n"
+                );
+
+                PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+            }
+        }.execute();
+
+        assertTrue(ContainerFileModificationTracker.getInstance(getProject()).getModificationCount() > modificationCount);
+
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "delta_foo"));
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "delta_baz"));
+        assertNull(ContainerCollectionResolver.getService(getProject(), "delta_bar"));
+        assertFalse(ContainerCollectionResolver.getParameterNames(getProject()).contains("delta_parameter"));
+    }
+
+    public void testDirectoryEventsOnlyMarkContainedContainerFiles() {
+
+        final ContainerFileModificationTracker tracker = ContainerFileModificationTracker.getInstance(getProject());
+
+        final PsiFile psiFile = myFixture.addFileToProject("config/services.yml", "" +
+            "services:\n" +
+            "    delta_directory:\n" +
+            "        class: DateTime\n"
+        );
+
+        final VirtualFile virtualFile = psiFile.getVirtualFile();
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "delta_directory"));
+
+        // directory without container files keeps per file updates
+        long modificationCount = tracker.getModificationCount();
+        myFixture.addFileToProject("assets/foo.css", "");
+        assertNotNull(tracker.getChangedFilesSince(modificationCount));
+
+        modificationCount = tracker.getModificationCount();
+
+        new WriteCommandAction.Simple(getProject()) {
+            @Override
+            protected void run() throws Throwable {
+                virtualFile.getParent().delete(this);
+            }
+        }.execute();
+
+        Collection<VirtualFile> changedFiles = tracker.getChangedFilesSince(modificationCount);
+        assertNotNull(changedFiles);
+        assertContainsElements(changedFiles, virtualFile);
+
+        assertNull(ContainerCollectionResolver.getService(getProject(), "delta_directory"));
+    }
+
+    public void testRenameToNoContainerFileIsMarked() {
+
+        final ContainerFileModificationTracker tracker = ContainerFileModificationTracker.getInstance(getProject());
+
+        final VirtualFile virtualFile = myFixture.addFileToProject("rename/services.yml", "" +
+            "services:\n" +
+            "    delta_rename:\n" +
+            "        class: DateTime\n"
+        ).getVirtualFile();
+
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "delta_rename"));
+
+        long modificationCount = tracker.getModificationCount();
+
+        new WriteCommandAction.Simple(getProject()) {
+            @Override
+            protected void run() throws Throwable {
+                virtualFile.rename(this, "services.yml.dist");
+            }
+        }.execute();
+
+        Collection<VirtualFile> changedFiles = tracker.getChangedFilesSince(modificationCount);
+        assertNotNull(changedFiles);
+        assertContainsElements(changedFiles, virtualFile);
+
+        assertNull(ContainerCollectionResolver.getService(getProject(), "delta_rename"));
+    }
+
+}
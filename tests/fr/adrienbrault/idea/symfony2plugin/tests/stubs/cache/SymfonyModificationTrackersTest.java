@@ -0,0 +1,176 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.cache;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.jetbrains.php.lang.PhpFileType;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.cache.SymfonyModificationTrackers
+ */
+public class SymfonyModificationTrackersTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testMethodBodyChangeDoesNotInvalidateRoutesAndTwigExtensions() {
+
+        PsiFile psiFile = myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "class FooController\n" +
+            "{\n" +
+            "    /**\n" +
+            "     * @Route(\"/foo\")\n" +
+            "     */\n" +
+            "    public function fooAction()\n" +
+            "    {\n" +
+            "        $foo = 'bar';\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        ModificationTracker routeTracker = SymfonyModificationTrackers.getRouteTracker(getProject());
+        ModificationTracker twigExtensionTracker = SymfonyModificationTrackers.getTwigExtensionTracker(getProject());
+
+        long routeCount = routeTracker.getModificationCount();
+        long twigExtensionCount = twigExtensionTracker.getModificationCount();
+
+        insertString(psiFile, "'bar'", "'baz' . ");
+
+        assertEquals(routeCount, routeTracker.getModificationCount());
+        assertEquals(twigExtensionCount, twigExtensionTracker.getModificationCount());
+
+        insertString(psiFile, "\"/foo\"", "\"/bar\", name=");
+
+        assertTrue(routeTracker.getModificationCount() > routeCount);
+    }
+
+    public void testTwigExtensionChangeInvalidatesTwigExtensions() {
+
+        myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "interface Twig_ExtensionInterface {}\n"
+        );
+
+        PsiFile psiFile = myFixture.configureByText("FooExtension.php", "<?php\n" +
+            "class FooExtension implements Twig_ExtensionInterface\n" +
+            "{\n" +
+            "    public function getFilters()\n" +
+            "    {\n" +
+            "        return array();\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        ModificationTracker twigExtensionTracker = SymfonyModificationTrackers.getTwigExtensionTracker(getProject());
+        long twigExtensionCount = twigExtensionTracker.getModificationCount();
+
+        insertString(psiFile, "array()", "array(1) + ");
+
+        assertTrue(twigExtensionTracker.getModificationCount() > twigExtensionCount);
+    }
+
+    public void testMethodRenameInvalidatesRoutes() {
+
+        PsiFile psiFile = myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "class FooController\n" +
+            "{\n" +
+            "    public function fooAction()\n" +
+            "    {\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        ModificationTracker routeTracker = SymfonyModificationTrackers.getRouteTracker(getProject());
+
+        long routeCount = routeTracker.getModificationCount();
+        insertString(psiFile, "fooAction", "bar");
+        assertTrue(routeTracker.getModificationCount() > routeCount);
+
+        routeCount = routeTracker.getModificationCount();
+        insertString(psiFile, "FooController", "Bar");
+        assertTrue(routeTracker.getModificationCount() > routeCount);
+    }
+
+    public void testTwigExtensionIsDetectedWithoutClassHierarchy() {
+
+        PsiFile psiFile = myFixture.configureByText("FooExtension.php", "<?php\n" +
+            "class FooExtension extends UnknownExtension\n" +
+            "{\n" +
+            "    public function getFunctions()\n" +
+            "    {\n" +
+            "        return array();\n" +
+            "    }\n" +
+            "}\n" +
+            "class Foo\n" +
+            "{\n" +
+            "    public function bar()\n" +
+            "    {\n" +
+            "        return 'bar';\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        ModificationTracker twigExtensionTracker = SymfonyModificationTrackers.getTwigExtensionTracker(getProject());
+
+        long twigExtensionCount = twigExtensionTracker.getModificationCount();
+        insertString(psiFile, "'bar'", "'baz' . ");
+        assertEquals(twigExtensionCount, twigExtensionTracker.getModificationCount());
+
+        insertString(psiFile, "array()", "array(1) + ");
+        assertTrue(twigExtensionTracker.getModificationCount() > twigExtensionCount);
+    }
+
+    public void testRenderCallInvalidatesTemplateUsages() {
+
+        PsiFile psiFile = myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "class FooController\n" +
+            "{\n" +
+            "    public function fooAction()\n" +
+            "    {\n" +
+            "        $foo = 'bar';\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        ModificationTracker templateUsageTracker = SymfonyModificationTrackers.getTemplateUsageTracker(getProject());
+        long templateUsageCount = templateUsageTracker.getModificationCount();
+
+        insertString(psiFile, "'bar'", "'baz' . ");
+        assertEquals(templateUsageCount, templateUsageTracker.getModificationCount());
+
+        insertString(psiFile, "$foo", "$this->render('foo.html.twig');\n");
+        assertTrue(templateUsageTracker.getModificationCount() > templateUsageCount);
+    }
+
+    public void testOnlyTwigTemplateTagsInvalidateTemplateUsages() {
+
+        PsiFile psiFile = myFixture.configureByText("foo.html.twig", "" +
+            "{{ foo.bar }}\n" +
+            "{% include 'foo.html.twig' %}\n"
+        );
+
+        ModificationTracker templateUsageTracker = SymfonyModificationTrackers.getTemplateUsageTracker(getProject());
+        long templateUsageCount = templateUsageTracker.getModificationCount();
+
+        insertString(psiFile, "bar }}", "baz.");
+        assertEquals(templateUsageCount, templateUsageTracker.getModificationCount());
+
+        insertString(psiFile, "foo.html.twig'", "bar/");
+        assertTrue(templateUsageTracker.getModificationCount() > templateUsageCount);
+    }
+
+    private void insertString(@NotNull final PsiFile psiFile, @NotNull final String before, @NotNull final String text) {
+        new WriteCommandAction.Simple(getProject()) {
+            @Override
+            protected void run() throws Throwable {
+                Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+                assertNotNull(document);
+
+                document.insertString(document.getText().indexOf(before), text);
+                PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+            }
+        }.execute();
+    }
+
+}
@@ -0,0 +1,70 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.DoctrineTableStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.DoctrineTableStubIndex
+ */
+public class DoctrineTableStubIndexTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testXmlTable() {
+        myFixture.configureByText("doctrine.orm.xml",
+            "<doctrine-mapping>\n" +
+            "    <entity name=\"Documents\\Xml\\OrmUser\" table=\"xml_users\"/>\n" +
+            "    <entity name=\"Documents\\Xml\\NoTable\"/>\n" +
+            "</doctrine-mapping>"
+        );
+
+        assertIndexContainsKeyWithValue(DoctrineTableStubIndex.KEY, "xml_users", new IndexValueEquals("Documents\\Xml\\OrmUser"));
+    }
+
+    public void testYamlTable() {
+        myFixture.configureByText("doctrine.orm.yml", "" +
+            "Documents\\Yml\\OrmUser:\n" +
+            "  table: yml_users\n"
+        );
+
+        assertIndexContainsKeyWithValue(DoctrineTableStubIndex.KEY, "yml_users", new IndexValueEquals("Documents\\Yml\\OrmUser"));
+    }
+
+    public void testYamlTableOfNonMetadataFileIsNotIndexed() {
+        myFixture.configureByText("foo.yml", "" +
+            "Foo:\n" +
+            "  table: foo_yml\n"
+        );
+
+        assertIndexNotContains(DoctrineTableStubIndex.KEY, "foo_yml");
+    }
+
+    public void testPhpAnnotationTable() {
+        myFixture.configureByText("doctrine.php", "<?php\n" +
+            "namespace Doctrine\\Orm {\n" +
+            "    use Doctrine\\ORM\\Mapping AS ORM;\n" +
+            "    /**\n" +
+            "     * @ORM\\Entity()\n" +
+            "     * @ORM\\Table(name=\"php_users\")\n" +
+            "     */\n" +
+            "    class User {};\n" +
+            "}"
+        );
+
+        assertIndexContainsKeyWithValue(DoctrineTableStubIndex.KEY, "php_users", new IndexValueEquals("Doctrine\\Orm\\User"));
+    }
+
+    private static class IndexValueEquals implements IndexValue.Assert<String> {
+
+        @NotNull
+        private final String className;
+
+        public IndexValueEquals(@NotNull String className) {
+            this.className = className;
+        }
+
+        @Override
+        public boolean match(@NotNull String value) {
+            return className.equals(value);
+        }
+    }
+}
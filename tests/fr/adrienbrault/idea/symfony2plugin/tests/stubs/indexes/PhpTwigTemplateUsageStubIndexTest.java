@@ -0,0 +1,85 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes;
+
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.psi.elements.Method;
+import com.jetbrains.twig.TwigFile;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.PhpTwigTemplateUsageStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.PhpTwigTemplateUsageStubIndex
+ */
+public class PhpTwigTemplateUsageStubIndexTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "namespace Foo;\n" +
+            "class BarController {\n" +
+            "    public function fooAction() { $this->render('foo.html.twig'); }\n" +
+            "    public function barAction() { $this->renderView('foo.html.twig'); }\n" +
+            "    public function carAction() { $this->renderResponse('car.html.twig'); }\n" +
+            "}\n" +
+            "function foo() { $foo->render('function.html.twig'); }\n"
+        );
+    }
+
+    public void testTemplateUsageIndexer() {
+        assertIndexContains(PhpTwigTemplateUsageStubIndex.KEY, "foo.html.twig", "car.html.twig");
+        assertIndexNotContains(PhpTwigTemplateUsageStubIndex.KEY, "function.html.twig");
+    }
+
+    public void testMethodSignaturesAreIndexValue() {
+        assertIndexContainsKeyWithValue(PhpTwigTemplateUsageStubIndex.KEY, "foo.html.twig", new IndexValueContainsSignatures(
+            "#M#C\\Foo\\BarController.fooAction", "#M#C\\Foo\\BarController.barAction"
+        ));
+
+        assertIndexContainsKeyWithValue(PhpTwigTemplateUsageStubIndex.KEY, "car.html.twig", new IndexValueContainsSignatures(
+            "#M#C\\Foo\\BarController.carAction"
+        ));
+    }
+
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil#getTwigFileMethodUsageOnIndex
+     */
+    public void testGetTwigFileMethodUsageOnIndex() {
+        myFixture.addFileToProject("ide-twig.json", "{\"namespaces\": [{\"path\": \"res\"}]}");
+        TwigFile twigFile = (TwigFile) myFixture.addFileToProject("res/foo.html.twig", "");
+
+        Set<String> methods = new HashSet<String>();
+        for (Method method : TwigUtil.getTwigFileMethodUsageOnIndex(twigFile)) {
+            methods.add(method.getName());
+        }
+
+        assertContainsElements(methods, "fooAction", "barAction");
+        assertDoesntContain(methods, "carAction");
+    }
+
+    private static class IndexValueContainsSignatures implements IndexValue.Assert<Set<String>> {
+
+        @NotNull
+        private final String[] signatures;
+
+        public IndexValueContainsSignatures(@NotNull String... signatures) {
+            this.signatures = signatures;
+        }
+
+        @Override
+        public boolean match(@NotNull Set<String> value) {
+            for (String signature : signatures) {
+                if(!value.contains(signature)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes;
+
+import com.google.gson.Gson;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.SerializableService;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex.ServiceDataExternalizer
+ */
+public class ServiceDataExternalizerTest extends Assert {
+
+    @Test
+    public void testThatAllFieldsSurviveRoundTrip() throws Exception {
+
+        ServicesDefinitionStubIndex.ServiceDataExternalizer externalizer = new ServicesDefinitionStubIndex.ServiceDataExternalizer();
+
+        ServiceInterface service = roundTrip(externalizer, new SerializableService("foo")
+            .setClassName("Foo\\Bar")
+            .setAlias("foo_alias")
+            .setDecorates("foo_decorates")
+            .setDecorationInnerName("foo_inner")
+            .setParent("foo_parent")
+            .setIsPublic(false)
+            .setIsLazy(true)
+            .setIsAbstract(true)
+            .setIsAutowire(true)
+            .setIsDeprecated(true)
+        );
+
+        assertEquals("foo", service.getId());
+        assertEquals("Foo\\Bar", service.getClassName());
+        assertEquals("foo_alias", service.getAlias());
+        assertEquals("foo_decorates", service.getDecorates());
+        assertEquals("foo_inner", service.getDecorationInnerName());
+        assertEquals("foo_parent", service.getParent());
+        assertFalse(service.isPublic());
+        assertTrue(service.isLazy());
+        assertTrue(service.isAbstract());
+        assertTrue(service.isAutowire());
+        assertTrue(service.isDeprecated());
+    }
+
+    @Test
+    public void testThatDefaultsSurviveRoundTrip() throws Exception {
+
+        ServiceInterface service = roundTrip(new ServicesDefinitionStubIndex.ServiceDataExternalizer(), new SerializableService("foo"));
+
+        assertEquals("foo", service.getId());
+        assertNull(service.getClassName());
+        assertNull(service.getAlias());
+        assertNull(service.getDecorates());
+        assertNull(service.getDecorationInnerName());
+        assertNull(service.getParent());
+        assertTrue(service.isPublic());
+        assertFalse(service.isLazy());
+        assertFalse(service.isAbstract());
+        assertFalse(service.isAutowire());
+        assertFalse(service.isDeprecated());
+    }
+
+    @Test
+    public void testThatClassSameAsIdIsOnlyStoredOnce() throws Exception {
+
+        ServicesDefinitionStubIndex.ServiceDataExternalizer externalizer = new ServicesDefinitionStubIndex.ServiceDataExternalizer();
+
+        ServiceInterface service = roundTrip(externalizer, new SerializableService("Acme\\Bundle\\Service\\FooService").setClassName("Acme\\Bundle\\Service\\FooService"));
+        assertEquals("Acme\\Bundle\\Service\\FooService", service.getId());
+        assertEquals("Acme\\Bundle\\Service\\FooService", service.getClassName());
+
+        List<ServiceInterface> fqcn = new ArrayList<ServiceInterface>();
+        fqcn.add(new SerializableService("Acme\\Bundle\\Service\\FooService").setClassName("Acme\\Bundle\\Service\\FooService"));
+
+        List<ServiceInterface> other = new ArrayList<ServiceInterface>();
+        other.add(new SerializableService("Acme\\Bundle\\Service\\FooService").setClassName("Acme\\Bundle\\Service\\BarService"));
+
+        assertTrue(saveBinary(externalizer, fqcn).length < saveBinary(externalizer, other).length);
+    }
+
+    /**
+     * Binary format must be smaller than the former Gson json format and read all services back
+     */
+    @Test
+    public void testBinaryFormatAgainstJson() throws Exception {
+
+        List<ServiceInterface> services = new ArrayList<ServiceInterface>();
+        for (int i = 0; i < 50000; i++) {
+            SerializableService service = new SerializableService("acme.service_" + i).setClassName("Acme\\Bundle\\Service\\Service" + (i % 500));
+            if(i % 10 == 0) {
+                service.setIsPublic(false);
+            }
+
+            if(i % 20 == 0) {
+                service.setParent("acme.abstract_service");
+            }
+
+            services.add(service);
+        }
+
+        ServicesDefinitionStubIndex.ServiceDataExternalizer externalizer = new ServicesDefinitionStubIndex.ServiceDataExternalizer();
+
+        byte[] binary = saveBinary(externalizer, services);
+        byte[] json = saveJson(new EnumeratorStringDescriptor(), new Gson(), services);
+
+        List<ServiceInterface> binaryServices = readBinary(externalizer, binary, services.size());
+
+        assertTrue(binary.length < json.length);
+        assertEquals("acme.service_49999", binaryServices.get(49999).getId());
+        assertEquals("Acme\\Bundle\\Service\\Service499", binaryServices.get(49999).getClassName());
+        assertEquals("acme.abstract_service", binaryServices.get(49980).getParent());
+        assertFalse(binaryServices.get(49980).isPublic());
+    }
+
+    private static ServiceInterface roundTrip(ServicesDefinitionStubIndex.ServiceDataExternalizer externalizer, ServiceInterface service) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        externalizer.save(new DataOutputStream(bytes), service);
+        return externalizer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static byte[] saveBinary(ServicesDefinitionStubIndex.ServiceDataExternalizer externalizer, List<ServiceInterface> services) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (ServiceInterface service : services) {
+            externalizer.save(out, service);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static List<ServiceInterface> readBinary(ServicesDefinitionStubIndex.ServiceDataExternalizer externalizer, byte[] bytes, int size) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        List<ServiceInterface> services = new ArrayList<ServiceInterface>();
+        for (int i = 0; i < size; i++) {
+            services.add(externalizer.read(in));
+        }
+
+        return services;
+    }
+
+    private static byte[] saveJson(EnumeratorStringDescriptor stringDescriptor, Gson gson, List<ServiceInterface> services) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (ServiceInterface service : services) {
+            stringDescriptor.save(out, gson.toJson(service));
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtensionStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.io.File;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtensionStubIndex
+ */
+public class TwigExtensionStubIndexTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        myFixture.copyFileToProject("TwigExtensionStubIndex.php");
+    }
+
+    public String getTestDataPath() {
+        return new File(this.getClass().getResource("fixtures").getFile()).getAbsolutePath();
+    }
+
+    public void testThatExtensionNamesAreInIndex() {
+        assertIndexContains(TwigExtensionStubIndex.KEY, "doctrine_minify_query", "json_decode", "foobar", "bar_even", "not", "starts with");
+    }
+
+    public void testThatExtensionsInsideTestFoldersAreInIndex() {
+        myFixture.addFileToProject("src/Foo/Tests/Fixtures/FooTestExtension.php", "<?php\n" +
+            "class FooTestExtension extends Twig_Extension\n" +
+            "{\n" +
+            "    public function getFilters()\n" +
+            "    {\n" +
+            "        return array(new Twig_SimpleFilter('foo_test_filter', 'strtolower'));\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        assertIndexContains(TwigExtensionStubIndex.KEY, "foo_test_filter");
+    }
+
+    public void testFilterSignatureAndOptions() {
+        TwigExtension twigExtension = TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.FILTER, "doctrine_minify_query");
+        assertNotNull(twigExtension);
+        assertEquals("#M#C\\Doctrine\\Bundle\\DoctrineBundle\\Twig\\DoctrineExtension.minifyQuery", twigExtension.getSignature());
+
+        twigExtension = TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.FILTER, "doctrine_pretty_query");
+        assertNotNull(twigExtension);
+        assertEquals("#M#C\\SqlFormatter.format", twigExtension.getSignature());
+
+        twigExtension = TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.FILTER, "contextAndEnvironment");
+        assertNotNull(twigExtension);
+        assertEquals("true", twigExtension.getOption("needs_context"));
+        assertEquals("true", twigExtension.getOption("needs_environment"));
+    }
+
+    public void testFunctionTestAndOperatorTypes() {
+        TwigExtension twigExtension = TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.METHOD, "json_bar");
+        assertNotNull(twigExtension);
+        assertEquals(TwigExtensionParser.TwigExtensionType.SIMPLE_FUNCTION, twigExtension.getTwigExtensionType());
+        assertEquals("#Fjson_decode", twigExtension.getSignature());
+
+        assertNotNull(TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.SIMPLE_TEST, "bar_even"));
+        assertNotNull(TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.OPERATOR, "b-xor"));
+
+        assertNull(TwigExtensionParser.getExtension(getProject(), TwigExtensionParser.TwigElementType.METHOD, "doctrine_minify_query"));
+    }
+
+}
@@ -0,0 +1,56 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.util;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.jetbrains.twig.TwigFileType;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.util.IndexUtil;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.util.IndexUtil
+ */
+public class IndexUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    private VirtualFile foo;
+    private VirtualFile bar;
+    private VirtualFile both;
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        foo = myFixture.addFileToProject("foo.html.twig", "{% include 'foo_include.html.twig' %}").getVirtualFile();
+        bar = myFixture.addFileToProject("bar.html.twig", "{% include 'bar_include.html.twig' %}").getVirtualFile();
+        both = myFixture.addFileToProject("both.html.twig", "{% include 'foo_include.html.twig' %}{% include 'bar_include.html.twig' %}").getVirtualFile();
+    }
+
+    public void testGetFilesWithAnyKeyIsUnionOfKeys() {
+        Set<VirtualFile> files = IndexUtil.getFilesWithAnyKey(
+            TwigIncludeStubIndex.KEY,
+            Arrays.asList("foo_include.html.twig", "bar_include.html.twig", "foo_include.html.twig"),
+            GlobalSearchScope.allScope(getProject())
+        );
+
+        assertSize(3, files);
+        assertContainsElements(files, foo, bar, both);
+
+        assertSize(0, IndexUtil.getFilesWithAnyKey(TwigIncludeStubIndex.KEY, Collections.<String>emptyList(), GlobalSearchScope.allScope(getProject())));
+    }
+
+    public void testGetPsiFilesWithAnyKey() {
+        Set<String> names = new HashSet<String>();
+        for (PsiFile psiFile : IndexUtil.getPsiFilesWithAnyKey(getProject(), TwigIncludeStubIndex.KEY, Arrays.asList("bar_include.html.twig"), TwigFileType.INSTANCE)) {
+            names.add(psiFile.getName());
+        }
+
+        assertContainsElements(names, "bar.html.twig", "both.html.twig");
+        assertDoesntContain(names, "foo.html.twig");
+    }
+
+}
@@ -0,0 +1,85 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
+import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.Map;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil
+ */
+public class TwigTypeResolveUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    private static final int DEPTH = 15;
+
+    private PsiFile rootTemplate;
+    private PsiFile deepTemplate;
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        myFixture.addFileToProject("ide-twig.json", "{\"namespaces\": [{\"path\": \"res\"}]}");
+
+        // layout_0 includes layout_1, ... so the last one sees all variables of its parents
+        for (int i = 0; i <= DEPTH; i++) {
+            PsiFile psiFile = myFixture.addFileToProject("res/layout_" + i + ".html.twig",
+                "{# @var foo_" + i + " \\Foo\\Bar #}\n" +
+                (i < DEPTH ? "{% include 'layout_" + (i + 1) + ".html.twig' %}\n" : "{{ foo }}\n")
+            );
+
+            if(i == 0) {
+                rootTemplate = psiFile;
+            }
+
+            deepTemplate = psiFile;
+        }
+    }
+
+    public void testCollectScopeVariablesFollowsIncludeGraph() {
+        Map<String, PsiVariable> variables = TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild());
+
+        assertContainsElements(variables.keySet(), "app", "foo_0", "foo_" + (DEPTH / 2), "foo_" + DEPTH);
+        assertContainsElements(variables.get("foo_0").getTypes(), "\\Foo\\Bar");
+    }
+
+    public void testCollectScopeVariablesIsInvalidatedByIncludingTemplate() {
+        assertFalse(TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild()).containsKey("car"));
+
+        new WriteCommandAction.Simple(getProject()) {
+            @Override
+            protected void run() throws Throwable {
+                Document document = PsiDocumentManager.getInstance(getProject()).getDocument(rootTemplate);
+                assertNotNull(document);
+
+                document.insertString(0, "{# @var car \\Foo\\Car #}\n");
+                PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+            }
+        }.execute();
+
+        assertTrue(TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild()).containsKey("car"));
+    }
+
+    public void testCollectScopeVariablesResultIsNotShared() {
+        Map<String, PsiVariable> variables = TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild());
+        variables.clear();
+
+        assertTrue(TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild()).containsKey("foo_0"));
+    }
+
+    public void testCollectScopeVariablesIsInvalidatedByNewIncludingTemplate() {
+        assertFalse(TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild()).containsKey("car"));
+
+        myFixture.addFileToProject("res/new.html.twig",
+            "{# @var car \\Foo\\Car #}\n" +
+            "{% include 'layout_0.html.twig' %}\n"
+        );
+
+        assertTrue(TwigTypeResolveUtil.collectScopeVariables(deepTemplate.getFirstChild()).containsKey("car"));
+    }
+
+}
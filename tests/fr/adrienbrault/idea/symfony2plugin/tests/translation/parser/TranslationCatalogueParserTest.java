@@ -0,0 +1,46 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.translation.parser;
+
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationCatalogueParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationCatalogueParser
+ */
+public class TranslationCatalogueParserTest extends Assert {
+
+    @Test
+    public void testParse() {
+
+        Map<String, Set<String>> domains = TranslationCatalogueParser.parse(new File(this.getClass().getResource("fixtures/catalogue.de.php").getFile()));
+
+        assertTrue(domains.get("validators").contains("This value should be false."));
+        assertTrue(domains.get("validators").contains("foo.escape"));
+        assertTrue(domains.get("validators").contains("foo.bar"));
+        assertTrue(domains.get("validators").contains("foo.array("));
+        assertTrue(domains.get("validators").contains("foo.null\0byte"));
+        assertTrue(domains.get("validators").contains("404"));
+        assertEquals(6, domains.get("validators").size());
+
+        assertTrue(domains.get("messages").contains("Previous"));
+        assertTrue(domains.get("messages").contains("it's"));
+
+        assertTrue(domains.containsKey("empty"));
+        assertEquals(0, domains.get("empty").size());
+    }
+
+    @Test
+    public void testThatFallbackCatalogueWithShortArrayIsMerged() {
+
+        Map<String, Set<String>> domains = TranslationCatalogueParser.parse(new File(this.getClass().getResource("fixtures/catalogue.de.php").getFile()));
+
+        assertTrue(domains.get("messages").contains("Next"));
+        assertTrue(domains.get("security").contains("An authentication exception occurred."));
+        assertFalse(domains.containsKey("de"));
+        assertFalse(domains.containsKey("en"));
+    }
+}
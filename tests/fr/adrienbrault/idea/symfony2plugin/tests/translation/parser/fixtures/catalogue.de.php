@@ -0,0 +1,38 @@
+<?php
+
+use Symfony\Component\Translation\MessageCatalogue;
+
+$catalogue = new MessageCatalogue('de', array (
+  'validators' => 
+  array (
+    'This value should be false.' => 'Dieser Wert sollte false sein.',
+    'foo.escape' => 'A multiline translation ending with a ne\', wline.',
+    'foo.bar' => 'A multiline translation ending with a newline.
+',
+    'foo.array(' => 'Dieser Wert sollte true sein.',
+    'foo.null' . "\0" . 'byte' => 'null',
+    404 => 'Nicht gefunden',
+  ),
+  // comment
+  'messages' => 
+  array (
+    'Previous' => 'Zurück',
+    'it\'s' => 'es ist',
+  ),
+  'empty' => 
+  array (
+  ),
+));
+
+$catalogueEn = new \Symfony\Component\Translation\MessageCatalogue('en', [
+  'messages' => [
+    'Next' => 'Next',
+  ],
+  /* other comment */
+  'security' => [
+    'An authentication exception occurred.' => 'An authentication exception occurred.',
+  ],
+]);
+$catalogue->addFallbackCatalogue($catalogueEn);
+
+return $catalogue;
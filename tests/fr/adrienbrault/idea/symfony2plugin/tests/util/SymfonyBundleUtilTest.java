@@ -0,0 +1,76 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util;
+
+import com.intellij.psi.PsiFile;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil
+ */
+public class SymfonyBundleUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        myFixture.addFileToProject("src/FooBundle/FooBundle.php", "<?php\n" +
+            "namespace FooBundle;\n" +
+            "class FooBundle extends \\Symfony\\Component\\HttpKernel\\Bundle\\Bundle {}\n"
+        );
+
+        myFixture.addFileToProject("src/FooBundle/Tests/Fixtures/CarBundle/CarBundle.php", "<?php\n" +
+            "namespace FooBundle\\Tests\\Fixtures\\CarBundle;\n" +
+            "class CarBundle extends \\Symfony\\Component\\HttpKernel\\Bundle\\Bundle {}\n"
+        );
+
+        myFixture.addFileToProject("src/FooBundle/Controller/BarController.php", "<?php\n" +
+            "namespace FooBundle\\Controller;\n" +
+            "class BarController {}\n"
+        );
+
+        myFixture.addFileToProject("src/FooBundle/Tests/Fixtures/CarBundle/Entity/Car.php", "<?php\n" +
+            "namespace FooBundle\\Tests\\Fixtures\\CarBundle\\Entity;\n" +
+            "class Car {}\n"
+        );
+    }
+
+    public void testGetBundle() {
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(getProject());
+
+        assertNotNull(symfonyBundleUtil.getBundle("FooBundle"));
+        assertTrue(symfonyBundleUtil.bundleExists("CarBundle"));
+        assertFalse(symfonyBundleUtil.bundleExists("UnknownBundle"));
+
+        SymfonyBundle symfonyBundle = symfonyBundleUtil.getContainingBundle("@FooBundle/Resources/views/foo.html.twig");
+        assertNotNull(symfonyBundle);
+        assertEquals("FooBundle", symfonyBundle.getName());
+    }
+
+    public void testGetContainingBundleForClassUsesNearestNamespace() {
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(getProject());
+
+        PhpClass controller = PhpElementsUtil.getClass(getProject(), "FooBundle\\Controller\\BarController");
+        assertNotNull(controller);
+        assertEquals("FooBundle", symfonyBundleUtil.getContainingBundle(controller).getName());
+
+        PhpClass entity = PhpElementsUtil.getClass(getProject(), "FooBundle\\Tests\\Fixtures\\CarBundle\\Entity\\Car");
+        assertNotNull(entity);
+        assertEquals("CarBundle", symfonyBundleUtil.getContainingBundle(entity).getName());
+    }
+
+    public void testGetContainingBundleForFileUsesNearestDirectory() {
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(getProject());
+
+        PsiFile psiFile = myFixture.addFileToProject("src/FooBundle/Tests/Fixtures/CarBundle/Resources/views/car.html.twig", "");
+        assertEquals("CarBundle", symfonyBundleUtil.getContainingBundle(psiFile).getName());
+
+        psiFile = myFixture.addFileToProject("src/FooBundle/Resources/views/foo.html.twig", "");
+        assertEquals("FooBundle", symfonyBundleUtil.getContainingBundle(psiFile.getContainingDirectory()).getName());
+
+        psiFile = myFixture.addFileToProject("src/foo.html.twig", "");
+        assertNull(symfonyBundleUtil.getContainingBundle(psiFile));
+    }
+
+}
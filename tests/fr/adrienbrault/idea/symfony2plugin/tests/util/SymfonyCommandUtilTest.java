@@ -1,12 +1,18 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.util;
 
 import com.intellij.openapi.util.Condition;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.containers.ContainerUtil;
+import com.jetbrains.php.lang.psi.elements.MethodReference;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ConsoleCommandStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyCommandUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyCommand;
 
 import java.io.File;
+import java.util.Collection;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -34,6 +40,32 @@ public class SymfonyCommandUtilTest extends SymfonyLightCodeInsightFixtureTestCa
         }
 
         assertNull(ContainerUtil.find(SymfonyCommandUtil.getCommands(getProject()), new SymfonyCommandCondition("unknown")));
+        assertNull(ContainerUtil.find(SymfonyCommandUtil.getCommands(getProject()), new SymfonyCommandCondition("no_command")));
+    }
+
+    public void testThatCommandNamesAreInIndex() {
+        assertIndexContains(ConsoleCommandStubIndex.KEY, "foo", "property", "const");
+        assertIndexContainsKeyWithValue(ConsoleCommandStubIndex.KEY, "const", "\\Foo\\ConstCommand");
+        assertContainsElements(SymfonyCommandUtil.getCommandNames(getProject()), "foo", "property", "const");
+
+        // in index, but no Command subclass
+        assertIndexContains(ConsoleCommandStubIndex.KEY, "no_command");
+        assertDoesntContain(SymfonyCommandUtil.getCommandNames(getProject()), "no_command");
+    }
+
+    /**
+     * @see SymfonyCommandUtil#getCommands(com.intellij.openapi.project.Project, String)
+     */
+    public void testGetCommandsByName() {
+        Collection<SymfonyCommand> commands = SymfonyCommandUtil.getCommands(getProject(), "property");
+        assertSize(1, commands);
+
+        PsiElement psiElement = commands.iterator().next().getPsiElement();
+        assertInstanceOf(psiElement, MethodReference.class);
+        assertEquals("\\Foo\\PropertyCommand", PsiTreeUtil.getParentOfType(psiElement, PhpClass.class).getFQN());
+
+        assertSize(0, SymfonyCommandUtil.getCommands(getProject(), "no_command"));
+        assertSize(0, SymfonyCommandUtil.getCommands(getProject(), "unknown"));
     }
 
     private static class SymfonyCommandCondition implements Condition<SymfonyCommand> {
@@ -0,0 +1,80 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.controller;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.psi.elements.Method;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.util.controller.ControllerAction;
+import fr.adrienbrault.idea.symfony2plugin.util.controller.ControllerIndex;
+
+import java.util.Map;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.controller.ControllerIndex
+ */
+public class ControllerIndexTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    private PsiFile psiFile;
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        psiFile = myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "namespace AppBundle;\n" +
+            "class AppBundle extends \\Symfony\\Component\\HttpKernel\\Bundle\\Bundle {}" +
+
+            "namespace AppBundle\\Controller;\n" +
+            "class DefaultController {\n" +
+            "    public function indexAction() {}\n" +
+            "    private function fooAction() {}\n" +
+            "}" +
+
+            "namespace AppBundle\\Controller\\Foo;\n" +
+            "class DefaultController {\n" +
+            "    public function indexAction() {}\n" +
+            "}"
+        );
+    }
+
+    public void testGetActionSignatures() {
+        Map<String, String> signatures = ControllerIndex.getActionSignatures(getProject());
+
+        assertEquals("#M#C\\AppBundle\\Controller\\DefaultController.indexAction", signatures.get("AppBundle:Default:index"));
+        assertEquals("#M#C\\AppBundle\\Controller\\Foo\\DefaultController.indexAction", signatures.get("AppBundle:Foo/Default:index"));
+        assertFalse(signatures.containsKey("AppBundle:Default:foo"));
+
+        assertSame(signatures, ControllerIndex.getActionSignatures(getProject()));
+    }
+
+    public void testGetControllerActionResolvesMethod() {
+        ControllerAction controllerAction = new ControllerIndex(getProject()).getControllerAction("AppBundle:Foo/Default:index");
+        assertNotNull(controllerAction);
+
+        Method method = controllerAction.getMethod();
+        assertEquals("indexAction", method.getName());
+        assertEquals("\\AppBundle\\Controller\\Foo\\DefaultController", method.getContainingClass().getFQN());
+
+        assertNull(new ControllerIndex(getProject()).getControllerAction("AppBundle:Default:unknown"));
+    }
+
+    public void testNewActionInvalidatesCache() {
+        assertFalse(ControllerIndex.getActionSignatures(getProject()).containsKey("AppBundle:Default:car"));
+
+        new WriteCommandAction.Simple(getProject()) {
+            @Override
+            protected void run() throws Throwable {
+                Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+                assertNotNull(document);
+
+                document.insertString(document.getText().indexOf("    private function fooAction"), "    public function carAction() {}\n");
+                PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+            }
+        }.execute();
+
+        assertTrue(ControllerIndex.getActionSignatures(getProject()).containsKey("AppBundle:Default:car"));
+    }
+
+}
@@ -0,0 +1,110 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.dict;
+
+import com.jetbrains.php.lang.psi.elements.PhpNamedElement;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.PhpTypeCache;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.dict.PhpTypeCache
+ */
+public class PhpTypeCacheTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+        PhpTypeCache.getInstance(getProject()).clear();
+    }
+
+    public void testSignatureIsOnlyResolvedOnce() {
+        PhpTypeCache cache = PhpTypeCache.getInstance(getProject());
+        CountingResolver resolver = new CountingResolver();
+
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        assertNotNull(cache.getBySignature('a', "#M#C\\Foo.get", resolver));
+        assertNotNull(cache.getBySignature('a', "#M#C\\Foo.get", resolver));
+        assertEquals(1, resolver.count);
+
+        // same signature of another type provider
+        cache.getBySignature('b', "#M#C\\Foo.get", resolver);
+        assertEquals(2, resolver.count);
+
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(misses + 2, cache.getMissCount());
+        assertTrue(cache.getHitRate() > 0);
+    }
+
+    public void testNullResultIsCached() {
+        PhpTypeCache cache = PhpTypeCache.getInstance(getProject());
+        CountingResolver resolver = new CountingResolver(true);
+
+        assertNull(cache.getBySignature('a', "#M#C\\Foo.get", resolver));
+        assertNull(cache.getBySignature('a', "#M#C\\Foo.get", resolver));
+        assertEquals(1, resolver.count);
+    }
+
+    public void testPhpStructureChangeDropsCache() {
+        PhpTypeCache cache = PhpTypeCache.getInstance(getProject());
+        CountingResolver resolver = new CountingResolver();
+
+        cache.getBySignature('a', "#M#C\\Foo.get", resolver);
+        myFixture.addFileToProject("Foo.php", "<?php\nclass Foo {}");
+        cache.getBySignature('a', "#M#C\\Foo.get", resolver);
+
+        assertEquals(2, resolver.count);
+    }
+
+    public void testResultOfChangeWhileResolvingIsNotCached() {
+        PhpTypeCache cache = PhpTypeCache.getInstance(getProject());
+        final CountingResolver resolver = new CountingResolver();
+
+        cache.getBySignature('a', "#M#C\\Foo.get", new PhpTypeCache.SignatureResolver() {
+            @Nullable
+            @Override
+            public Collection<? extends PhpNamedElement> resolve() {
+                myFixture.addFileToProject("Foo.php", "<?php\nclass Foo {}");
+                return resolver.resolve();
+            }
+        });
+
+        cache.getBySignature('a', "#M#C\\Foo.get", resolver);
+        assertEquals(2, resolver.count);
+    }
+
+    public void testCacheIsBounded() {
+        PhpTypeCache cache = PhpTypeCache.getInstance(getProject());
+        CountingResolver resolver = new CountingResolver();
+
+        for (int i = 0; i < 2500; i++) {
+            cache.getBySignature('a', "#M#C\\Foo.get" + i, resolver);
+        }
+
+        assertTrue(cache.size() <= 2000);
+    }
+
+    private static class CountingResolver implements PhpTypeCache.SignatureResolver {
+
+        private final boolean returnNull;
+        private int count = 0;
+
+        private CountingResolver() {
+            this(false);
+        }
+
+        private CountingResolver(boolean returnNull) {
+            this.returnNull = returnNull;
+        }
+
+        @Nullable
+        @Override
+        public Collection<? extends PhpNamedElement> resolve() {
+            count++;
+            return returnNull ? null : Collections.<PhpNamedElement>emptyList();
+        }
+    }
+
+}
@@ -31,4 +31,15 @@ public class ServiceUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
         assertContainsElements(myTaggedClass, "foo_iterator");
         assertDoesntContain(myTaggedClass, "foo_extends");
     }
+
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil#getTaggedServices
+     */
+    public void testGetTaggedServices() {
+        Set<String> services = ServiceUtil.getTaggedServices(getProject(), "foo_iterator");
+        assertContainsElements(services, "iterator_service");
+        assertDoesntContain(services, "datetime_service");
+
+        assertSize(0, ServiceUtil.getTaggedServices(getProject(), "foo_unknown"));
+    }
 }
@@ -39,4 +39,12 @@ namespace Foo
             $this->setName(self::FOO);
         }
     }
+
+    class NoCommand
+    {
+        public function configure()
+        {
+            $this->setName('no_command');
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
+import fr.adrienbrault.idea.symfony2plugin.templating.globals.TwigGlobalsServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceParserInterface;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ContainerSnapshot
+ */
+public class ContainerSnapshotTest extends Assert {
+
+    @Test
+    public void testAllParsersAreFilledOnSharedPass() throws Exception {
+
+        File testFile = new File(this.getClass().getResource("appDevDebugProjectContainer.xml").getFile());
+
+        Collection<Class<? extends ServiceParserInterface>> parsers = new ArrayList<Class<? extends ServiceParserInterface>>();
+        parsers.add(XmlServiceParser.class);
+        parsers.add(XmlTagParser.class);
+        parsers.add(TwigGlobalsServiceParser.class);
+
+        ContainerSnapshot snapshot = ContainerSnapshot.create(Collections.singletonList(testFile), parsers);
+
+        assertFalse(snapshot.isModified(Collections.singletonList(testFile)));
+        assertEquals("\\Symfony\\Component\\HttpFoundation\\Request", snapshot.get(XmlServiceParser.class).getServiceMap().getMap().get("request"));
+        assertTrue(snapshot.get(XmlTagParser.class).get().contains("twig.extension"));
+        assertEquals("templating.globals", snapshot.get(TwigGlobalsServiceParser.class).getTwigGlobals().get("app").getValue());
+        assertNull(snapshot.get(ParameterServiceParser.class));
+
+        Collection<Class<? extends ServiceParserInterface>> more = new ArrayList<Class<? extends ServiceParserInterface>>();
+        more.add(ParameterServiceParser.class);
+        ContainerSnapshot next = snapshot.withParsers(more);
+
+        assertEquals("app", next.get(ParameterServiceParser.class).getParameterMap().get("kernel.name"));
+        assertSame(snapshot.get(XmlTagParser.class), next.get(XmlTagParser.class));
+        assertNull(snapshot.get(ParameterServiceParser.class));
+    }
+
+    @Test
+    public void testMissingFileIsPartOfSnapshotState() throws Exception {
+
+        File testFile = new File(this.getClass().getResource("appDevDebugProjectContainer.xml").getFile());
+        File missingFile = new File(testFile.getParentFile(), "missingContainer.xml");
+
+        Collection<Class<? extends ServiceParserInterface>> parsers = new ArrayList<Class<? extends ServiceParserInterface>>();
+        parsers.add(XmlServiceParser.class);
+
+        List<File> files = Arrays.asList(testFile, missingFile);
+        ContainerSnapshot snapshot = ContainerSnapshot.create(files, parsers);
+
+        assertFalse(snapshot.isModified(files));
+        assertTrue(snapshot.isModified(Collections.singletonList(testFile)));
+        assertEquals("\\Symfony\\Component\\HttpFoundation\\Request", snapshot.get(XmlServiceParser.class).getServiceMap().getMap().get("request"));
+    }
+
+}
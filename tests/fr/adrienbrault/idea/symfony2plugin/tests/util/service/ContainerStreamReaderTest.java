@@ -0,0 +1,93 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMapParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlEventParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerStreamReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.*;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ContainerStreamReader
+ */
+public class ContainerStreamReaderTest extends Assert {
+
+    @Test
+    public void testSinglePassFeedsAllParsers() throws Exception {
+
+        String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<container>" +
+                "<parameters>" +
+                    "<parameter key=\"kernel.name\">app</parameter>" +
+                    "<parameter key=\"kernel.bundles\" type=\"collection\">" +
+                        "<parameter key=\"FrameworkBundle\">Foo</parameter>" +
+                    "</parameter>" +
+                "</parameters>" +
+                "<services>" +
+                    "<service id=\"foo\" class=\"Foo\\Bar\">" +
+                        "<tag name=\"kernel.event_listener\" event=\"kernel.request\"/>" +
+                        "<argument type=\"service\"><service class=\"Foo\\Inline\"><tag name=\"inline\"/></service></argument>" +
+                    "</service>" +
+                "</services>" +
+            "</container>";
+
+        XmlTagParser tagParser = new XmlTagParser();
+        XmlEventParser eventParser = new XmlEventParser();
+        ParameterServiceParser parameterParser = new ParameterServiceParser();
+
+        ContainerStreamReader.read(new ByteArrayInputStream(xmlString.getBytes()), tagParser, eventParser, parameterParser);
+
+        assertTrue(tagParser.get().contains("kernel.event_listener"));
+        assertFalse(tagParser.get().contains("inline"));
+        assertTrue(tagParser.getTaggedClass("kernel.event_listener").contains("Foo\\Bar"));
+
+        assertEquals("kernel.event_listener", eventParser.get().get("kernel.request"));
+        assertEquals("Foo\\Bar", eventParser.getEventSubscribers("kernel.request").get(0).getFqnClassName());
+
+        assertEquals("app", parameterParser.getParameterMap().get("kernel.name"));
+        assertEquals("collection", parameterParser.getParameterMap().get("kernel.bundles"));
+        assertNull(parameterParser.getParameterMap().get("FrameworkBundle"));
+    }
+
+    /**
+     * Streaming parser must provide the same service map as the DOM parser on a generated 50k service container
+     */
+    @Test
+    public void testStreamingMatchesDomOnGeneratedContainer() throws Exception {
+
+        File file = File.createTempFile("appDevDebugProjectContainer", ".xml");
+        file.deleteOnExit();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<container>\n<services>\n");
+            for (int i = 0; i < 50000; i++) {
+                writer.write(String.format("<service id=\"service.%d\" class=\"Acme\\Service%d\"%s>", i, i, i % 10 == 0 ? " public=\"false\"" : ""));
+                writer.write(String.format("<tag name=\"tag.%d\"/><argument>%d</argument>", i % 100, i));
+                writer.write("</service>\n");
+
+                if(i % 50 == 5) {
+                    writer.write(String.format("<service id=\"alias.%d\" alias=\"service.%d\"/>\n", i, i));
+                }
+            }
+            writer.write("</services>\n</container>\n");
+        } finally {
+            writer.close();
+        }
+
+        ServiceMapParser serviceMapParser = new ServiceMapParser();
+
+        ServiceMap domMap = serviceMapParser.parse(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file));
+        ServiceMap streamMap = serviceMapParser.parse(file);
+
+        assertEquals(domMap.getMap(), streamMap.getMap());
+        assertEquals(domMap.getPublicMap(), streamMap.getPublicMap());
+        assertEquals("\\Acme\\Service55", streamMap.getMap().get("alias.55"));
+    }
+
+}